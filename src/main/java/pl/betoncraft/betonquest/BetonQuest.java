@@ -18,20 +18,24 @@
 package pl.betoncraft.betonquest;
 
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
 import java.sql.Connection;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.bukkit.Bukkit;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitRunnable;
 // import org.bukkit.scheduler.BukkitRunnable;
 
 import pl.betoncraft.betonquest.api.Condition;
 import pl.betoncraft.betonquest.api.Objective;
 import pl.betoncraft.betonquest.api.QuestEvent;
+import pl.betoncraft.betonquest.api.QuestFactory;
 import pl.betoncraft.betonquest.commands.JournalCommand;
 import pl.betoncraft.betonquest.commands.QuestCommand;
 import pl.betoncraft.betonquest.commands.TellrawCommand;
@@ -61,16 +65,32 @@ import pl.betoncraft.betonquest.conditions.WeatherCondition;
 import pl.betoncraft.betonquest.config.Config;
 import pl.betoncraft.betonquest.config.ConfigPackage;
 import pl.betoncraft.betonquest.config.ConfigUpdater;
+import pl.betoncraft.betonquest.core.BackpackDisplay;
 import pl.betoncraft.betonquest.core.CombatTagger;
+import pl.betoncraft.betonquest.core.ConditionCache;
+import pl.betoncraft.betonquest.core.ConditionRef;
+import pl.betoncraft.betonquest.core.ConstructorFactory;
+import pl.betoncraft.betonquest.core.ConversationData;
+import pl.betoncraft.betonquest.core.ConversationListener;
 import pl.betoncraft.betonquest.core.CubeNPCListener;
+import pl.betoncraft.betonquest.core.Definitions;
+import pl.betoncraft.betonquest.core.EventRef;
 import pl.betoncraft.betonquest.core.GlobalLocations;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
+import pl.betoncraft.betonquest.core.ItemIdentifier;
 import pl.betoncraft.betonquest.core.JoinQuitListener;
+import pl.betoncraft.betonquest.core.ObjectiveDispatcher;
+import pl.betoncraft.betonquest.core.QuestItem;
 import pl.betoncraft.betonquest.core.QuestItemHandler;
+import pl.betoncraft.betonquest.core.SimpleTextOutput;
 import pl.betoncraft.betonquest.core.StaticEvents;
+import pl.betoncraft.betonquest.core.Worlds;
 import pl.betoncraft.betonquest.database.Database;
 import pl.betoncraft.betonquest.database.DatabaseHandler;
+import pl.betoncraft.betonquest.database.DatabaseUpdater;
 import pl.betoncraft.betonquest.database.MySQL;
+import pl.betoncraft.betonquest.database.Saver;
 import pl.betoncraft.betonquest.database.SQLite;
 import pl.betoncraft.betonquest.events.CommandEvent;
 import pl.betoncraft.betonquest.events.ConversationEvent;
@@ -136,29 +156,25 @@ public final class BetonQuest extends JavaPlugin {
      */
     private ConcurrentHashMap<String, DatabaseHandler> dbHandlers = new ConcurrentHashMap<>();
     /**
-     * Stores all condition types with their corresponding classes
+     * Stores all condition types with their factories
      */
-    private static HashMap<String, Class<? extends Condition>> conditionTypes = new HashMap<>();
+    private static ConcurrentHashMap<String, QuestFactory<? extends Condition>> conditionTypes = new ConcurrentHashMap<>();
     /**
-     * Stores all event types with their corresponding classes
+     * Stores all event types with their factories
      */
-    private static HashMap<String, Class<? extends QuestEvent>> eventTypes = new HashMap<>();
+    private static ConcurrentHashMap<String, QuestFactory<? extends QuestEvent>> eventTypes = new ConcurrentHashMap<>();
     /**
-     * Stores all objective types with their corresponding classes
+     * Stores all objective types with their factories
      */
-    private static HashMap<String, Class<? extends Objective>> objectiveTypes = new HashMap<>();
+    private static ConcurrentHashMap<String, QuestFactory<? extends Objective>> objectiveTypes = new ConcurrentHashMap<>();
     /**
-     * Stores all conditions
+     * Writes players' data to the database
      */
-    private static HashMap<String, Condition> conditions = new HashMap<>();
+    private Saver saver;
     /**
-     * Stores all events
+     * Saves the data of all players to the database every minute
      */
-    private static HashMap<String, QuestEvent> events = new HashMap<>();
-//    /**
-//     * Saves the data of all players to the database every minute
-//     */
-//    private BukkitRunnable saver;
+    private BukkitRunnable autosave;
 
     @Override
     public void onEnable() {
@@ -192,13 +208,31 @@ public final class BetonQuest extends JavaPlugin {
 
         // create tables in the database
         database.createTables(isMySQLUsed);
+
+        // start the thread writing data to the database
+        saver = new Saver();
         
-        // load database backup
+        // update the database schema if needed; the old database is backed
+        // up with the plugin's queries before loading the backup
+        if (!updateDatabase()) {
+            return;
+        }
+
+        // load database backup; it has the original layout, so the schema
+        // is updated again
         Utils.loadDatabaseFromBackup();
+        if (!updateDatabase()) {
+            return;
+        }
 
         // update configuration if needed
         new ConfigUpdater();
 
+        // read settings only now, the updater could have rebuilt the config
+        ItemIdentifier.reload();
+        BackpackDisplay.reload();
+        SimpleTextOutput.reload();
+
         // if it's a first start of the plugin, debug option is not there
         // add it so debug option is turned off after first start
         if (getConfig().getString("debug", null) == null) {
@@ -209,9 +243,16 @@ public final class BetonQuest extends JavaPlugin {
         // instantiating of these important things
         new JoinQuitListener();
 
+        // route events to active objectives
+        new ObjectiveDispatcher();
+        new LocationObjective.MoveListener();
+
         // instantiate default conversation start listener
         new CubeNPCListener();
 
+        // instantiate listener of active conversations
+        new ConversationListener();
+
         // instantiate journal handler
         new QuestItemHandler();
         
@@ -223,71 +264,402 @@ public final class BetonQuest extends JavaPlugin {
 
         // start timer for global locations
         new GlobalLocations().runTaskTimer(this, 20, 20);
+        new ConditionCache().runTaskTimer(this, 1, 1);
 
         new QuestCommand();
         new JournalCommand();
         new TellrawCommand();
 
         // register conditions
-        registerConditions("health", HealthCondition.class);
-        registerConditions("permission", PermissionCondition.class);
-        registerConditions("experience", ExperienceCondition.class);
-        registerConditions("tag", TagCondition.class);
-        registerConditions("point", PointCondition.class);
-        registerConditions("and", ConjunctionCondition.class);
-        registerConditions("or", AlternativeCondition.class);
-        registerConditions("time", TimeCondition.class);
-        registerConditions("weather", WeatherCondition.class);
-        registerConditions("height", HeightCondition.class);
-        registerConditions("item", ItemCondition.class);
-        registerConditions("hand", HandCondition.class);
-        registerConditions("location", LocationCondition.class);
-        registerConditions("armor", ArmorCondition.class);
-        registerConditions("effect", EffectCondition.class);
-        registerConditions("rating", ArmorRatingCondition.class);
-        registerConditions("sneak", SneakCondition.class);
-        registerConditions("random", RandomCondition.class);
-        registerConditions("journal", JournalCondition.class);
-        registerConditions("testforblock", TestForBlockCondition.class);
-        registerConditions("empty", EmptySlotsCondition.class);
-        registerConditions("party", PartyCondition.class);
+        registerConditions("health", new QuestFactory<Condition>() {
+            @Override
+            public Condition create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new HealthCondition(packName, instruction);
+            }
+        });
+        registerConditions("permission", new QuestFactory<Condition>() {
+            @Override
+            public Condition create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new PermissionCondition(packName, instruction);
+            }
+        });
+        registerConditions("experience", new QuestFactory<Condition>() {
+            @Override
+            public Condition create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new ExperienceCondition(packName, instruction);
+            }
+        });
+        registerConditions("tag", new QuestFactory<Condition>() {
+            @Override
+            public Condition create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new TagCondition(packName, instruction);
+            }
+        });
+        registerConditions("point", new QuestFactory<Condition>() {
+            @Override
+            public Condition create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new PointCondition(packName, instruction);
+            }
+        });
+        registerConditions("and", new QuestFactory<Condition>() {
+            @Override
+            public Condition create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new ConjunctionCondition(packName, instruction);
+            }
+        });
+        registerConditions("or", new QuestFactory<Condition>() {
+            @Override
+            public Condition create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new AlternativeCondition(packName, instruction);
+            }
+        });
+        registerConditions("time", new QuestFactory<Condition>() {
+            @Override
+            public Condition create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new TimeCondition(packName, instruction);
+            }
+        });
+        registerConditions("weather", new QuestFactory<Condition>() {
+            @Override
+            public Condition create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new WeatherCondition(packName, instruction);
+            }
+        });
+        registerConditions("height", new QuestFactory<Condition>() {
+            @Override
+            public Condition create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new HeightCondition(packName, instruction);
+            }
+        });
+        registerConditions("item", new QuestFactory<Condition>() {
+            @Override
+            public Condition create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new ItemCondition(packName, instruction);
+            }
+        });
+        registerConditions("hand", new QuestFactory<Condition>() {
+            @Override
+            public Condition create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new HandCondition(packName, instruction);
+            }
+        });
+        registerConditions("location", new QuestFactory<Condition>() {
+            @Override
+            public Condition create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new LocationCondition(packName, instruction);
+            }
+        });
+        registerConditions("armor", new QuestFactory<Condition>() {
+            @Override
+            public Condition create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new ArmorCondition(packName, instruction);
+            }
+        });
+        registerConditions("effect", new QuestFactory<Condition>() {
+            @Override
+            public Condition create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new EffectCondition(packName, instruction);
+            }
+        });
+        registerConditions("rating", new QuestFactory<Condition>() {
+            @Override
+            public Condition create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new ArmorRatingCondition(packName, instruction);
+            }
+        });
+        registerConditions("sneak", new QuestFactory<Condition>() {
+            @Override
+            public Condition create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new SneakCondition(packName, instruction);
+            }
+        });
+        registerConditions("random", new QuestFactory<Condition>() {
+            @Override
+            public Condition create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new RandomCondition(packName, instruction);
+            }
+        });
+        registerConditions("journal", new QuestFactory<Condition>() {
+            @Override
+            public Condition create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new JournalCondition(packName, instruction);
+            }
+        });
+        registerConditions("testforblock", new QuestFactory<Condition>() {
+            @Override
+            public Condition create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new TestForBlockCondition(packName, instruction);
+            }
+        });
+        registerConditions("empty", new QuestFactory<Condition>() {
+            @Override
+            public Condition create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new EmptySlotsCondition(packName, instruction);
+            }
+        });
+        registerConditions("party", new QuestFactory<Condition>() {
+            @Override
+            public Condition create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new PartyCondition(packName, instruction);
+            }
+        });
         
         // register events
-        registerEvents("message", MessageEvent.class);
-        registerEvents("objective", ObjectiveEvent.class);
-        registerEvents("command", CommandEvent.class);
-        registerEvents("tag", TagEvent.class);
-        registerEvents("journal", JournalEvent.class);
-        registerEvents("teleport", TeleportEvent.class);
-        registerEvents("explosion", ExplosionEvent.class);
-        registerEvents("lightning", LightningEvent.class);
-        registerEvents("point", PointEvent.class);
-        registerEvents("delete", DeleteObjectiveEvent.class);
-        registerEvents("give", GiveEvent.class);
-        registerEvents("take", TakeEvent.class);
-        registerEvents("conversation", ConversationEvent.class);
-        registerEvents("kill", KillEvent.class);
-        registerEvents("effect", EffectEvent.class);
-        registerEvents("spawn", SpawnMobEvent.class);
-        registerEvents("time", TimeEvent.class);
-        registerEvents("weather", WeatherEvent.class);
-        registerEvents("folder", FolderEvent.class);
-        registerEvents("setblock", SetBlockEvent.class);
-        registerEvents("damage", DamageEvent.class);
-        registerEvents("party", PartyEvent.class);
+        registerEvents("message", new QuestFactory<QuestEvent>() {
+            @Override
+            public QuestEvent create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new MessageEvent(packName, instruction);
+            }
+        });
+        registerEvents("objective", new QuestFactory<QuestEvent>() {
+            @Override
+            public QuestEvent create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new ObjectiveEvent(packName, instruction);
+            }
+        });
+        registerEvents("command", new QuestFactory<QuestEvent>() {
+            @Override
+            public QuestEvent create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new CommandEvent(packName, instruction);
+            }
+        });
+        registerEvents("tag", new QuestFactory<QuestEvent>() {
+            @Override
+            public QuestEvent create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new TagEvent(packName, instruction);
+            }
+        });
+        registerEvents("journal", new QuestFactory<QuestEvent>() {
+            @Override
+            public QuestEvent create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new JournalEvent(packName, instruction);
+            }
+        });
+        registerEvents("teleport", new QuestFactory<QuestEvent>() {
+            @Override
+            public QuestEvent create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new TeleportEvent(packName, instruction);
+            }
+        });
+        registerEvents("explosion", new QuestFactory<QuestEvent>() {
+            @Override
+            public QuestEvent create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new ExplosionEvent(packName, instruction);
+            }
+        });
+        registerEvents("lightning", new QuestFactory<QuestEvent>() {
+            @Override
+            public QuestEvent create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new LightningEvent(packName, instruction);
+            }
+        });
+        registerEvents("point", new QuestFactory<QuestEvent>() {
+            @Override
+            public QuestEvent create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new PointEvent(packName, instruction);
+            }
+        });
+        registerEvents("delete", new QuestFactory<QuestEvent>() {
+            @Override
+            public QuestEvent create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new DeleteObjectiveEvent(packName, instruction);
+            }
+        });
+        registerEvents("give", new QuestFactory<QuestEvent>() {
+            @Override
+            public QuestEvent create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new GiveEvent(packName, instruction);
+            }
+        });
+        registerEvents("take", new QuestFactory<QuestEvent>() {
+            @Override
+            public QuestEvent create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new TakeEvent(packName, instruction);
+            }
+        });
+        registerEvents("conversation", new QuestFactory<QuestEvent>() {
+            @Override
+            public QuestEvent create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new ConversationEvent(packName, instruction);
+            }
+        });
+        registerEvents("kill", new QuestFactory<QuestEvent>() {
+            @Override
+            public QuestEvent create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new KillEvent(packName, instruction);
+            }
+        });
+        registerEvents("effect", new QuestFactory<QuestEvent>() {
+            @Override
+            public QuestEvent create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new EffectEvent(packName, instruction);
+            }
+        });
+        registerEvents("spawn", new QuestFactory<QuestEvent>() {
+            @Override
+            public QuestEvent create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new SpawnMobEvent(packName, instruction);
+            }
+        });
+        registerEvents("time", new QuestFactory<QuestEvent>() {
+            @Override
+            public QuestEvent create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new TimeEvent(packName, instruction);
+            }
+        });
+        registerEvents("weather", new QuestFactory<QuestEvent>() {
+            @Override
+            public QuestEvent create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new WeatherEvent(packName, instruction);
+            }
+        });
+        registerEvents("folder", new QuestFactory<QuestEvent>() {
+            @Override
+            public QuestEvent create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new FolderEvent(packName, instruction);
+            }
+        });
+        registerEvents("setblock", new QuestFactory<QuestEvent>() {
+            @Override
+            public QuestEvent create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new SetBlockEvent(packName, instruction);
+            }
+        });
+        registerEvents("damage", new QuestFactory<QuestEvent>() {
+            @Override
+            public QuestEvent create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new DamageEvent(packName, instruction);
+            }
+        });
+        registerEvents("party", new QuestFactory<QuestEvent>() {
+            @Override
+            public QuestEvent create(String packName, Instruction instruction)
+                    throws InstructionParseException {
+                return new PartyEvent(packName, instruction);
+            }
+        });
 
         // register objectives
-        registerObjectives("location", LocationObjective.class);
-        registerObjectives("block", BlockObjective.class);
-        registerObjectives("mobkill", MobKillObjective.class);
-        registerObjectives("action", ActionObjective.class);
-        registerObjectives("die", DieObjective.class);
-        registerObjectives("craft", CraftingObjective.class);
-        registerObjectives("smelt", SmeltingObjective.class);
-        registerObjectives("tame", TameObjective.class);
-        registerObjectives("delay", DelayObjective.class);
-        registerObjectives("arrow", ArrowShootObjective.class);
-        registerObjectives("experience", ExperienceObjective.class);
+        registerObjectives("location", new QuestFactory<Objective>() {
+            @Override
+            public Objective create(String playerID, Instruction instruction)
+                    throws InstructionParseException {
+                return new LocationObjective(playerID, instruction);
+            }
+        });
+        registerObjectives("block", new QuestFactory<Objective>() {
+            @Override
+            public Objective create(String playerID, Instruction instruction)
+                    throws InstructionParseException {
+                return new BlockObjective(playerID, instruction);
+            }
+        });
+        registerObjectives("mobkill", new QuestFactory<Objective>() {
+            @Override
+            public Objective create(String playerID, Instruction instruction)
+                    throws InstructionParseException {
+                return new MobKillObjective(playerID, instruction);
+            }
+        });
+        registerObjectives("action", new QuestFactory<Objective>() {
+            @Override
+            public Objective create(String playerID, Instruction instruction)
+                    throws InstructionParseException {
+                return new ActionObjective(playerID, instruction);
+            }
+        });
+        registerObjectives("die", new QuestFactory<Objective>() {
+            @Override
+            public Objective create(String playerID, Instruction instruction)
+                    throws InstructionParseException {
+                return new DieObjective(playerID, instruction);
+            }
+        });
+        registerObjectives("craft", new QuestFactory<Objective>() {
+            @Override
+            public Objective create(String playerID, Instruction instruction)
+                    throws InstructionParseException {
+                return new CraftingObjective(playerID, instruction);
+            }
+        });
+        registerObjectives("smelt", new QuestFactory<Objective>() {
+            @Override
+            public Objective create(String playerID, Instruction instruction)
+                    throws InstructionParseException {
+                return new SmeltingObjective(playerID, instruction);
+            }
+        });
+        registerObjectives("tame", new QuestFactory<Objective>() {
+            @Override
+            public Objective create(String playerID, Instruction instruction)
+                    throws InstructionParseException {
+                return new TameObjective(playerID, instruction);
+            }
+        });
+        registerObjectives("delay", new QuestFactory<Objective>() {
+            @Override
+            public Objective create(String playerID, Instruction instruction)
+                    throws InstructionParseException {
+                return new DelayObjective(playerID, instruction);
+            }
+        });
+        registerObjectives("arrow", new QuestFactory<Objective>() {
+            @Override
+            public Objective create(String playerID, Instruction instruction)
+                    throws InstructionParseException {
+                return new ArrowShootObjective(playerID, instruction);
+            }
+        });
+        registerObjectives("experience", new QuestFactory<Objective>() {
+            @Override
+            public Objective create(String playerID, Instruction instruction)
+                    throws InstructionParseException {
+                return new ExperienceObjective(playerID, instruction);
+            }
+        });
 
         // initialize compatibility with other plugins
         new Compatibility();
@@ -295,28 +667,33 @@ public final class BetonQuest extends JavaPlugin {
         // initialize PlayerConverter
         PlayerConverter.getType();
         
-        // Load all events and conditions
+        // Load all events and conditions; they are parsed on other threads,
+        // so everything they need from the server is taken first
+        Worlds.snapshot();
+        QuestItem.snapshot();
         loadEventsAndConditions();
 
         // load data for all online players
+        List<String> playerIDs = new ArrayList<>();
         for (Player player : Bukkit.getOnlinePlayers()) {
-            String playerID = PlayerConverter.getID(player);
-            DatabaseHandler dbh = new DatabaseHandler(playerID);
-            dbHandlers.put(playerID, dbh);
+            playerIDs.add(PlayerConverter.getID(player));
+        }
+        dbHandlers.putAll(DatabaseHandler.loadPlayers(playerIDs));
+        for (DatabaseHandler dbh : dbHandlers.values()) {
             dbh.startObjectives();
         }
 
-// This probably locks the database if using SQLite        
-//        // schedule periodic data saving
-//        saver = new BukkitRunnable() {
-//            @Override
-//            public void run() {
-//                for (DatabaseHandler dbHandler : dbHandlers.values()) {
-//                    dbHandler.saveData();
-//                }
-//            }
-//        };
-//        saver.runTaskTimerAsynchronously(this, 60*20, 60*20);
+        // schedule periodic data saving; it only queues the changes, they
+        // are written to the database by the saver thread
+        autosave = new BukkitRunnable() {
+            @Override
+            public void run() {
+                for (DatabaseHandler dbHandler : dbHandlers.values()) {
+                    dbHandler.saveData();
+                }
+            }
+        };
+        autosave.runTaskTimer(this, 60*20, 60*20);
 
         // metrics!
         if (getConfig().getString("metrics").equalsIgnoreCase("true")) {
@@ -343,101 +720,149 @@ public final class BetonQuest extends JavaPlugin {
     }
 
     /**
-     * Loads events and conditions to the maps
+     * Loads events, conditions and conversations from the current packages
+     * and publishes them.
      */
     public void loadEventsAndConditions() {
-	events.clear();
-	conditions.clear();
-	for (String packName : Config.getPackageNames()) {
-            Debug.info("Loading stuff in package " + packName);
-            ConfigPackage pack = Config.getPackage(packName);
-            FileConfiguration eConfig = Config.getPackage(packName).getEvents().getConfig();
-            for (String key : eConfig.getKeys(false)) {
-        	String ID = packName + "." + key;
-                String instruction = pack.getString("events." + key);
-                String[] parts = instruction.split(" ");
-        	if (parts.length < 1) {
-        	    Debug.error("Not enough arguments in event " + ID);
-        	    continue;
-        	}
-        	Class<? extends QuestEvent> eventClass = eventTypes.get(parts[0]);
-                if (eventClass == null) {
-                    // if it's null then there is no such type registered, log an error
-                    Debug.error(
-                	    "Event type " + parts[0] + " is not registered, check if it's"
-                    	    + " spelled correctly in " + ID + " event."
-                    );
-                    continue;
-                }
-                try {
-                    QuestEvent event = eventClass.getConstructor(String.class, String.class)
-                	    .newInstance(packName, instruction);
-                    events.put(ID, event);
-                    Debug.info("  Event " + ID + " loaded");
-                } catch (InvocationTargetException e) {
-                    if (e.getCause() instanceof InstructionParseException) {
-                	Debug.error("Error in " + ID + " event: " + e.getCause().getMessage());
-                    } else {
-                        e.printStackTrace();
-                        Debug.error("There was some error. Please send it to the developer: <coosheck@gmail.com>");
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    Debug.error("There was some error. Please send it to the developer: <coosheck@gmail.com>");
+        Definitions.publish(loadDefinitions(Definitions.get()));
+    }
+
+    /**
+     * Loads events, conditions and conversations from packages of the
+     * definitions. Instructions of every package are parsed in parallel.
+     * Nothing is published, so it can be called on any thread.
+     * 
+     * @param base
+     *            definitions with loaded packages
+     * @return new definitions with the same packages and loaded events,
+     *         conditions and conversations
+     */
+    public Definitions loadDefinitions(final Definitions base) {
+        long start = System.nanoTime();
+        List<Callable<LoadedPackage>> tasks = new ArrayList<>();
+        for (final String packName : base.getPackageNames()) {
+            // events and conditions look up their packages, so they need to
+            // see the definitions being loaded
+            tasks.add(Definitions.loading(base, new Callable<LoadedPackage>() {
+                @Override
+                public LoadedPackage call() {
+                    return loadPackage(base.getPackage(packName));
                 }
-            }
-            FileConfiguration cConfig = pack.getConditions().getConfig();
-            for (String key : cConfig.getKeys(false)) {
-        	String ID = packName + "." + key;
-                String instruction = pack.getString("conditions." + key);
-                String[] parts = instruction.split(" ");
-        	if (parts.length < 1) {
-        	    Debug.error("Not enough arguments in condition " + ID);
-        	    continue;
-        	}
-        	Class<? extends Condition> conditionClass = conditionTypes.get(parts[0]);
+            }));
+        }
+        HashMap<String, QuestEvent> events = new HashMap<>();
+        HashMap<String, Condition> conditions = new HashMap<>();
+        for (LoadedPackage pack : Utils.invokeAll(tasks)) {
+            events.putAll(pack.events);
+            conditions.putAll(pack.conditions);
+        }
+        long parsed = System.nanoTime();
+        Debug.broadcast("There are " + conditions.size() + " conditions and "
+                + events.size() + " events loaded in " + (parsed - start) / 1000000 + " ms.");
+        // compile conversations once their events and conditions are known
+        HashMap<String, ConversationData> conversations = ConversationData.load(base, events,
+                conditions);
+        Debug.broadcast("There are " + conversations.size() + " conversations loaded in "
+                + (System.nanoTime() - parsed) / 1000000 + " ms.");
+        return base.withQuests(events, conditions, conversations);
+    }
+
+    /**
+     * Parses events and conditions of the package. It doesn't change any
+     * shared state, so it can run on any thread.
+     * 
+     * @param pack
+     *            the package
+     * @return events and conditions of the package
+     */
+    private LoadedPackage loadPackage(ConfigPackage pack) {
+        LoadedPackage loaded = new LoadedPackage();
+        String packName = pack.getName();
+        Debug.info("Loading stuff in package " + packName);
+        FileConfiguration eConfig = pack.getEvents().getConfig();
+        for (String key : eConfig.getKeys(false)) {
+            String ID = packName + "." + key;
+            Instruction instruction = new Instruction(packName, pack.getString("events." + key));
+            QuestFactory<? extends QuestEvent> eventFactory = eventTypes.get(instruction.getType());
+            if (eventFactory == null) {
                 // if it's null then there is no such type registered, log an error
-                if (conditionClass == null) {
-                    Debug.error(
-                	    "Condition type " + parts[0] + " is not registered, check if it's"
-                    	    + " spelled correctly in " + ID + " condition."
-                    );
-                    continue;
-                }
-                try {
-                    Condition condition = conditionClass.getConstructor(String.class, String.class)
-                	    .newInstance(packName, instruction);
-                    conditions.put(ID, condition);
-                    Debug.info("  Condition " + ID + " loaded");
-                } catch (InvocationTargetException e) {
-                    if (e.getCause() instanceof InstructionParseException) {
-                	Debug.error("Error in " + ID + " condition: " + e.getCause().getMessage());
-                    } else {
-                        e.printStackTrace();
-                        Debug.error("There was some error. Please send it to the developer: <coosheck@gmail.com>");
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    Debug.error("There was some error. Please send it to the developer: <coosheck@gmail.com>");
-                }
+                Debug.error(
+                        "Event type " + instruction.getType() + " is not registered, check if it's"
+                        + " spelled correctly in " + ID + " event."
+                );
+                continue;
+            }
+            try {
+                QuestEvent event = eventFactory.create(packName, instruction);
+                loaded.events.put(ID, event);
+                Debug.info("  Event " + ID + " loaded");
+            } catch (InstructionParseException e) {
+                Debug.error("Error in " + ID + " event: " + e.getMessage());
+            } catch (Exception e) {
+                e.printStackTrace();
+                Debug.error("There was some error. Please send it to the developer: <coosheck@gmail.com>");
             }
-            Debug.info("Everything in package " + packName + " loaded");
         }
-        Debug.broadcast("There are " + conditions.size() + " conditions and "
-                + events.size() + " events loaded.");
+        FileConfiguration cConfig = pack.getConditions().getConfig();
+        for (String key : cConfig.getKeys(false)) {
+            String ID = packName + "." + key;
+            Instruction instruction = new Instruction(packName, pack.getString("conditions." + key));
+            QuestFactory<? extends Condition> conditionFactory = conditionTypes.get(instruction.getType());
+            // if it's null then there is no such type registered, log an error
+            if (conditionFactory == null) {
+                Debug.error(
+                        "Condition type " + instruction.getType() + " is not registered, check if it's"
+                        + " spelled correctly in " + ID + " condition."
+                );
+                continue;
+            }
+            try {
+                Condition condition = conditionFactory.create(packName, instruction);
+                loaded.conditions.put(ID, condition);
+                Debug.info("  Condition " + ID + " loaded");
+            } catch (InstructionParseException e) {
+                Debug.error("Error in " + ID + " condition: " + e.getMessage());
+            } catch (Exception e) {
+                e.printStackTrace();
+                Debug.error("There was some error. Please send it to the developer: <coosheck@gmail.com>");
+            }
+        }
+        Debug.info("Everything in package " + packName + " loaded");
+        return loaded;
+    }
+
+    /**
+     * Events and conditions parsed from a single package
+     */
+    private static class LoadedPackage {
+        private final HashMap<String, QuestEvent> events = new HashMap<>();
+        private final HashMap<String, Condition> conditions = new HashMap<>();
     }
 
     @Override
     public void onDisable() {
-//        // cancel database saver
-//        saver.cancel();
+        // cancel database autosave; it may not exist if enabling failed
+        if (autosave != null) {
+            autosave.cancel();
+        }
         // stop global location listener
         GlobalLocations.stop();
-        // save players' data
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            DatabaseHandler dbHandler = dbHandlers.get(PlayerConverter.getID(player));
-            dbHandler.saveData();
-            dbHandler.removeData();
+        ConditionCache.stop();
+        if (saver != null) {
+            // save players' data
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                DatabaseHandler dbHandler = dbHandlers.get(PlayerConverter.getID(player));
+                if (dbHandler == null) {
+                    continue;
+                }
+                dbHandler.saveData();
+                dbHandler.removeData();
+            }
+            // write everything to the database
+            saver.end();
+        }
+        if (database != null) {
+            database.closePool();
         }
         // update if needed
         if (getConfig().getString("autoupdate").equalsIgnoreCase("true")) {
@@ -452,6 +877,21 @@ public final class BetonQuest extends JavaPlugin {
         Debug.broadcast("BetonQuest succesfully disabled!");
     }
 
+    /**
+     * Updates the database schema if needed. The plugin's queries don't work
+     * with the old schema, so the plugin is disabled if it fails.
+     * 
+     * @return true if the schema is up to date
+     */
+    private boolean updateDatabase() {
+        if (new DatabaseUpdater().isSuccessful()) {
+            return true;
+        }
+        Debug.error("Could not update the database schema, disabling BetonQuest!");
+        getServer().getPluginManager().disablePlugin(this);
+        return false;
+    }
+
     /**
      * Returns the plugin's instance
      * 
@@ -470,6 +910,15 @@ public final class BetonQuest extends JavaPlugin {
         return database;
     }
 
+    /**
+     * Returns the saver, which writes players' data to the database
+     * 
+     * @return Saver instance
+     */
+    public Saver getSaver() {
+        return saver;
+    }
+
     /**
      * Checks if MySQL is used or not
      * 
@@ -515,7 +964,9 @@ public final class BetonQuest extends JavaPlugin {
     }
 
     /**
-     * Registers new condition classes by their names
+     * Registers new condition classes by their names. Instances are created
+     * by the (String, Instruction) constructor, or the (String, String) one
+     * if there is none, looked up once.
      * 
      * @param name
      *            name of the condition type
@@ -523,12 +974,31 @@ public final class BetonQuest extends JavaPlugin {
      *            class object for the condition
      */
     public void registerConditions(String name, Class<? extends Condition> conditionClass) {
+        try {
+            registerConditions(name, new ConstructorFactory<Condition>(conditionClass));
+        } catch (IllegalArgumentException e) {
+            Debug.error("Could not register " + name + " condition type: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Registers new condition type with a factory creating its instances
+     * 
+     * @param name
+     *            name of the condition type
+     * @param factory
+     *            factory creating conditions from the package name and
+     *            the instruction
+     */
+    public void registerConditions(String name, QuestFactory<? extends Condition> factory) {
         Debug.info("Registering " + name + " condition type");
-        conditionTypes.put(name, conditionClass);
+        conditionTypes.put(name, factory);
     }
 
     /**
-     * Registers new event classes by their names
+     * Registers new event classes by their names. Instances are created
+     * by the (String, Instruction) constructor, or the (String, String) one
+     * if there is none, looked up once.
      * 
      * @param name
      *            name of the event type
@@ -536,12 +1006,31 @@ public final class BetonQuest extends JavaPlugin {
      *            class object for the condition
      */
     public void registerEvents(String name, Class<? extends QuestEvent> eventClass) {
+        try {
+            registerEvents(name, new ConstructorFactory<QuestEvent>(eventClass));
+        } catch (IllegalArgumentException e) {
+            Debug.error("Could not register " + name + " event type: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Registers new event type with a factory creating its instances
+     * 
+     * @param name
+     *            name of the event type
+     * @param factory
+     *            factory creating events from the package name and the
+     *            instruction
+     */
+    public void registerEvents(String name, QuestFactory<? extends QuestEvent> factory) {
         Debug.info("Registering " + name + " event type");
-        eventTypes.put(name, eventClass);
+        eventTypes.put(name, factory);
     }
 
     /**
-     * Registers new objective classes by their names
+     * Registers new objective classes by their names. Instances are created
+     * by the (String, Instruction) constructor, or the (String, String) one
+     * if there is none, looked up once.
      * 
      * @param name
      *            name of the objective type
@@ -549,8 +1038,25 @@ public final class BetonQuest extends JavaPlugin {
      *            class object for the objective
      */
     public void registerObjectives(String name, Class<? extends Objective> objectiveClass) {
+        try {
+            registerObjectives(name, new ConstructorFactory<Objective>(objectiveClass));
+        } catch (IllegalArgumentException e) {
+            Debug.error("Could not register " + name + " objective type: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Registers new objective type with a factory creating its instances
+     * 
+     * @param name
+     *            name of the objective type
+     * @param factory
+     *            factory creating objectives from the player ID and the
+     *            instruction
+     */
+    public void registerObjectives(String name, QuestFactory<? extends Objective> factory) {
         Debug.info("Registering " + name + " objective type");
-        objectiveTypes.put(name, objectiveClass);
+        objectiveTypes.put(name, factory);
     }
 
     /**
@@ -568,29 +1074,7 @@ public final class BetonQuest extends JavaPlugin {
             Debug.info("Null arguments for the condition!");
             return false;
         }
-        // check for online player
-        if (PlayerConverter.getPlayer(playerID) == null) {
-            Debug.info("Player was offline, returning false");
-            return false;
-        }
-        // check for inverted condition
-        boolean inverted = false;
-        if (conditionID.contains("!")) {
-            conditionID = conditionID.replace("!", "");
-            inverted = true;
-        }
-        // get the condition
-        Condition condition = conditions.get(conditionID);
-        if (condition == null) {
-            Debug.error("The condition " + conditionID + " is not defined!");
-            return false;
-        }
-        // and check if it's met or not
-        boolean outcome = condition.isMet(playerID);
-        boolean isMet = (outcome && !inverted) || (!outcome && inverted);
-        Debug.info((isMet ? "TRUE" : "FALSE") + ": " + (inverted ? "inverted" : "") + " condition "
-                + conditionID + " for player " + playerID);
-        return isMet;
+        return ConditionRef.find(conditionID).check(playerID);
     }
 
     /**
@@ -607,14 +1091,7 @@ public final class BetonQuest extends JavaPlugin {
             Debug.info("Null argument for the event!");
             return;
         }
-        // get the event
-        QuestEvent event = events.get(eventID);
-        if (event == null) {
-            Debug.error("Event " + eventID + " is not defined");
-            return;
-        }
-        // fire the event
-        event.fire(playerID);
+        EventRef.find(eventID).fire(playerID);
     }
 
     /**
@@ -632,14 +1109,8 @@ public final class BetonQuest extends JavaPlugin {
             return;
         }
         // get tag (known as label)
-        String[] parts = instruction.split(" ");
-        String tag = null;
-        for (String part : parts) {
-            if (part.contains("label:")) {
-                tag = part.substring(6);
-                break;
-            }
-        }
+        Instruction parsed = new Instruction(null, instruction);
+        String tag = parsed.getLabel();
         // the label is required, log an error if it's not supplied
         if (tag == null) {
             Debug.error("Label was not found in an objective, it's required. Player: " + playerID
@@ -653,30 +1124,24 @@ public final class BetonQuest extends JavaPlugin {
                 return;
             }
         }
-        // get objective's class
-        Class<? extends Objective> objective = objectiveTypes.get(parts[0]);
+        // get objective's factory
+        QuestFactory<? extends Objective> objective = objectiveTypes.get(parsed.getType());
         if (objective == null) {
             // if it's null then objective type has not been registered, log an
             // error
-            Debug.error("Objective type \"" + parts[0]
+            Debug.error("Objective type \"" + parsed.getType()
                 + "\" is not registered, check if it's spelled correctly in \"" + instruction
                 + "\".");
             return;
         }
         try {
             // start the objective
-            Objective objInstance = objective.getConstructor(String.class, String.class)
-                    .newInstance(playerID, instruction);
+            Objective objInstance = objective.create(playerID, parsed);
             getInstance().getDBHandler(playerID).addObjective(objInstance);
             Debug.info("Created new objective from instruction \"" + instruction + "\" with \""
                 + tag + "\" tag for player " + playerID);
-        } catch (InvocationTargetException e) {
-            if (e.getCause() instanceof InstructionParseException) {
-                Debug.error("Error in " + tag + " objective: " + e.getCause().getMessage());
-            } else {
-                e.printStackTrace();
-                Debug.error("There was some error. Please send it to the developer: <coosheck@gmail.com>");
-            }
+        } catch (InstructionParseException e) {
+            Debug.error("Error in " + tag + " objective: " + e.getMessage());
         } catch (Exception e) {
             e.printStackTrace();
             Debug.error("There was some error. Please send it to the developer: <coosheck@gmail.com>");
@@ -19,6 +19,7 @@ package pl.betoncraft.betonquest.api;
 
 import pl.betoncraft.betonquest.config.Config;
 import pl.betoncraft.betonquest.config.ConfigPackage;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 
 /**
@@ -37,10 +38,23 @@ abstract public class Condition {
      * Stores instruction string for the condition.
      */
     protected String instructions;
+    /**
+     * Stores parsed instruction, with resolved condition IDs.
+     */
+    protected final Instruction instruction;
     /**
      * ConfigPackage in which this condition is defined
      */
     protected ConfigPackage pack;
+    /**
+     * If the result of this condition can be remembered until the end of the
+     * tick. Set it to true only if the condition depends on nothing but the
+     * player's state, which doesn't change in the same tick unless it's
+     * changed by an event (so not for random numbers, other plugins' data or
+     * the state of the world, like blocks, time or weather, which other
+     * players can change).
+     */
+    protected boolean cacheable = false;
 
     /**
      * Creates new instance of the condition. The condition should parse
@@ -56,8 +70,22 @@ abstract public class Condition {
      *            wrong.
      */
     public Condition(String packName, String instructions) throws InstructionParseException {
-        this.instructions = instructions;
+        this(packName, new Instruction(packName, instructions));
+    }
+
+    /**
+     * Creates new instance of the condition from the instruction already
+     * parsed by BetonQuest, so it isn't parsed again.
+     * 
+     * @param packName
+     *            name of the package in which this condition is defined
+     * @param instruction
+     *            the parsed instruction
+     */
+    public Condition(String packName, Instruction instruction) throws InstructionParseException {
+        this.instructions = instruction.getInstruction();
         this.pack = Config.getPackage(packName);
+        this.instruction = instruction;
     }
 
 
@@ -83,4 +111,12 @@ abstract public class Condition {
     public final boolean isMet(String playerID) {
 	return check(playerID);
     }
+
+    /**
+     * @return true if the result of this condition can be cached for the
+     *         current tick
+     */
+    public boolean isCacheable() {
+        return cacheable;
+    }
 }
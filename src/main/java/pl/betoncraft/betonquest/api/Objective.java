@@ -20,6 +20,9 @@ package pl.betoncraft.betonquest.api;
 import org.bukkit.scheduler.BukkitRunnable;
 
 import pl.betoncraft.betonquest.BetonQuest;
+import pl.betoncraft.betonquest.core.ConditionRef;
+import pl.betoncraft.betonquest.core.EventRef;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.utils.Debug;
 
 /**
@@ -42,6 +45,10 @@ public abstract class Objective {
      * Stores instruction string for the objective.
      */
     protected final String instructions;
+    /**
+     * Stores parsed instruction, with resolved event and condition IDs.
+     */
+    protected final Instruction instruction;
     /**
      * Stores conditions string with leading "conditions:" label.
      */
@@ -57,8 +64,10 @@ public abstract class Objective {
 
     /**
      * Creates new instance of the objective. The objective should parse
-     * instruction string at this point and extract all the data from it. It
-     * should also register needed Listeners.
+     * instruction string at this point and extract all the data from it. If
+     * the objective implements Listener, its event handlers will receive
+     * events involving the player once the objective is started; don't
+     * register it in Bukkit yourself.
      * 
      * @param playerID
      *            ID of the player this objective is related to. It will be
@@ -70,62 +79,47 @@ public abstract class Objective {
      *            wrong.
      */
     public Objective(String playerID, String instructions) {
+        this(playerID, new Instruction(null, instructions));
+    }
+
+    /**
+     * Creates new instance of the objective from the instruction already
+     * parsed by BetonQuest, so it isn't parsed again.
+     * 
+     * @param playerID
+     *            ID of the player this objective is related to
+     * @param instruction
+     *            the parsed instruction
+     */
+    public Objective(String playerID, Instruction instruction) {
         this.playerID = playerID;
-        this.instructions = instructions;
+        this.instructions = instruction.getInstruction();
+        this.instruction = instruction;
         // extract tag, events and conditions
-        String tempTag        = "",
-               tempEvents     = "",
-               tempConditions = "";
-        for (String part : instructions.split(" ")) {
-            if (part.contains("label:")) {
-                tempTag = part.substring(6);
-            }
-            if (part.contains("events:")) {
-                tempEvents = part;
-            }
-            if (part.contains("conditions:")) {
-                tempConditions = part;
-            }
-        }
-        // make them final
-        tag        = tempTag;
-        events     = tempEvents;
-        conditions = tempConditions;
+        String rawEvents = instruction.getOptional("events"),
+               rawConditions = instruction.getOptional("conditions");
+        tag        = instruction.getLabel() == null ? "" : instruction.getLabel();
+        events     = rawEvents == null ? "" : "events:" + rawEvents;
+        conditions = rawConditions == null ? "" : "conditions:" + rawConditions;
     }
 
     /**
      * This method fires events for the objective and removes it from player's
      * list of active objectives. Use it when you detect that the objective has
-     * been completed. Remember to unregister all Listeners you registered!
+     * been completed. Event handlers are unregistered automatically.
      */
     protected final void completeObjective() {
         Debug.info("Objective \"" + tag + "\" has been completed for player "
         	+ playerID + ", firing final events.");
-        // split instructions
-        String[] parts = instructions.split(" ");
-        String rawEvents = null;
-        // find part with events
-        for (String part : parts) {
-            if (part.contains("events:")) {
-                // extract events
-                rawEvents = part.substring(7);
-                break;
-            }
-        }
-        // if there are any events, do something with them
-        if (rawEvents != null && !rawEvents.equalsIgnoreCase("")) {
-            // split them to separate ids
-            final String[] events = rawEvents.split(",");
+        // if there are any events, fire them in the next tick
+        final EventRef[] events = instruction.getEventRefs();
+        if (events.length > 0) {
             new BukkitRunnable() {
                 @Override
                 public void run() {
                     // fire all events
-                    for (String eventID : events) {
-                        if (!eventID.contains(".")) {
-                            Debug.error("Package not specified for event " + eventID);
-                            continue;
-                        }
-                        BetonQuest.event(playerID, eventID);
+                    for (EventRef event : events) {
+                        event.fire(playerID);
                     }
                 }
             }.runTask(BetonQuest.getInstance());
@@ -144,43 +138,36 @@ public abstract class Objective {
      * @return if all conditions of this objective has been met
      */
     protected final boolean checkConditions() {
-        Debug.info("Condition check in \"" + tag + "\" objective for player "
-                + playerID);
-        // split instructions
-        String[] parts = instructions.split(" ");
-        // find part with conditions
-        String rawConditions = null;
-        for (String part : parts) {
-            if (part.contains("conditions:")) {
-                // extract conditions
-                rawConditions = part.substring(11);
-                break;
-            }
+        if (Debug.debugging()) {
+            Debug.info("Condition check in \"" + tag + "\" objective for player "
+                    + playerID);
         }
-        // if there are any conditions, do something with them
-        if (rawConditions != null && !rawConditions.equalsIgnoreCase("")) {
-            // split them to separate ids
-            String[] conditions = rawConditions.split(",");
-            // if some condition is not met, return false
-            for (String conditionID : conditions) {
-                if (!conditionID.contains(".")) {
-                    Debug.error("Package not specified for condition " + conditionID);
-                    continue;
-                }
-                if (!BetonQuest.condition(playerID, conditionID)) {
-                    return false;
-                }
+        // if some condition is not met, return false
+        for (ConditionRef condition : instruction.getConditionRefs()) {
+            if (!condition.check(playerID)) {
+                return false;
             }
         }
         // if there are no conditions or all of them are met return true
         return true;
     }
 
+    /**
+     * This method is called by the plugin when the objective is started,
+     * after it was added to player's list of active objectives. Override it
+     * if the objective needs to register itself somewhere, so it's not done
+     * for objectives which could not be started.
+     */
+    public void start() {
+    }
+
     /**
      * This method is called by the plugin when the objective needs to be
-     * deleted. You have to unregister all Listeners here.
+     * deleted. Event handlers are unregistered automatically, so you only
+     * need to override it if you have started something else, like a task.
      */
-    public abstract void delete();
+    public void delete() {
+    }
     
     /**
      * In this method you must return a valid instruction
@@ -17,9 +17,11 @@
  */
 package pl.betoncraft.betonquest.api;
 
-import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.config.Config;
 import pl.betoncraft.betonquest.config.ConfigPackage;
+import pl.betoncraft.betonquest.core.ConditionCache;
+import pl.betoncraft.betonquest.core.ConditionRef;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 import pl.betoncraft.betonquest.utils.Debug;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
@@ -40,10 +42,18 @@ public abstract class QuestEvent {
      * Stores instruction string for the event.
      */
     protected final String instructions;
+    /**
+     * Stores parsed instruction, with resolved condition IDs.
+     */
+    protected final Instruction instruction;
     /**
      * Stores conditions that must be met when firing this event
      */
     protected final String[] conditions;
+    /**
+     * Handles of conditions that must be met when firing this event
+     */
+    private final ConditionRef[] conditionRefs;
     /**
      * ConfigPackage in which this event is defined
      */
@@ -72,21 +82,24 @@ public abstract class QuestEvent {
      *            wrong.
      */
     public QuestEvent(String packName, String instructions) throws InstructionParseException {
-        this.instructions = instructions;
+        this(packName, new Instruction(packName, instructions));
+    }
+
+    /**
+     * Creates new instance of the event from the instruction already parsed
+     * by BetonQuest, so it isn't parsed again.
+     * 
+     * @param packName
+     *            name of the package in which this event is defined
+     * @param instruction
+     *            the parsed instruction
+     */
+    public QuestEvent(String packName, Instruction instruction) throws InstructionParseException {
+        this.instructions = instruction.getInstruction();
         this.pack = Config.getPackage(packName);
-        String[] tempConditions = new String[]{};
-        String[] parts = instructions.split(" ");
-        for (String part : parts) {
-            if (part.startsWith("event_conditions:")) {
-        	tempConditions = part.substring(17).split(",");
-            }
-        }
-        for (int i = 0; i < tempConditions.length; i++) {
-            if (!tempConditions[i].contains(".")) {
-        	tempConditions[i] = pack.getName() + "." + tempConditions[i];
-            }
-        }
-        conditions = tempConditions;
+        this.instruction = instruction;
+        conditions = instruction.getEventConditions();
+        conditionRefs = instruction.getEventConditionRefs();
     }
     
     /**
@@ -122,12 +135,18 @@ public abstract class QuestEvent {
 	    }
         }
         // check event conditions before firing the event
-	for (String condition : conditions) {
-	    if (!BetonQuest.condition(playerID, condition)) {
+	for (ConditionRef condition : conditionRefs) {
+	    if (!condition.check(playerID)) {
 		Debug.info("Event conditions were not met.");
 		return;
 	    }
 	}
 	run(playerID);
+        // the event could have changed anything conditions depend on
+        if (playerID == null) {
+            ConditionCache.invalidateAll();
+        } else {
+            ConditionCache.invalidate(playerID);
+        }
     }
 }
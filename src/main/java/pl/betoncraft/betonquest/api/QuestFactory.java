@@ -0,0 +1,46 @@
+/**
+ * BetonQuest - advanced quests for Bukkit
+ * Copyright (C) 2015  Jakub "Co0sh" Sapalski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.betoncraft.betonquest.api;
+
+import pl.betoncraft.betonquest.core.Instruction;
+import pl.betoncraft.betonquest.core.InstructionParseException;
+
+/**
+ * Creates instances of a condition, event or objective type. Types can be
+ * registered with their own factory, so creating an instance is a direct
+ * call instead of reflection. The instruction is parsed once by BetonQuest
+ * and should be passed to the (String, Instruction) constructor of the type.
+ * 
+ * @author Jakub Sapalski
+ */
+public interface QuestFactory<T> {
+
+    /**
+     * Creates a new instance.
+     * 
+     * @param first
+     *            name of the package for conditions and events, ID of the
+     *            player for objectives
+     * @param instruction
+     *            the parsed instruction
+     * @return the new instance
+     * @throws InstructionParseException
+     *             if the instruction is invalid
+     */
+    public T create(String first, Instruction instruction) throws InstructionParseException;
+}
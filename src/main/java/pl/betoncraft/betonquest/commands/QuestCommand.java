@@ -24,6 +24,7 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
@@ -38,12 +39,19 @@ import pl.betoncraft.betonquest.api.Objective;
 import pl.betoncraft.betonquest.config.Config;
 import pl.betoncraft.betonquest.config.ConfigAccessor;
 import pl.betoncraft.betonquest.config.ConfigPackage;
+import pl.betoncraft.betonquest.core.BackpackDisplay;
+import pl.betoncraft.betonquest.core.ConditionCache;
 import pl.betoncraft.betonquest.core.Conversation;
+import pl.betoncraft.betonquest.core.Definitions;
 import pl.betoncraft.betonquest.core.GlobalLocations;
+import pl.betoncraft.betonquest.core.ItemIdentifier;
 import pl.betoncraft.betonquest.core.Journal;
 import pl.betoncraft.betonquest.core.Point;
 import pl.betoncraft.betonquest.core.Pointer;
+import pl.betoncraft.betonquest.core.QuestItem;
+import pl.betoncraft.betonquest.core.SimpleTextOutput;
 import pl.betoncraft.betonquest.core.StaticEvents;
+import pl.betoncraft.betonquest.core.Worlds;
 import pl.betoncraft.betonquest.database.DatabaseHandler;
 import pl.betoncraft.betonquest.utils.Debug;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
@@ -61,6 +69,11 @@ public class QuestCommand implements CommandExecutor {
      */
     private BetonQuest instance = BetonQuest.getInstance();
     
+    /**
+     * Set while the plugin is being reloaded
+     */
+    private final AtomicBoolean reloading = new AtomicBoolean(false);
+    
     /**
      * Registers a new executor of the /q command
      */
@@ -171,9 +184,9 @@ public class QuestCommand implements CommandExecutor {
                     }.runTaskAsynchronously(instance);
                     break;
                 case "reload":
-                    // just reloading
-                    reloadPlugin();
-                    sender.sendMessage(Config.getMessage("reloaded"));
+                    // reloading in the background, the sender will be
+                    // notified when it's done
+                    reloadPlugin(sender);
                     break;
                 case "backup":
                     // do a full plugin backup
@@ -784,12 +797,72 @@ public class QuestCommand implements CommandExecutor {
     }
 
     /**
-     * Reloads the configuration.
+     * Reloads the configuration. Packages, events, conditions and
+     * conversations are loaded in the background; the new definitions are
+     * published on the main thread at once, and everything depending on them
+     * is restarted.
+     * 
+     * @param sender
+     *            sender of the command, notified when the reload is done
      */
-    private void reloadPlugin() {
+    private void reloadPlugin(final CommandSender sender) {
+        if (!reloading.compareAndSet(false, true)) {
+            Debug.info("The plugin is already being reloaded");
+            sender.sendMessage(Config.getMessage("reload_in_progress"));
+            return;
+        }
         // reload the configuration
         Debug.info("Reloading configuration");
-        new Config();
+        new Config(false);
+        // instructions are parsed on another thread, so everything they
+        // need from the server is taken here
+        Worlds.snapshot();
+        QuestItem.snapshot();
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                Definitions loaded = null;
+                try {
+                    loaded = instance.loadDefinitions(Config.loadPackages());
+                } catch (Throwable e) {
+                    e.printStackTrace();
+                    Debug.error("Could not reload the plugin: " + e);
+                }
+                final Definitions definitions = loaded;
+                new BukkitRunnable() {
+                    @Override
+                    public void run() {
+                        boolean success = definitions != null;
+                        try {
+                            if (success) {
+                                publishDefinitions(definitions);
+                            }
+                        } catch (Throwable e) {
+                            e.printStackTrace();
+                            Debug.error("Could not reload the plugin: " + e);
+                            success = false;
+                        } finally {
+                            reloading.set(false);
+                        }
+                        sender.sendMessage(Config.getMessage(success ? "reloaded" : "reload_failed"));
+                    }
+                }.runTask(instance);
+            }
+        }.runTaskAsynchronously(instance);
+    }
+
+    /**
+     * Publishes reloaded definitions and restarts everything which depends
+     * on them.
+     * 
+     * @param definitions
+     *            reloaded definitions
+     */
+    private void publishDefinitions(Definitions definitions) {
+        Definitions.publish(definitions);
+        ItemIdentifier.reload();
+        BackpackDisplay.reload();
+        SimpleTextOutput.reload();
         // load new static events
         new StaticEvents();
         // reload tellraw command executor
@@ -799,8 +872,8 @@ public class QuestCommand implements CommandExecutor {
         Debug.info("Restarting global locations");
         GlobalLocations.stop();
         new GlobalLocations().runTaskTimer(instance, 0, 20);
-        // load all events and conditions
-        instance.loadEventsAndConditions();
+        ConditionCache.stop();
+        new ConditionCache().runTaskTimer(instance, 0, 1);
         // update journals for every online player
         for (Player player : Bukkit.getOnlinePlayers()) {
             String playerID = PlayerConverter.getID(player);
@@ -23,6 +23,7 @@ import org.bukkit.event.HandlerList;
 import org.bukkit.event.player.PlayerEvent;
 
 import pl.betoncraft.betonquest.api.QuestEvent;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
@@ -35,9 +36,9 @@ public class BQEventSkript extends QuestEvent {
     
     private final String id;
     
-    public BQEventSkript(String packName, String instructions)
+    public BQEventSkript(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
         String [] parts = instructions.split(" ");
         if (parts.length < 2) {
             throw new InstructionParseException("Not enough arguments");
@@ -23,7 +23,6 @@ import org.bukkit.Bukkit;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.config.Config;
@@ -60,13 +59,8 @@ public class CitizensListener implements Listener {
             final String convName = parts[1];
             final String packName = parts[0];
             event.setCancelled(true);
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    new CitizensConversation(PlayerConverter.getID(event.getClicker()), packName,
-                            convName, event.getNPC().getEntity().getLocation(), event.getNPC());
-                }
-            }.runTaskAsynchronously(BetonQuest.getInstance());
+            new CitizensConversation(PlayerConverter.getID(event.getClicker()), packName,
+                    convName, event.getNPC().getEntity().getLocation(), event.getNPC());
         }
     }
 }
@@ -20,14 +20,27 @@ package pl.betoncraft.betonquest.compatibility;
 import java.util.ArrayList;
 import java.util.List;
 
+import net.citizensnpcs.api.event.NPCRightClickEvent;
+import net.elseland.xikage.MythicMobs.API.Events.MythicMobDeathEvent;
 import net.milkbowl.vault.economy.Economy;
 import net.milkbowl.vault.permission.Permission;
 
 import org.bukkit.Bukkit;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
 import org.bukkit.plugin.RegisteredServiceProvider;
 
 import pl.betoncraft.betonquest.BetonQuest;
+import pl.betoncraft.betonquest.api.Condition;
+import pl.betoncraft.betonquest.api.Objective;
+import pl.betoncraft.betonquest.api.QuestEvent;
+import pl.betoncraft.betonquest.api.QuestFactory;
 import pl.betoncraft.betonquest.compatibility.BQEventSkript.CustomEventForSkript;
+import pl.betoncraft.betonquest.core.Instruction;
+import pl.betoncraft.betonquest.core.InstructionParseException;
+import pl.betoncraft.betonquest.core.ObjectiveDispatcher;
+import pl.betoncraft.betonquest.core.ObjectiveDispatcher.PlayerExtractor;
 import ch.njol.skript.Skript;
 
 /**
@@ -46,16 +59,59 @@ public class Compatibility {
 
         // hook into MythicMobs
         if (Bukkit.getPluginManager().isPluginEnabled("MythicMobs")) {
-            instance.registerObjectives("mmobkill", MythicMobKillObjective.class);
-            instance.registerEvents("mspawnmob", MythicSpawnMobEvent.class);
+            instance.registerObjectives("mmobkill", new QuestFactory<Objective>() {
+                @Override
+                public Objective create(String playerID, Instruction instruction)
+                        throws InstructionParseException {
+                    return new MythicMobKillObjective(playerID, instruction);
+                }
+            });
+            ObjectiveDispatcher.registerExtractor(MythicMobDeathEvent.class, new PlayerExtractor() {
+                @Override
+                public List<Player> getPlayers(Event event) {
+                    List<Player> players = new ArrayList<>();
+                    LivingEntity killer = ((MythicMobDeathEvent) event).getKiller();
+                    if (killer instanceof Player) {
+                        players.add((Player) killer);
+                    }
+                    return players;
+                }
+            });
+            instance.registerEvents("mspawnmob", new QuestFactory<QuestEvent>() {
+                @Override
+                public QuestEvent create(String packName, Instruction instruction)
+                        throws InstructionParseException {
+                    return new MythicSpawnMobEvent(packName, instruction);
+                }
+            });
             hooked.add("MythicMobs");
         }
 
         // hook into Citizens
         if (Bukkit.getPluginManager().isPluginEnabled("Citizens")) {
             new CitizensListener();
-            instance.registerObjectives("npckill", NPCKillObjective.class);
-            instance.registerObjectives("npcinteract", NPCInteractObjective.class);
+            instance.registerObjectives("npckill", new QuestFactory<Objective>() {
+                @Override
+                public Objective create(String playerID, Instruction instruction)
+                        throws InstructionParseException {
+                    return new NPCKillObjective(playerID, instruction);
+                }
+            });
+            instance.registerObjectives("npcinteract", new QuestFactory<Objective>() {
+                @Override
+                public Objective create(String playerID, Instruction instruction)
+                        throws InstructionParseException {
+                    return new NPCInteractObjective(playerID, instruction);
+                }
+            });
+            ObjectiveDispatcher.registerExtractor(NPCRightClickEvent.class, new PlayerExtractor() {
+                @Override
+                public List<Player> getPlayers(Event event) {
+                    List<Player> players = new ArrayList<>();
+                    players.add(((NPCRightClickEvent) event).getClicker());
+                    return players;
+                }
+            });
             new CitizensWalkingListener();
             hooked.add("Citizens");
         }
@@ -73,9 +129,27 @@ public class Compatibility {
             if (economyProvider != null) {
                 economy = economyProvider.getProvider();
             }
-            instance.registerEvents("money", MoneyEvent.class);
-            instance.registerConditions("money", MoneyCondition.class);
-            instance.registerEvents("permission", PermissionEvent.class);
+            instance.registerEvents("money", new QuestFactory<QuestEvent>() {
+                @Override
+                public QuestEvent create(String packName, Instruction instruction)
+                        throws InstructionParseException {
+                    return new MoneyEvent(packName, instruction);
+                }
+            });
+            instance.registerConditions("money", new QuestFactory<Condition>() {
+                @Override
+                public Condition create(String packName, Instruction instruction)
+                        throws InstructionParseException {
+                    return new MoneyCondition(packName, instruction);
+                }
+            });
+            instance.registerEvents("permission", new QuestFactory<QuestEvent>() {
+                @Override
+                public QuestEvent create(String packName, Instruction instruction)
+                        throws InstructionParseException {
+                    return new PermissionEvent(packName, instruction);
+                }
+            });
             hooked.add("Vault");
         }
         
@@ -84,13 +158,25 @@ public class Compatibility {
             Skript.registerCondition(SkriptConditionBQ.class, "%player% (meet|meets) [betonquest] condition %string%");
             Skript.registerEffect(SkriptEffectBQ.class, "fire [betonquest] event %string% for %player%");
             Skript.registerEvent("betonquest", SkriptEventBQ.class, CustomEventForSkript.class, "[betonquest] event %string%");
-            BetonQuest.getInstance().registerEvents("skript", BQEventSkript.class);
+            BetonQuest.getInstance().registerEvents("skript", new QuestFactory<QuestEvent>() {
+                @Override
+                public QuestEvent create(String packName, Instruction instruction)
+                        throws InstructionParseException {
+                    return new BQEventSkript(packName, instruction);
+                }
+            });
             hooked.add("Skript");
         }
         
         // hook into WorldGuard
         if (Bukkit.getPluginManager().isPluginEnabled("WorldGuard")) {
-            BetonQuest.getInstance().registerConditions("region", RegionCondition.class);
+            BetonQuest.getInstance().registerConditions("region", new QuestFactory<Condition>() {
+                @Override
+                public Condition create(String packName, Instruction instruction)
+                        throws InstructionParseException {
+                    return new RegionCondition(packName, instruction);
+                }
+            });
             hooked.add("WorldGuard");
         }
 
@@ -18,6 +18,7 @@
 package pl.betoncraft.betonquest.compatibility;
 
 import pl.betoncraft.betonquest.api.Condition;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
@@ -30,9 +31,9 @@ public class MoneyCondition extends Condition {
 
     private final double amount;
 
-    public MoneyCondition(String packName, String instructions)
+    public MoneyCondition(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
         String[] parts = instructions.split(" ");
         if (parts.length < 2) {
             throw new InstructionParseException("Money amount not specified");
@@ -20,6 +20,7 @@ package pl.betoncraft.betonquest.compatibility;
 import org.bukkit.entity.Player;
 
 import pl.betoncraft.betonquest.api.QuestEvent;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
@@ -32,9 +33,9 @@ public class MoneyEvent extends QuestEvent {
     
     private final double amount;
 
-    public MoneyEvent(String packName, String instructions)
+    public MoneyEvent(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
         String[] parts = instructions.split(" ");
         if (parts.length < 2) {
             throw new InstructionParseException("Not enough arguments");
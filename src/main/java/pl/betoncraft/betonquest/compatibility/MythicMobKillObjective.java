@@ -19,14 +19,12 @@ package pl.betoncraft.betonquest.compatibility;
 
 import net.elseland.xikage.MythicMobs.API.Events.MythicMobDeathEvent;
 
-import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
-import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 
-import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.Objective;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
 /**
@@ -40,10 +38,10 @@ public class MythicMobKillObjective extends Objective implements Listener {
 
     /**
      * @param playerID
-     * @param instructions
+     * @param instruction
      */
-    public MythicMobKillObjective(String playerID, String instructions) {
-        super(playerID, instructions);
+    public MythicMobKillObjective(String playerID, Instruction instruction) {
+        super(playerID, instruction);
         String[] parts = instructions.split(" ");
         name = parts[1];
         for (String part : parts) {
@@ -52,7 +50,6 @@ public class MythicMobKillObjective extends Objective implements Listener {
                 break;
             }
         }
-        Bukkit.getPluginManager().registerEvents(this, BetonQuest.getInstance());
     }
 
     @EventHandler
@@ -66,7 +63,6 @@ public class MythicMobKillObjective extends Objective implements Listener {
         }
         if (amount <= 0) {
             completeObjective();
-            HandlerList.unregisterAll(this);
         }
     }
 
@@ -76,9 +72,4 @@ public class MythicMobKillObjective extends Objective implements Listener {
             + tag;
     }
 
-    @Override
-    public void delete() {
-        HandlerList.unregisterAll(this);
-    }
-
 }
@@ -19,12 +19,12 @@ package pl.betoncraft.betonquest.compatibility;
 
 import net.elseland.xikage.MythicMobs.Mobs.MobSpawner;
 
-import org.bukkit.Bukkit;
 import org.bukkit.Location;
-import org.bukkit.World;
 
 import pl.betoncraft.betonquest.api.QuestEvent;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
+import pl.betoncraft.betonquest.core.Worlds;
 
 /**
  * Spawns MythicMobs mobs
@@ -33,14 +33,15 @@ import pl.betoncraft.betonquest.core.InstructionParseException;
  */
 public class MythicSpawnMobEvent extends QuestEvent {
 
-    private final Location loc;
+    private final String world;
+    private final double x, y, z;
     private final String mob;
     private final int amount;
     private final int level;
 
-    public MythicSpawnMobEvent(String packName, String instructions)
+    public MythicSpawnMobEvent(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
         String[] parts = instructions.split(" ");
         if (parts.length < 4) {
             throw new InstructionParseException("Not enough arguments");
@@ -49,11 +50,10 @@ public class MythicSpawnMobEvent extends QuestEvent {
         if (coords.length < 4) {
             throw new InstructionParseException("Wrong location format");
         }
-        World world = Bukkit.getWorld(coords[3]);
-        if (world == null) {
+        world = coords[3];
+        if (!Worlds.exists(world)) {
             throw new InstructionParseException("World does not exist");
         }
-        double x, y, z;
         try {
             x = Double.parseDouble(coords[0]);
             y = Double.parseDouble(coords[1]);
@@ -61,7 +61,6 @@ public class MythicSpawnMobEvent extends QuestEvent {
         } catch (NumberFormatException e) {
             throw new InstructionParseException("Could not parse coordinates");
         }
-        loc = new Location(world, x, y, z);
         String[] mobParts = parts[2].split(":");
         if (mobParts.length != 2) {
             throw new InstructionParseException("Wrong mob format");
@@ -81,6 +80,10 @@ public class MythicSpawnMobEvent extends QuestEvent {
 
     @Override
     public void run(String playerID) {
+        Location loc = Worlds.location(world, x, y, z);
+        if (loc == null) {
+            return;
+        }
         for (int i = 0; i < amount; i++) {
             MobSpawner.SpawnMythicMob(mob, loc, level);
         }
@@ -19,14 +19,12 @@ package pl.betoncraft.betonquest.compatibility;
 
 import net.citizensnpcs.api.event.NPCRightClickEvent;
 
-import org.bukkit.Bukkit;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
-import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 
-import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.Objective;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.utils.Debug;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
@@ -40,8 +38,8 @@ public class NPCInteractObjective extends Objective implements Listener {
     private int id = -1;
     private boolean cancel = false;
 
-    public NPCInteractObjective(String playerID, String instructions) {
-        super(playerID, instructions);
+    public NPCInteractObjective(String playerID, Instruction instruction) {
+        super(playerID, instruction);
         String[] parts = instructions.split(" ");
         if (parts.length < 3) {
             Debug.error("Error in objective string: " + instructions);
@@ -56,7 +54,6 @@ public class NPCInteractObjective extends Objective implements Listener {
         if (parts[2].equalsIgnoreCase("cancel")) {
             cancel = true;
         }
-        Bukkit.getPluginManager().registerEvents(this, BetonQuest.getInstance());
     }
     
     @EventHandler(priority=EventPriority.LOWEST)
@@ -66,7 +63,6 @@ public class NPCInteractObjective extends Objective implements Listener {
             return;
         }
         if (checkConditions()) {
-            HandlerList.unregisterAll(this);
             if (cancel) {
                 event.setCancelled(true);
             }
@@ -79,9 +75,4 @@ public class NPCInteractObjective extends Objective implements Listener {
         return instructions;
     }
 
-    @Override
-    public void delete() {
-        HandlerList.unregisterAll(this);
-    }
-
 }
@@ -19,16 +19,14 @@ package pl.betoncraft.betonquest.compatibility;
 
 import net.citizensnpcs.api.event.NPCDeathEvent;
 
-import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
-import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
 import org.bukkit.event.entity.EntityDamageEvent.DamageCause;
 
-import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.Objective;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
 public class NPCKillObjective extends Objective implements Listener {
@@ -36,8 +34,8 @@ public class NPCKillObjective extends Objective implements Listener {
     private int ID;
     private int amount = 1;
 
-    public NPCKillObjective(String playerID, String instructions) {
-        super(playerID, instructions);
+    public NPCKillObjective(String playerID, Instruction instruction) {
+        super(playerID, instruction);
         String[] parts = instructions.split(" ");
         ID = Integer.parseInt(parts[1]);
         for (String part : parts) {
@@ -45,7 +43,6 @@ public class NPCKillObjective extends Objective implements Listener {
                 amount = Integer.parseInt(part.substring(7));
             }
         }
-        Bukkit.getPluginManager().registerEvents(this, BetonQuest.getInstance());
     }
 
     @EventHandler
@@ -64,7 +61,6 @@ public class NPCKillObjective extends Objective implements Listener {
         }
         if (amount <= 0) {
             completeObjective();
-            HandlerList.unregisterAll(this);
         }
     }
 
@@ -74,9 +70,4 @@ public class NPCKillObjective extends Objective implements Listener {
             + tag;
     }
 
-    @Override
-    public void delete() {
-        HandlerList.unregisterAll(this);
-    }
-
 }
@@ -19,6 +19,7 @@ package pl.betoncraft.betonquest.compatibility;
 
 import net.milkbowl.vault.permission.Permission;
 import pl.betoncraft.betonquest.api.QuestEvent;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
@@ -34,9 +35,9 @@ public class PermissionEvent extends QuestEvent {
     private final boolean add,
                           perm;
 
-    public PermissionEvent(String packName, String instructions)
+    public PermissionEvent(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
         String[] parts = instructions.split(" ");
         if (parts.length < 4) {
             throw new InstructionParseException("Not enough arguments");
@@ -17,8 +17,9 @@
  */
 package pl.betoncraft.betonquest.conditions;
 
-import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.Condition;
+import pl.betoncraft.betonquest.core.ConditionRef;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 
 /**
@@ -28,11 +29,11 @@ import pl.betoncraft.betonquest.core.InstructionParseException;
  */
 public class AlternativeCondition extends Condition {
 
-    private final String[] conditions;
+    private final ConditionRef[] conditions;
 
-    public AlternativeCondition(String packName, String instructions)
+    public AlternativeCondition(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
         String[] parts = instructions.split(" ");
         if (parts.length < 2) {
             throw new InstructionParseException("Conditions not defined");
@@ -43,13 +44,13 @@ public class AlternativeCondition extends Condition {
                 tempConditions[i] = packName + "." + tempConditions[i];
             }
         }
-        conditions = tempConditions;
+        conditions = ConditionRef.get(tempConditions);
     }
 
     @Override
     public boolean check(String playerID) {
-        for (String condition : conditions) {
-            if (BetonQuest.condition(playerID, condition)) {
+        for (ConditionRef condition : conditions) {
+            if (condition.check(playerID)) {
                 return true;
             }
         }
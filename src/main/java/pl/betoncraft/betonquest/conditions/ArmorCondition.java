@@ -20,6 +20,7 @@ package pl.betoncraft.betonquest.conditions;
 import org.bukkit.inventory.ItemStack;
 
 import pl.betoncraft.betonquest.api.Condition;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 import pl.betoncraft.betonquest.core.QuestItem;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
@@ -33,9 +34,10 @@ public class ArmorCondition extends Condition {
 
     private final QuestItem item;
 
-    public ArmorCondition(String packName, String instructions)
+    public ArmorCondition(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
+        cacheable = true;
         String[] parts = instructions.split(" ");
         if (parts.length < 2) {
             throw new InstructionParseException("Armor not defined in: "
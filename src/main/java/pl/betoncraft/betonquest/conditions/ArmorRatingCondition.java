@@ -22,6 +22,7 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.PlayerInventory;
 
 import pl.betoncraft.betonquest.api.Condition;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
@@ -34,9 +35,10 @@ public class ArmorRatingCondition extends Condition {
 
     private final int required;
 
-    public ArmorRatingCondition(String packName, String instructions)
+    public ArmorRatingCondition(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
+        cacheable = true;
 
         String[] parts = instructions.split(" ");
 
@@ -20,6 +20,7 @@ package pl.betoncraft.betonquest.conditions;
 import org.bukkit.potion.PotionEffectType;
 
 import pl.betoncraft.betonquest.api.Condition;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
@@ -32,8 +33,9 @@ public class EffectCondition extends Condition {
 
     private final PotionEffectType type;
 
-    public EffectCondition(String packName, String instructions) throws InstructionParseException {
-        super(packName, instructions);
+    public EffectCondition(String packName, Instruction instruction) throws InstructionParseException {
+        super(packName, instruction);
+        cacheable = true;
         String[] parts = instructions.split(" ");
         if (parts.length < 2) {
             throw new InstructionParseException("Effect type not defined");
@@ -20,6 +20,7 @@ package pl.betoncraft.betonquest.conditions;
 import org.bukkit.inventory.ItemStack;
 
 import pl.betoncraft.betonquest.api.Condition;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
@@ -32,9 +33,10 @@ public class EmptySlotsCondition extends Condition {
 
     private final int needed;
 
-    public EmptySlotsCondition(String packName, String instructions)
+    public EmptySlotsCondition(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
+        cacheable = true;
         String[] parts = instructions.split(" ");
         if (parts.length < 2) {
             throw new InstructionParseException(
@@ -18,6 +18,7 @@
 package pl.betoncraft.betonquest.conditions;
 
 import pl.betoncraft.betonquest.api.Condition;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
@@ -30,9 +31,10 @@ public class ExperienceCondition extends Condition {
 
     private final int experience;
 
-    public ExperienceCondition(String packName, String instructions)
+    public ExperienceCondition(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
+        cacheable = true;
         String[] parts = instructions.split(" ");
         if (parts.length < 2) {
             throw new InstructionParseException("Experience level not defined");
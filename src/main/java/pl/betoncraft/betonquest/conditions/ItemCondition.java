@@ -20,13 +20,12 @@ package pl.betoncraft.betonquest.conditions;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.bukkit.inventory.ItemStack;
-
 import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.Condition;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
+import pl.betoncraft.betonquest.core.ItemIndex;
 import pl.betoncraft.betonquest.core.QuestItem;
-import pl.betoncraft.betonquest.utils.PlayerConverter;
 
 /**
  * Requires the player to have specified amount of items in the inventory
@@ -37,9 +36,10 @@ public class ItemCondition extends Condition {
 
     private final List<Item> questItems = new ArrayList<>();
 
-    public ItemCondition(String packName, String instructions)
+    public ItemCondition(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
+        cacheable = true;
         String[] parts = instructions.split(" ");
         if (parts.length < 2) {
             throw new InstructionParseException("Items not defined");
@@ -68,42 +68,13 @@ public class ItemCondition extends Condition {
 
     @Override
     public boolean check(String playerID) {
-        int counter = 0;
+        ItemIndex index = BetonQuest.getInstance().getDBHandler(playerID).getItemIndex();
         for (Item questItem : questItems) {
-            int amount = questItem.getAmount();
-            ItemStack[] inventoryItems = PlayerConverter.getPlayer(playerID).getInventory().getContents();
-            for (ItemStack item : inventoryItems) {
-                if (item == null) {
-                    continue;
-                }
-                if (!questItem.isItemEqual(item)) {
-                    continue;
-                }
-                amount -= item.getAmount();
-                if (amount <= 0) {
-                    counter++;
-                    break;
-                }
+            if (index.count(questItem.getQuestItem()) < questItem.getAmount()) {
+                return false;
             }
-            List<ItemStack> backpackItems = BetonQuest.getInstance().getDBHandler(playerID).getBackpack();
-            for (ItemStack item : backpackItems) {
-                if (item == null) {
-                    continue;
-                }
-                if (!questItem.isItemEqual(item)) {
-                    continue;
-                }
-                amount -= item.getAmount();
-                if (amount <= 0) {
-                    counter++;
-                    break;
-                }
-            }
-        }
-        if (counter == questItems.size()) {
-            return true;
         }
-        return false;
+        return true;
     }
     
     private class Item {
@@ -116,8 +87,8 @@ public class ItemCondition extends Condition {
             this.amount = amount;
         }
 
-        public boolean isItemEqual(ItemStack item) {
-            return questItem.equalsI(item);
+        public QuestItem getQuestItem() {
+            return questItem;
         }
 
         public int getAmount() {
@@ -17,13 +17,13 @@
  */
 package pl.betoncraft.betonquest.conditions;
 
-import org.bukkit.Bukkit;
 import org.bukkit.Location;
-import org.bukkit.World;
 import org.bukkit.entity.Player;
 
 import pl.betoncraft.betonquest.api.Condition;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
+import pl.betoncraft.betonquest.core.Worlds;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
 /**
@@ -33,12 +33,14 @@ import pl.betoncraft.betonquest.utils.PlayerConverter;
  */
 public class LocationCondition extends Condition {
 
-    private final Location location;
+    private final String   world;
+    private final double   x, y, z;
     private final double   distance;
 
-    public LocationCondition(String packName, String instructions)
+    public LocationCondition(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
+        cacheable = true;
         String[] parts = instructions.split(" ");
         if (parts.length < 2) {
             throw new InstructionParseException("Not enough arguments");
@@ -47,12 +49,11 @@ public class LocationCondition extends Condition {
         if (partsOfLoc.length != 5) {
             throw new InstructionParseException("Wrong location format");
         }
-        World world = Bukkit.getWorld(partsOfLoc[3]);
-        if (world == null) {
+        world = partsOfLoc[3];
+        if (!Worlds.exists(world)) {
             throw new InstructionParseException("World " + partsOfLoc[3]
                     + " does not exists.");
         }
-        double x, y, z;
         try {
             x = Double.parseDouble(partsOfLoc[0]);
             y = Double.parseDouble(partsOfLoc[1]);
@@ -62,17 +63,20 @@ public class LocationCondition extends Condition {
             throw new InstructionParseException(
                     "Could not parse location coordinates");
         }
-        location = new Location(world, x, y, z);
     }
 
     @Override
     public boolean check(String playerID) {
         Player player = PlayerConverter.getPlayer(playerID);
-        if (!location.getWorld().equals(player.getWorld())) {
+        Location location = player.getLocation();
+        // worlds are found by their names ignoring the case, like in Bukkit
+        if (!location.getWorld().getName().equalsIgnoreCase(world)) {
             return false;
         }
-        if (player.getLocation().distanceSquared(location) <= distance
-                * distance) {
+        double dx = location.getX() - x,
+               dy = location.getY() - y,
+               dz = location.getZ() - z;
+        if (dx * dx + dy * dy + dz * dz <= distance * distance) {
             return true;
         }
         return false;
@@ -19,8 +19,9 @@ package pl.betoncraft.betonquest.conditions;
 
 import java.util.ArrayList;
 
-import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.Condition;
+import pl.betoncraft.betonquest.core.ConditionRef;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 import pl.betoncraft.betonquest.utils.Utils;
 
@@ -33,14 +34,14 @@ import pl.betoncraft.betonquest.utils.Utils;
 public class PartyCondition extends Condition {
 
     private final double   distance;
-    private final String[] conditions;
-    private final String[] everyone;
-    private final String[] anyone;
+    private final ConditionRef[] conditions;
+    private final ConditionRef[] everyone;
+    private final ConditionRef[] anyone;
     private final int      count;
 
-    public PartyCondition(String packName, String instructions)
+    public PartyCondition(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
         String[] parts = instructions.split(" ");
         if (parts.length < 4) {
             throw new InstructionParseException("Not enough arguments");
@@ -52,12 +53,13 @@ public class PartyCondition extends Condition {
             throw new InstructionParseException("Could not parse distance");
         }
         // next are conditions
-        conditions = parts[2].split(",");
-        for (int i = 0; i < conditions.length; i++) {
-            if (!conditions[i].contains(".")) {
-                conditions[i] = pack.getName() + "." + conditions[i];
+        String[] tempConditions = parts[2].split(",");
+        for (int i = 0; i < tempConditions.length; i++) {
+            if (!tempConditions[i].contains(".")) {
+                tempConditions[i] = pack.getName() + "." + tempConditions[i];
             }
         }
+        conditions = ConditionRef.get(tempConditions);
         // now time for everything else
         String[] tempEvery = new String[] {}, tempAny = new String[] {};
         int tempCount = 0;
@@ -85,8 +87,8 @@ public class PartyCondition extends Condition {
                 }
             }
         }
-        everyone = tempEvery;
-        anyone = tempAny;
+        everyone = ConditionRef.get(tempEvery);
+        anyone = ConditionRef.get(tempAny);
         count = tempCount;
         // everything loaded
     }
@@ -95,23 +97,23 @@ public class PartyCondition extends Condition {
     public boolean check(String playerID) {
         // get the party
         ArrayList<String> members =
-                Utils.getParty(playerID, distance, pack.getName(), conditions);
+                Utils.getParty(playerID, distance, conditions);
         // check every condition against every player - all of them must meet
         // those conditions
-        for (String condition : everyone) {
+        for (ConditionRef condition : everyone) {
             for (String memberID : members) {
                 // if this condition wasn't met by someone, return false
-                if (!BetonQuest.condition(memberID, condition)) {
+                if (!condition.check(memberID)) {
                     return false;
                 }
             }
         }
         // check every condition against every player - at least one of them
         // must meet each of those
-        for (String condition : anyone) {
+        for (ConditionRef condition : anyone) {
             boolean met = false;
             for (String memberID : members) {
-                if (BetonQuest.condition(memberID, condition)) {
+                if (condition.check(memberID)) {
                     met = true;
                     break;
                 }
@@ -19,6 +19,7 @@ package pl.betoncraft.betonquest.conditions;
 
 import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.Condition;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 import pl.betoncraft.betonquest.core.Point;
 
@@ -33,9 +34,10 @@ public class PointCondition extends Condition {
     private final String category;
     private final int    count;
 
-    public PointCondition(String packName, String instructions)
+    public PointCondition(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
+        cacheable = true;
         String[] parts = instructions.split(" ");
         if (parts.length < 3) {
             throw new InstructionParseException("Not enough arguments");
@@ -50,13 +52,8 @@ public class PointCondition extends Condition {
 
     @Override
     public boolean check(String playerID) {
-        for (Point point : BetonQuest.getInstance().getDBHandler(playerID)
-                .getPoints()) {
-            if (point.getCategory().equalsIgnoreCase(category)) {
-                return point.getCount() >= count;
-            }
-        }
-        return false;
+        Point point = BetonQuest.getInstance().getDBHandler(playerID).getPoint(category);
+        return point != null && point.getCount() >= count;
     }
 
 }
@@ -21,6 +21,7 @@ package pl.betoncraft.betonquest.conditions;
 import java.util.Random;
 
 import pl.betoncraft.betonquest.api.Condition;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 
 /**
@@ -33,9 +34,9 @@ public class RandomCondition extends Condition {
     private final int valueMax;
     private final int rangeOfRandom;
 
-    public RandomCondition(String packName, String instructions)
+    public RandomCondition(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
         String[] values = null;
         String[] parts = instructions.split(" ");
         if (parts.length < 2) {
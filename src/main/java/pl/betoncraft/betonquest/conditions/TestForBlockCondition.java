@@ -17,14 +17,13 @@
  */
 package pl.betoncraft.betonquest.conditions;
 
-import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
-import org.bukkit.World;
-import org.bukkit.block.Block;
 
 import pl.betoncraft.betonquest.api.Condition;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
+import pl.betoncraft.betonquest.core.Worlds;
 
 /**
  * Checks block at specified location against specified Material
@@ -33,12 +32,13 @@ import pl.betoncraft.betonquest.core.InstructionParseException;
  */
 public class TestForBlockCondition extends Condition {
 
-    private final Block block;
+    private final String world;
+    private final double x, y, z;
     private final Material material;
     
-    public TestForBlockCondition(String packName, String instructions)
+    public TestForBlockCondition(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
         String[] parts = instructions.split(" ");
         if (parts.length < 3) {
             throw new InstructionParseException("Not enough arguments");
@@ -47,7 +47,6 @@ public class TestForBlockCondition extends Condition {
         if (location.length != 4) {
             throw new InstructionParseException("Wrong location format");
         }
-        double y = 0, x = 0, z = 0;
         try {
             x = Double.parseDouble(location[0]);
             y = Double.parseDouble(location[1]);
@@ -55,14 +54,10 @@ public class TestForBlockCondition extends Condition {
         } catch (NumberFormatException e) {
             throw new InstructionParseException("Cannot parse coordinates");
         }
-        World world = Bukkit.getWorld(location[3]);
-        if (world == null) {
+        world = location[3];
+        if (!Worlds.exists(world)) {
             throw new InstructionParseException("World does not exist");
         }
-        block = new Location(world, x, y, z).getBlock();
-        if (block == null) {
-            throw new InstructionParseException("Error with the block");
-        }
         material = Material.matchMaterial(parts[2]);
         if (material == null) {
             throw new InstructionParseException("Undefined material type");
@@ -71,7 +66,8 @@ public class TestForBlockCondition extends Condition {
 
     @Override
     public boolean check(String playerID) {
-        return block.getType().equals(material);
+        Location location = Worlds.location(world, x, y, z);
+        return location != null && location.getBlock().getType().equals(material);
     }
 
 }
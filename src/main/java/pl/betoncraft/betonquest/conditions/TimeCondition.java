@@ -18,6 +18,7 @@
 package pl.betoncraft.betonquest.conditions;
 
 import pl.betoncraft.betonquest.api.Condition;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
@@ -31,9 +32,9 @@ public class TimeCondition extends Condition {
     private final double timeMin;
     private final double timeMax;
 
-    public TimeCondition(String packName, String instructions)
+    public TimeCondition(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
         String[] parts = instructions.split(" ");
         String[] theTime = null;
         if (parts.length < 2) {
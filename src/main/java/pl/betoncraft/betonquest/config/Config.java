@@ -22,13 +22,21 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
 
 import org.bukkit.configuration.ConfigurationSection;
 
 import pl.betoncraft.betonquest.BetonQuest;
+import pl.betoncraft.betonquest.core.Definitions;
 import pl.betoncraft.betonquest.utils.Debug;
+import pl.betoncraft.betonquest.utils.Utils;
 
 /**
  * Handles the configuration of the plugin
@@ -43,16 +51,25 @@ public class Config {
     
     private static ConfigAccessor messages;
     
-    private static HashMap<String, ConfigPackage> packages;
-    
     private static String lang;
     
     private File root;
 
     /**
-     * Creates new instance of the Config handler
+     * Creates new instance of the Config handler and loads all packages
      */
     public Config() {
+        this(true);
+    }
+
+    /**
+     * Creates new instance of the Config handler
+     * 
+     * @param loadPackages
+     *          whether the packages should be loaded and published; if not,
+     *          they can be loaded later with {@link #loadPackages()}
+     */
+    public Config(boolean loadPackages) {
         
         instance = this;
         plugin = BetonQuest.getInstance();
@@ -73,17 +90,77 @@ public class Config {
         createPackage("default");
         
         // load packages
-        packages = new HashMap<>();
-        for (File file : root.listFiles()) {
+        if (loadPackages) {
+            Definitions.publish(loadPackages());
+        }
+    }
+    
+    /**
+     * Loads all packages in parallel, without publishing them. It can be
+     * called on any thread.
+     * 
+     * @return definitions with loaded packages, but without events,
+     *          conditions and conversations
+     */
+    public static Definitions loadPackages() {
+        long start = System.nanoTime();
+        List<Callable<ConfigPackage>> tasks = new ArrayList<>();
+        for (final File file : instance.root.listFiles()) {
             // get directories which can be quest packages
             if (!file.isDirectory()) continue;
             if (file.getName().equals("logs") || file.getName().equals("backups") || file.getName().equals("conversations")) continue;
-            // initialize ConfigPackage objects and if they are valid place them in the map
-            ConfigPackage pack = new ConfigPackage(file);
+            // initialize ConfigPackage objects
+            tasks.add(new Callable<ConfigPackage>() {
+                @Override
+                public ConfigPackage call() {
+                    return new ConfigPackage(file);
+                }
+            });
+        }
+        // place valid packages in the map
+        HashMap<String, ConfigPackage> packages = new HashMap<>();
+        for (ConfigPackage pack : Utils.invokeAll(tasks)) {
             if (pack.isValid()) {
-                packages.put(file.getName(), pack);
+                packages.put(pack.getName(), pack);
             }
         }
+        Debug.broadcast("There are " + packages.size() + " packages loaded in "
+                + (System.nanoTime() - start) / 1000000 + " ms.");
+        // index conversations assigned to NPCs
+        return new Definitions(packages, loadNpcs(packages));
+    }
+    
+    /**
+     * Indexes NPC assignments from the packages. NPCs assigned in more than
+     * one package are reported and the assignment from the first package
+     * (in alphabetical order) is used.
+     * 
+     * @param packages
+     *          packages by their names
+     * @return IDs of conversations by lower case NPC IDs
+     */
+    private static Map<String, String> loadNpcs(Map<String, ConfigPackage> packages) {
+        HashMap<String, String> map = new HashMap<>();
+        HashMap<String, String> sources = new HashMap<>();
+        for (String packName : new TreeSet<>(packages.keySet())) {
+            ConfigPackage pack = packages.get(packName);
+            ConfigurationSection assignments = pack.getMain().getConfig().getConfigurationSection("npcs");
+            if (assignments == null) continue;
+            for (String assignment : assignments.getKeys(false)) {
+                String key = assignment.toLowerCase(Locale.ROOT);
+                String conversation = packName + "." + assignments.getString(assignment);
+                String previous = map.get(key);
+                if (previous != null) {
+                    Debug.error("NPC " + assignment + " is assigned to " + previous + " in package "
+                            + sources.get(key) + " and to " + conversation + " in package "
+                            + packName + ", using the first one!");
+                    continue;
+                }
+                map.put(key, conversation);
+                sources.put(key, packName);
+            }
+        }
+        return map;
     }
 
     /**
@@ -190,14 +267,14 @@ public class Config {
      * @return the ConfigPackage object representing this package
      */
     public static ConfigPackage getPackage(String name) {
-        return packages.get(name);
+        return Definitions.get().getPackage(name);
     }
     
     /**
      * @return the set of names of valid packages
      */
     public static Set<String> getPackageNames() {
-        return packages.keySet();
+        return Definitions.get().getPackageNames();
     }
     
     /**
@@ -216,7 +293,7 @@ public class Config {
         } else if (main.equals("messages")) {
             return messages.getConfig().getString(address.substring(9, address.length()));
         } else {
-            ConfigPackage pack = packages.get(main);
+            ConfigPackage pack = Definitions.get().getPackage(main);
             return pack.getRawString(address.substring(main.length() + 1, address.length()));
         }
     }
@@ -242,7 +319,7 @@ public class Config {
             messages.saveConfig();
             return true;
         } else {
-            ConfigPackage pack = packages.get(main);
+            ConfigPackage pack = Definitions.get().getPackage(main);
             return pack.setString(address.substring(main.length()+1, address.length()), value);
         }
     }
@@ -255,20 +332,13 @@ public class Config {
     }
 
     /**
+     * @param value
+     *          ID of the NPC, case insensitive
      * @return the ID of the conversation assigned to this NPC
      *         or null if there isn't one 
      */
     public static String getNpc(String value) {
-        // load npc assignments from all packages
-        for (String packName : packages.keySet()) {
-            ConfigPackage pack = packages.get(packName);
-            ConfigurationSection assignemnts = pack.getMain().getConfig().getConfigurationSection("npcs");
-            for (String assignment : assignemnts.getKeys(false)) {
-                if (assignment.equalsIgnoreCase(value)) {
-                    return packName + "." + assignemnts.getString(assignment);
-                }
-            }
-        }
-        return null;
+        if (value == null) return null;
+        return Definitions.get().getNpc(value);
     }
 }
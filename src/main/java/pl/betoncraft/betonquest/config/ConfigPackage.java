@@ -18,19 +18,44 @@
 package pl.betoncraft.betonquest.config;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.bukkit.configuration.ConfigurationSection;
 
 import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.utils.Debug;
 
 /**
- * Holds configuration files of the package
+ * Holds configuration files of the package. Variables are resolved once
+ * when the package is loaded, and strings are cached by their addresses
+ * after the first read.
  * 
  * @author Jakub Sapalski
  */
 public class ConfigPackage {
-    
+
+    /**
+     * Location variable with a vector, e.g. "$loc$->(1,2,3)"
+     */
+    private static final Pattern VECTOR = Pattern.compile(
+            "^\\$([a-zA-Z0-9]+)\\$->\\((\\-?\\d+),(\\-?\\d+),(\\-?\\d+)\\)$");
+    /**
+     * Location, e.g. "100;200;300;world"
+     */
+    private static final Pattern LOCATION = Pattern.compile("^\\-?\\d+;\\-?\\d+;\\-?\\d+;.+$");
+    /**
+     * Marks addresses without a value in the caches
+     */
+    private static final String MISSING = new String();
+
     private String name;
     private File folder;
 
@@ -41,6 +66,19 @@ public class ConfigPackage {
     private ConfigAccessor items;
     private HashMap<String, ConfigAccessor> conversations;
 
+    /**
+     * Resolved values of variables, by their names
+     */
+    private volatile Map<String, String> variables = Collections.emptyMap();
+    /**
+     * Raw strings by their addresses
+     */
+    private final ConcurrentHashMap<String, String> rawCache = new ConcurrentHashMap<>();
+    /**
+     * Strings with inserted variables by their addresses
+     */
+    private final ConcurrentHashMap<String, String> cache = new ConcurrentHashMap<>();
+
     /**
      * Loads a package from specified directory. It doesn't have to be valid package directory.
      */
@@ -86,6 +124,15 @@ public class ConfigPackage {
             }
         }
         if (isValid()) {
+            // parse all files now, while the package is loaded
+            events.getConfig();
+            conditions.getConfig();
+            journal.getConfig();
+            items.getConfig();
+            for (ConfigAccessor conv : conversations.values()) {
+                conv.getConfig();
+            }
+            resolveVariables();
             Debug.broadcast("Package " + pack.getName() + " loaded!");
         } else {
             Debug.error(pack.getName() + " is not a valid package!");
@@ -112,6 +159,23 @@ public class ConfigPackage {
      * @return the raw string
      */
     public String getRawString(String address) {
+        String value = rawCache.get(address);
+        if (value == null) {
+            value = readRawString(address);
+            rawCache.put(address, value == null ? MISSING : value);
+            return value;
+        }
+        return value == MISSING ? null : value;
+    }
+
+    /**
+     * Reads the raw string from the configuration file.
+     * 
+     * @param address
+     *          address of the string
+     * @return the raw string
+     */
+    private String readRawString(String address) {
         // prepare the address
         String[] parts = address.split("\\.");
         if (parts.length < 2) {
@@ -171,97 +235,210 @@ public class ConfigPackage {
      * @return the string
      */
     public String getString(String address) {
-        String value = getRawString(address);
+        String value = cache.get(address);
         if (value == null) {
-            return null;
+            String raw = getRawString(address);
+            value = raw == null ? null : insertVariables(raw, address);
+            cache.put(address, value == null ? MISSING : value);
+            return value;
         }
-        if (!value.contains("$")) {
+        return value == MISSING ? null : value;
+    }
+
+    /**
+     * Inserts resolved variables into the string.
+     * 
+     * @param value
+     *          the raw string
+     * @param address
+     *          address of the string, used in messages
+     * @return the string with variables or null if some variable is not
+     *          defined
+     */
+    private String insertVariables(String value, String address) {
+        if (value.indexOf('$') < 0) {
             return value;
         }
-        // handle "$this$" variables
-        value = value.replace("$this$", name);
-        // handle the rest
+        Map<String, String> vars = variables;
+        StringBuilder builder = new StringBuilder(value.length() + 16);
+        int index = 0;
         while (true) {
-            int start = value.indexOf('$');
-            int end = value.indexOf('$', start+1);
-            if (start == -1 || end == -1) {
+            int start = value.indexOf('$', index);
+            int end = start < 0 ? -1 : value.indexOf('$', start + 1);
+            if (start < 0 || end < 0) {
                 break;
             }
-            String varName = value.substring(start+1, end);
-            String varVal = main.getConfig().getString("variables." + varName);
+            String varName = value.substring(start + 1, end);
+            String varVal = varName.equals("this") ? name : vars.get(varName);
             if (varVal == null) {
                 Debug.error(String.format(
                         "Variable %s not defined in package %s",
                         varName, name));
                 return null;
-            } else if (varVal.matches(
-                    "^\\$[a-zA-Z0-9]+\\$->\\(\\-?\\d+,\\-?\\d+,\\-?\\d+\\)$")) {
-                // handle location variables
-                // parse the inner location
-                String innerVarName = varVal.substring(1, varVal.indexOf('$', 2));
-                String innerVarVal = main.getConfig().getString("variables."
-                        + innerVarName);
-                if (innerVarVal == null) {
-                    Debug.error(String.format(
-                            "Location variable %s is not defined, in variable"
-                            + " %s, package %s.",
-                            innerVarName, varName, name));
-                    return null;
-                }
-                if (!innerVarVal.matches("^\\-?\\d+;\\-?\\d+;\\-?\\d+;.+$")) {
-                    Debug.error(String.format(
-                            "Inner variable %s is not valid location, in"
-                            + " variable %s, package %s.",
-                            innerVarName, varName, name));
-                    return null;
+            }
+            builder.append(value, index, start).append(varVal);
+            index = end + 1;
+        }
+        builder.append(value, index, value.length());
+        String result = builder.toString();
+        Debug.info(String.format("Variables in %s changed, result: %s",
+                address, result));
+        return result;
+    }
+
+    /**
+     * Resolves all variables defined in main.yml, so inserting them is just
+     * a lookup. Variables which are not defined, reference each other in a
+     * cycle or are not valid location variables are reported and left out.
+     */
+    private void resolveVariables() {
+        HashMap<String, String> raw = new HashMap<>();
+        ConfigurationSection section = main.getConfig().getConfigurationSection("variables");
+        if (section != null) {
+            for (String key : section.getKeys(false)) {
+                String value = section.getString(key);
+                if (value != null) {
+                    raw.put(key, value);
                 }
-                double x1, y1, z1;
-                String rest;
-                try {
-                    int i = innerVarVal.indexOf(';');
-                    x1 = Double.parseDouble(innerVarVal.substring(0, i));
-                    int j = innerVarVal.indexOf(';', i+1);
-                    y1 = Double.parseDouble(innerVarVal.substring(i+1, j));
-                    int k = innerVarVal.indexOf(';', j+1);
-                    z1 = Double.parseDouble(innerVarVal.substring(j+1, k));
-                    // rest is world + possible other arguments
-                    rest = innerVarVal.substring(k, innerVarVal.length());
-                } catch (NumberFormatException e) {
-                    Debug.error(String.format("Could not parse coordinates in "
-                            + "inner variable %s in variable %s in package %s",
-                            innerVarName, varName, name));
-                    return null;
+            }
+        }
+        HashMap<String, String> resolved = new HashMap<>();
+        List<String> resolving = new ArrayList<>();
+        for (String varName : raw.keySet()) {
+            resolveVariable(varName, raw, resolved, resolving);
+        }
+        variables = Collections.unmodifiableMap(resolved);
+    }
+
+    /**
+     * Resolves the variable and the variables it references.
+     * 
+     * @param varName
+     *          name of the variable
+     * @param raw
+     *          raw values of variables
+     * @param resolved
+     *          already resolved values, the result is put here
+     * @param resolving
+     *          names of variables being resolved, to detect cycles
+     * @return the resolved value or null if the variable is invalid
+     */
+    private String resolveVariable(String varName, Map<String, String> raw,
+            Map<String, String> resolved, List<String> resolving) {
+        if (varName.equals("this")) {
+            return name;
+        }
+        if (resolved.containsKey(varName)) {
+            return resolved.get(varName);
+        }
+        String varVal = raw.get(varName);
+        if (varVal == null) {
+            Debug.error(String.format(
+                    "Variable %s not defined in package %s",
+                    varName, name));
+            resolved.put(varName, null);
+            return null;
+        }
+        if (resolving.contains(varName)) {
+            StringBuilder cycle = new StringBuilder();
+            for (String element : resolving.subList(resolving.indexOf(varName), resolving.size())) {
+                cycle.append(element).append(" -> ");
+            }
+            Debug.error(String.format(
+                    "Variables %s in package %s reference each other in a cycle",
+                    cycle.append(varName), name));
+            return null;
+        }
+        resolving.add(varName);
+        String result;
+        Matcher vector = VECTOR.matcher(varVal);
+        if (vector.matches()) {
+            result = resolveLocation(varName, vector, raw, resolved, resolving);
+        } else {
+            // insert variables referenced in this one
+            StringBuilder builder = new StringBuilder(varVal.length());
+            int index = 0;
+            result = null;
+            while (true) {
+                int start = varVal.indexOf('$', index);
+                int end = start < 0 ? -1 : varVal.indexOf('$', start + 1);
+                if (start < 0 || end < 0) {
+                    builder.append(varVal, index, varVal.length());
+                    result = builder.toString();
+                    break;
                 }
-                // parse the vector
-                double x2, y2, z2;
-                try {
-                    int s = varVal.indexOf('(');
-                    int i = varVal.indexOf(',');
-                    int j = varVal.indexOf(',', i+1);
-                    int e = varVal.indexOf(')');
-                    x2 = Double.parseDouble(varVal.substring(s+1, i));
-                    y2 = Double.parseDouble(varVal.substring(i+1, j));
-                    z2 = Double.parseDouble(varVal.substring(j+1, e));
-                } catch (NumberFormatException e) {
-                    Debug.error(String.format("Could not parse vector in"
-                            + "location variable %s in package %s",
-                            varName, name));
-                    return null;
+                String inner = resolveVariable(varVal.substring(start + 1, end), raw, resolved,
+                        resolving);
+                if (inner == null) {
+                    break;
                 }
-                double x3 = x1 + x2,
-                       y3 = y1 + y2,
-                       z3 = z1 + z2;
-                value = value.replace("$" + varName + "$",
-                        String.format("%.2f;%.2f;%.2f%s", x3, y3, z3, rest));
-            } else {
-                value = value.replace("$" + varName + "$", varVal);
+                builder.append(varVal, index, start).append(inner);
+                index = end + 1;
             }
         }
-        Debug.info(String.format("Variables in %s changed, result: %s",
-                address, value));
-        return value;
+        resolving.remove(resolving.size() - 1);
+        resolved.put(varName, result == null ? null : result.intern());
+        return result;
     }
-    
+
+    /**
+     * Resolves the location variable with a vector.
+     * 
+     * @return the moved location or null if the variable is invalid
+     */
+    private String resolveLocation(String varName, Matcher vector, Map<String, String> raw,
+            Map<String, String> resolved, List<String> resolving) {
+        // parse the inner location
+        String innerVarName = vector.group(1);
+        String innerVarVal = resolveVariable(innerVarName, raw, resolved, resolving);
+        if (innerVarVal == null) {
+            Debug.error(String.format(
+                    "Location variable %s is not defined, in variable"
+                    + " %s, package %s.",
+                    innerVarName, varName, name));
+            return null;
+        }
+        if (!LOCATION.matcher(innerVarVal).matches()) {
+            Debug.error(String.format(
+                    "Inner variable %s is not valid location, in"
+                    + " variable %s, package %s.",
+                    innerVarName, varName, name));
+            return null;
+        }
+        double x1, y1, z1;
+        String rest;
+        try {
+            int i = innerVarVal.indexOf(';');
+            x1 = Double.parseDouble(innerVarVal.substring(0, i));
+            int j = innerVarVal.indexOf(';', i+1);
+            y1 = Double.parseDouble(innerVarVal.substring(i+1, j));
+            int k = innerVarVal.indexOf(';', j+1);
+            z1 = Double.parseDouble(innerVarVal.substring(j+1, k));
+            // rest is world + possible other arguments
+            rest = innerVarVal.substring(k, innerVarVal.length());
+        } catch (NumberFormatException e) {
+            Debug.error(String.format("Could not parse coordinates in "
+                    + "inner variable %s in variable %s in package %s",
+                    innerVarName, varName, name));
+            return null;
+        }
+        // the vector is already validated by the pattern
+        double x3 = x1 + Double.parseDouble(vector.group(2)),
+               y3 = y1 + Double.parseDouble(vector.group(3)),
+               z3 = z1 + Double.parseDouble(vector.group(4));
+        return String.format("%.2f;%.2f;%.2f%s", x3, y3, z3, rest);
+    }
+
+    /**
+     * Sets the string at the address and saves the file. Cached strings and
+     * variables are refreshed.
+     * 
+     * @param address
+     *          address of the string
+     * @param value
+     *          new value
+     * @return true if the string was set, false if the address is invalid
+     */
     public boolean setString(String address, String value) {
      // prepare the address
         String[] parts = address.split("\\.");
@@ -313,6 +490,11 @@ public class ConfigPackage {
         }
         config.getConfig().set(newPath.toString(), value);
         config.saveConfig();
+        if (config == main) {
+            resolveVariables();
+        }
+        rawCache.clear();
+        cache.clear();
         return true;
     }
 
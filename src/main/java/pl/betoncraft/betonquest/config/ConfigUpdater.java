@@ -81,7 +81,7 @@ public class ConfigUpdater {
      * Destination version. At the end of the updating process this will be the
      * current version
      */
-    private final String destination = "v13";
+    private final String destination = "v14";
     /**
      * Deprecated ConfigHandler, used fo updating older configuration files
      */
@@ -186,6 +186,14 @@ public class ConfigUpdater {
         update();
     }
     
+    @SuppressWarnings("unused")
+    private void update_from_v13() {
+        config.set("condition_cache", "true");
+        Debug.broadcast("Added condition cache option!");
+        config.set("version", "v14");
+        instance.saveConfig();
+    }
+    
     @SuppressWarnings("unused")
     private void update_from_v12() {
         try {
@@ -0,0 +1,229 @@
+/**
+ * BetonQuest - advanced quests for Bukkit
+ * Copyright (C) 2015  Jakub "Co0sh" Sapalski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.betoncraft.betonquest.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Items stored in player's backpack. Stacks are kept in the order in which
+ * they were added and grouped by their kind, so adding an item only looks at
+ * stacks which it can be merged with.
+ * 
+ * @author Jakub Sapalski
+ */
+public class Backpack {
+
+    /**
+     * All stacks in the backpack, in display order
+     */
+    private final List<ItemStack> items = new ArrayList<>();
+    /**
+     * Read-only view of the stacks
+     */
+    private final List<ItemStack> view = Collections.unmodifiableList(items);
+    /**
+     * Stacks grouped by their kind; the key is a single item of that kind
+     */
+    private final HashMap<ItemStack, List<ItemStack>> buckets = new HashMap<>();
+
+    /**
+     * @return read-only list of stacks in the backpack
+     */
+    public List<ItemStack> getItems() {
+        return view;
+    }
+
+    /**
+     * @return the amount of stacks in the backpack
+     */
+    public synchronized int size() {
+        return items.size();
+    }
+
+    /**
+     * @param index
+     *            index of the stack
+     * @return the stack at this index or null if there is no such stack
+     */
+    public synchronized ItemStack get(int index) {
+        return index >= 0 && index < items.size() ? items.get(index) : null;
+    }
+
+    /**
+     * Adds the item to the backpack. The amount of the stack doesn't matter,
+     * it's overwritten by amount parameter. Items are merged with similar
+     * stacks before new stacks are created.
+     * 
+     * @param item
+     *            the item to add
+     * @param amount
+     *            amount of items
+     */
+    public synchronized void add(ItemStack item, int amount) {
+        List<ItemStack> bucket = bucket(item);
+        for (ItemStack stack : bucket) {
+            int space = stack.getMaxStackSize() - stack.getAmount();
+            if (space > 0) {
+                int added = Math.min(space, amount);
+                stack.setAmount(stack.getAmount() + added);
+                amount -= added;
+                if (amount <= 0) {
+                    return;
+                }
+            }
+        }
+        int maxSize = item.getType().getMaxStackSize();
+        if (maxSize <= 0) {
+            maxSize = 64;
+        }
+        while (amount > 0) {
+            ItemStack stack = item.clone();
+            stack.setAmount(Math.min(amount, maxSize));
+            amount -= stack.getAmount();
+            items.add(stack);
+            bucket.add(stack);
+        }
+    }
+
+    /**
+     * Adds the stack to the end of the backpack without merging it.
+     * 
+     * @param stack
+     *            the stack to add
+     */
+    public synchronized void append(ItemStack stack) {
+        items.add(stack);
+        bucket(stack).add(stack);
+    }
+
+    /**
+     * Takes items from the stack at the index. The stack is removed when it
+     * becomes empty.
+     * 
+     * @param index
+     *            index of the stack
+     * @param amount
+     *            amount of items to take
+     * @return the amount of items actually taken
+     */
+    public synchronized int take(int index, int amount) {
+        ItemStack stack = get(index);
+        if (stack == null || amount <= 0) {
+            return 0;
+        }
+        int taken = Math.min(amount, stack.getAmount());
+        stack.setAmount(stack.getAmount() - taken);
+        if (stack.getAmount() <= 0) {
+            items.remove(index);
+            unbucket(stack);
+        }
+        return taken;
+    }
+
+    /**
+     * Takes quest items from the backpack, starting from the first matching
+     * stack.
+     * 
+     * @param questItem
+     *            the item to take
+     * @param amount
+     *            amount of items to take
+     * @return the amount of items which could not be taken
+     */
+    public synchronized int take(QuestItem questItem, int amount) {
+        for (Iterator<ItemStack> iterator = items.iterator(); iterator.hasNext() && amount > 0;) {
+            ItemStack stack = iterator.next();
+            if (questItem.equalsI(stack)) {
+                int taken = Math.min(amount, stack.getAmount());
+                stack.setAmount(stack.getAmount() - taken);
+                amount -= taken;
+                if (stack.getAmount() <= 0) {
+                    iterator.remove();
+                    unbucket(stack);
+                }
+            }
+        }
+        return amount;
+    }
+
+    /**
+     * Replaces all stacks in the backpack with stacks from the list.
+     * 
+     * @param list
+     *            new stacks
+     */
+    public synchronized void setItems(List<ItemStack> list) {
+        clear();
+        for (ItemStack stack : list) {
+            if (stack != null) {
+                append(stack);
+            }
+        }
+    }
+
+    /**
+     * Removes all stacks from the backpack.
+     */
+    public synchronized void clear() {
+        items.clear();
+        buckets.clear();
+    }
+
+    private List<ItemStack> bucket(ItemStack item) {
+        ItemStack key = key(item);
+        List<ItemStack> bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new ArrayList<>(1);
+            buckets.put(key, bucket);
+        }
+        return bucket;
+    }
+
+    private void unbucket(ItemStack stack) {
+        ItemStack key = key(stack);
+        List<ItemStack> bucket = buckets.get(key);
+        if (bucket == null) {
+            return;
+        }
+        for (Iterator<ItemStack> iterator = bucket.iterator(); iterator.hasNext();) {
+            if (iterator.next() == stack) {
+                iterator.remove();
+                break;
+            }
+        }
+        if (bucket.isEmpty()) {
+            buckets.remove(key);
+        }
+    }
+
+    /**
+     * Stacks are equal when they are similar and have the same amount, so a
+     * copy with the amount of 1 identifies the kind of the stack.
+     */
+    private static ItemStack key(ItemStack item) {
+        ItemStack key = new ItemStack(item);
+        key.setAmount(1);
+        return key;
+    }
+}
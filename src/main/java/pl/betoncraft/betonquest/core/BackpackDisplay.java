@@ -18,6 +18,7 @@
 package pl.betoncraft.betonquest.core;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 
 import org.bukkit.Bukkit;
@@ -25,7 +26,6 @@ import org.bukkit.Material;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
-import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.ClickType;
 import org.bukkit.event.inventory.InventoryClickEvent;
@@ -42,11 +42,26 @@ import pl.betoncraft.betonquest.utils.PlayerConverter;
 import pl.betoncraft.betonquest.utils.Utils;
 
 /**
- * Represents a chest GUI for the backpack displayed to the player.
+ * Represents a chest GUI for the backpack displayed to the player. Every
+ * player has at most one open display; clicks are routed to it by a single
+ * listener. When the content changes, only the changed slots are updated.
  * 
  * @author Coosh
  */
-public class BackpackDisplay implements Listener {
+public class BackpackDisplay {
+
+    /**
+     * Open displays, by IDs of their players
+     */
+    private static final HashMap<String, BackpackDisplay> displays = new HashMap<>();
+    /**
+     * Listener shared by all displays, registered on first use
+     */
+    private static Handler handler;
+    /**
+     * Buttons of the current configuration
+     */
+    private static Buttons buttons;
 
     /**
      * ID of the player
@@ -56,22 +71,27 @@ public class BackpackDisplay implements Listener {
      * The player object
      */
     private final Player player;
-    /**
-     * Instance of the BetonQuest plugin
-     */
-    private final BetonQuest instance;
     /**
      * Database handler for the player
      */
     private final DatabaseHandler dbHandler;
     /**
-     * The inventory created by this object
+     * The inventory displayed to the player
      */
     private Inventory inv;
+    /**
+     * Title of the displayed inventory
+     */
+    private String title;
     /**
      * Currently displayed page
      */
     private int page;
+    /**
+     * Stacks (and their amounts) currently placed in the inventory slots
+     */
+    private final ItemStack[] shown = new ItemStack[54];
+    private final int[] shownAmounts = new int[54];
     /**
      * Stores assignments of quest cancelers to inventory slots
      */
@@ -98,288 +118,342 @@ public class BackpackDisplay implements Listener {
      *            page to display
      */
     public BackpackDisplay(String playerID, int page) {
-        // fill those fields
         this.playerID = playerID;
-        this.page = page;
         player = PlayerConverter.getPlayer(playerID);
-        instance = BetonQuest.getInstance();
-        dbHandler = instance.getDBHandler(playerID);
-        // handle page -1, for canceling the quests
+        dbHandler = BetonQuest.getInstance().getDBHandler(playerID);
+        if (handler == null) {
+            handler = new Handler();
+            Bukkit.getPluginManager().registerEvents(handler, BetonQuest.getInstance());
+        }
+        displays.put(playerID, this);
+        show(page);
+    }
+
+    /**
+     * Prepares buttons from the configuration. Call it after the
+     * configuration was (re)loaded.
+     */
+    public static void reload() {
+        buttons = new Buttons();
+    }
+
+    /**
+     * Displays the page to the player. If the same page is already open,
+     * only changed slots are updated.
+     * 
+     * @param page
+     *            page to display, -1 is the page for canceling quests
+     */
+    private void show(int page) {
+        if (buttons == null) {
+            buttons = new Buttons();
+        }
         if (page == -1) {
-            map = new HashMap<>();
-            HashMap<String, String> cancelers = new HashMap<>();
-            // for every package
-            for (String packName : Config.getPackageNames()) {
-                // loop all quest cancelers
-                ConfigurationSection s = Config.getPackage(packName).getMain()
-                        .getConfig().getConfigurationSection("cancel");
-                for (String key : s.getKeys(false)) {
-                    // and for each canceler
-                    String canceler = s.getString(key);
-                    boolean isMet = true;
-                    String name = null;
-                    for (String part : canceler.split(" ")) {
-                        // check conditions
-                        if (part.startsWith("conditions:")) {
-                            for (String condition : part.substring(11).split(",")) {
-                                if (!condition.contains(".")) {
-                                    condition = packName + "." + condition;
-                                }
-                                if (!BetonQuest.condition(playerID, condition)) {
-                                    isMet = false;
-                                    break;
-                                }
-                            }
-                        // and parse the name
-                        } else if (part.startsWith("name:")) {
-                            name = part.substring(5);
-                        }
-                    }
-                    // now if canceler meets the conditions
-                    if (isMet) {
-                        // put it into the map
-                        cancelers.put(packName + "." + key, name);
-                    }
-                }
-            }
-            // not all cancelers that meet conditions and their names are in the map
-            int size = cancelers.size();
-            int numberOfRows = ((size - size%9) / 9) + 1;
-            if (numberOfRows > 6) {
-                numberOfRows = 6;
-                Debug.error("Player " + player.getName() + " has too many active quests, please"
-                    + " don't allow for so many of them. It slows down your server!");
-            }
-            inv = Bukkit.createInventory(null, numberOfRows*9, Config.getMessage("cancel_page"));
-            ItemStack[] content = new ItemStack[numberOfRows*9];
-            int i = 0;
-            for (String address : cancelers.keySet()) {
-                String name = cancelers.get(address);
-                ItemStack canceler;
-                String item = Config.getString("default.items.cancel_button");
-                if (item != null) {
-                    canceler = new QuestItem(item).generateItem(1);
-                } else {
-                    canceler = new ItemStack(Material.BONE);
-                }
-                ItemMeta meta = canceler.getItemMeta();
-                meta.setDisplayName(Config.getString("messages.global.cancel_color").replace("&", "§") + name.replace("_", " "));
-                canceler.setItemMeta(meta);
-                content[i] = canceler;
-                map.put(i, address);
-                i++;
-            }
-            inv.setContents(content);
-            player.openInventory(inv);
-            Bukkit.getPluginManager().registerEvents(this, instance);
+            showCancelers();
             return;
         }
-        
         List<ItemStack> backpack = dbHandler.getBackpack();
         // amount of pages, considering that the first contains 44
         // items and all others 45
-        int pages = (backpack.size() < 45 ? 1 : (backpack.size() + 1 % 45 == 0 ? (int) (backpack
-                .size() + 1) / 45 : (int) Math.floor((backpack.size() + 1) / 45) + 1));
+        int pages = (backpack.size() + 45) / 45;
+        String title = Config.getMessage("backpack_title") + (pages == 1 ? "" : " ("
+                + (page + 1) + "/" + pages + ")");
         Debug.info("Generating backpack for " + playerID + ", page " + page);
-        // prepare the inventory
-        inv = Bukkit.createInventory(null, 54, Config.getMessage("backpack_title") + (pages == 1 ? "" : " ("
-                + (page + 1) + "/" + pages + ")"));
         ItemStack[] content = new ItemStack[54];
         int i = 0;
         // insert the journal if the player doesn't have it in his inventory
         if (page == 0) {
-            Debug.info("  First page, checking journal");
             if (!Journal.hasJournal(playerID)) {
-                Debug.info("    Adding the journal");
-                content[0] = dbHandler.getJournal().generateJournal();
-            } else {
-                Debug.info("    Player has his journal, not adding");
-                content[0] = null;
+                content[0] = dbHandler.getJournal().getBook();
             }
             i++;
-        } else {
-            Debug.info("  Page is not first, skipping journal check");
         }
         // set all the items
-        Debug.info("  Setting " + backpack.size() + " items");
         while (i < 45 && i + (page * 45) <= backpack.size()) {
-            ItemStack item = backpack.get(i + (page * 45) - 1);
-            content[i] = item;
+            content[i] = backpack.get(i + (page * 45) - 1);
             i++;
         }
         // if there are other pages, place the buttons
-        Debug.info("  Placing buttons");
         if (page > 0) {
-            ItemStack previous;
-            String item = Config.getString("default.items.previous_button");
-            if (item != null) {
-                previous = new QuestItem(item).generateItem(1);
-            } else {
-                previous = new ItemStack(Material.GLOWSTONE_DUST);
-            }
-            ItemMeta meta = previous.getItemMeta();
-            meta.setDisplayName(Config.getMessage("previous").replaceAll("&", "§"));
-            previous.setItemMeta(meta);
-            Debug.info("    There is a previous button");
-            content[48] = previous;
+            content[48] = buttons.previous;
         }
         if (backpack.size() > (page + 1) * 45 - 1) {
-            ItemStack next;
-            String item = Config.getString("default.items.next_button");
-            if (item != null) {
-                next = new QuestItem(item).generateItem(1);
-            } else {
-                next = new ItemStack(Material.REDSTONE);
-            }
-            ItemMeta meta = next.getItemMeta();
-            meta.setDisplayName(Config.getMessage("next").replaceAll("&", "§"));
-            next.setItemMeta(meta);
-            Debug.info("    There is a next button");
-            content[50] = next;
+            content[50] = buttons.next;
         }
-        // set "cancel quest" button
-        ItemStack cancel;
-        String item = Config.getString("default.items.cancel_button");
-        if (item != null) {
-            cancel = new QuestItem(item).generateItem(1);
+        content[45] = buttons.cancel;
+        if (inv == null || this.page != page || !title.equals(this.title)) {
+            // the title can't be changed, so a new inventory is needed
+            this.page = page;
+            this.title = title;
+            inv = Bukkit.createInventory(null, 54, title);
+            for (int slot = 0; slot < 54; slot++) {
+                shown[slot] = null;
+            }
+            update(content);
+            player.openInventory(inv);
         } else {
-            cancel = new ItemStack(Material.BONE);
+            update(content);
+        }
+    }
+
+    /**
+     * Places in the inventory only those stacks which have changed since
+     * they were placed there last time.
+     */
+    private void update(ItemStack[] content) {
+        for (int slot = 0; slot < content.length; slot++) {
+            ItemStack item = content[slot];
+            if (item != shown[slot] || (item != null && item.getAmount() != shownAmounts[slot])) {
+                inv.setItem(slot, item);
+                shown[slot] = item;
+                shownAmounts[slot] = (item == null) ? 0 : item.getAmount();
+            }
+        }
+    }
+
+    /**
+     * Displays the page with quest cancelers available to the player.
+     */
+    private void showCancelers() {
+        page = -1;
+        title = null;
+        map = new HashMap<>();
+        LinkedHashMap<String, String> cancelers = new LinkedHashMap<>();
+        // for every package
+        for (String packName : Config.getPackageNames()) {
+            // loop all quest cancelers
+            ConfigurationSection s = Config.getPackage(packName).getMain()
+                    .getConfig().getConfigurationSection("cancel");
+            if (s == null) {
+                continue;
+            }
+            for (String key : s.getKeys(false)) {
+                // and for each canceler
+                String canceler = s.getString(key);
+                boolean isMet = true;
+                String name = null;
+                for (String part : canceler.split(" ")) {
+                    // check conditions
+                    if (part.startsWith("conditions:")) {
+                        for (String condition : part.substring(11).split(",")) {
+                            if (!condition.contains(".")) {
+                                condition = packName + "." + condition;
+                            }
+                            if (!BetonQuest.condition(playerID, condition)) {
+                                isMet = false;
+                                break;
+                            }
+                        }
+                    // and parse the name
+                    } else if (part.startsWith("name:")) {
+                        name = part.substring(5);
+                    }
+                }
+                // now if canceler meets the conditions
+                if (isMet) {
+                    // put it into the map
+                    cancelers.put(packName + "." + key, name);
+                }
+            }
+        }
+        // now all cancelers that meet conditions and their names are in the map
+        int size = cancelers.size();
+        int numberOfRows = ((size - size%9) / 9) + 1;
+        if (numberOfRows > 6) {
+            numberOfRows = 6;
+            Debug.error("Player " + player.getName() + " has too many active quests, please"
+                + " don't allow for so many of them. It slows down your server!");
+        }
+        inv = Bukkit.createInventory(null, numberOfRows*9, Config.getMessage("cancel_page"));
+        ItemStack[] content = new ItemStack[numberOfRows*9];
+        int i = 0;
+        for (String address : cancelers.keySet()) {
+            if (i >= content.length) {
+                break;
+            }
+            String name = cancelers.get(address);
+            ItemStack canceler = buttons.canceler.clone();
+            ItemMeta meta = canceler.getItemMeta();
+            meta.setDisplayName(buttons.cancelColor + name.replace("_", " "));
+            canceler.setItemMeta(meta);
+            content[i] = canceler;
+            map.put(i, address);
+            i++;
         }
-        ItemMeta meta = cancel.getItemMeta();
-        meta.setDisplayName(Config.getMessage("cancel").replaceAll("&", "§"));
-        cancel.setItemMeta(meta);
-        content[45] = cancel;
-        // set the inventory and display it
-        Debug.info("Done, setting the content");
         inv.setContents(content);
         player.openInventory(inv);
-        // register listener
-        Bukkit.getPluginManager().registerEvents(this, instance);
     }
 
-    @EventHandler
-    public void onClick(InventoryClickEvent event) {
-        if (event.getWhoClicked().equals(player)) {
-            // if the player clicked, then cancel this event
-            event.setCancelled(true);
-            // if the click was outside of the inventory, do nothing
-            if (event.getRawSlot() < 0) {
+    /**
+     * Handles the click in this display.
+     */
+    private void click(InventoryClickEvent event) {
+        // if the player clicked, then cancel this event
+        event.setCancelled(true);
+        // if the click was outside of the inventory, do nothing
+        if (event.getRawSlot() < 0) {
+            return;
+        }
+        Debug.info("Player " + playerID + " clicked in backpack");
+        if (page == -1) {
+            String address = map.get(event.getRawSlot());
+            if (address == null) {
                 return;
             }
-            Debug.info("Player " + playerID + " clicked in backpack");
-            if (page == -1) {
-                String address = map.get(event.getRawSlot());
-                if (address == null) {
-                    return;
+            dbHandler.cancelQuest(address);
+            player.closeInventory();
+            return;
+        } else if (page == 0 && event.getRawSlot() == 0) {
+            // first page on first slot should contain the journal
+            Debug.info("  Journal slot was clicked, adding journal");
+            dbHandler.getJournal().addJournal(Integer.parseInt(Config.getString("config.default_journal_slot")));
+            show(page);
+        } else if (event.getRawSlot() < 45) {
+            // raw slot lower than 45 is a quest item
+            Debug.info("  Quest Item has been clicked");
+            // read the id of the item from clicked slot
+            int id = page * 45 + event.getRawSlot() - 1;
+            ItemStack item = null;
+            // get the item if it exists
+            if (id >= 0 && dbHandler.getBackpack().size() > id) {
+                item = dbHandler.getBackpack().get(id);
+            }
+            if (item != null) {
+                // if the item exists, put it in player's inventory 
+                int getAmount = 0;
+                // left click is one item, right is the whole stack
+                switch (event.getClick()) {
+                    case LEFT:
+                        getAmount = 1;
+                        break;
+                    case RIGHT:
+                        getAmount = item.getAmount();
+                        break;
+                    default:
+                        break;
                 }
-                dbHandler.cancelQuest(address);
-                player.closeInventory();
-                return;
-            } else if (page == 0 && event.getRawSlot() == 0) {
-                // first page on first slot should contain the journal
-                Debug.info("  Journal slot was clicked, adding journal");
-                dbHandler.getJournal().addJournal(Integer.parseInt(Config.getString("config.default_journal_slot")));
-                new BackpackDisplay(playerID, page);
-            } else if (event.getRawSlot() < 45) {
-                // raw slot lower than 45 is a quest item
-                Debug.info("  Quest Item has been clicked");
-                // read the id of the item from clicked slot
-                int id = page * 45 + event.getRawSlot() - 1;
-                ItemStack item = null;
-                // get the item if it exists
-                if (dbHandler.getBackpack().size() > id) {
-                    item = dbHandler.getBackpack().get(id);
+                if (getAmount != 0) {
+                    // add desired amount of items to player's inventory
+                    ItemStack newItem = item.clone();
+                    newItem.setAmount(getAmount);
+                    ItemStack leftItems = player.getInventory().addItem(newItem).get(0);
+                    // remove from backpack only those items that were
+                    // actually added to player's inventory
+                    int leftAmount = 0;
+                    if (leftItems != null) {
+                        leftAmount = leftItems.getAmount();
+                    }
+                    dbHandler.takeItem(id, getAmount - leftAmount);
                 }
-                if (item != null) {
-                    // if the item exists, put it in player's inventory 
-                    int backpackAmount = item.getAmount();
-                    int getAmount = 0;
-                    // left click is one item, right is the whole stack
-                    switch (event.getClick()) {
+                show(page);
+            }
+        } else if (event.getRawSlot() > 53) {
+            // slot above 53 is player's inventory, so handle item storing
+            Debug.info("  Player's inventory was clicked");
+            final int slot = event.getSlot();
+            final ClickType click = event.getClick();
+            ItemStack item = player.getInventory().getItem(slot);
+            if (item != null) {
+                // if the item exists continue
+                if (Utils.isQuestItem(item)) {
+                    // if it is a quest item, add it to the backpack
+                    Debug.info("    Slot " + slot + ", click " + click + ", item " + item.getType());
+                    int amount = 0;
+                    // left click is one item, right is all items
+                    switch (click) {
                         case LEFT:
-                            getAmount = 1;
+                            amount = 1;
                             break;
                         case RIGHT:
-                            getAmount = backpackAmount;
+                            amount = item.getAmount();
                             break;
                         default:
                             break;
                     }
-                    if (getAmount != 0) {
-                        // add desired amount of items to player's inventory
-                        ItemStack newItem = item.clone();
-                        newItem.setAmount(getAmount);
-                        ItemStack leftItems = player.getInventory().addItem(newItem).get(0);
-                        // remove from backpack only those items that were
-                        // actually added to player's inventory
-                        int leftAmount = 0;
-                        if (leftItems != null) {
-                            leftAmount = leftItems.getAmount();
-                        }
-                        item.setAmount(backpackAmount - getAmount + leftAmount);
-                        if (backpackAmount - getAmount + leftAmount == 0) {
-                            dbHandler.getBackpack().remove(id);
-                        }
+                    // add item to backpack and remove it from player's inventory
+                    dbHandler.addItem(item.clone(), amount);
+                    if (item.getAmount() - amount == 0) {
+                        player.getInventory().setItem(slot, null);
+                    } else {
+                        item.setAmount(item.getAmount() - amount);
+                        player.getInventory().setItem(slot, item);
                     }
-                    new BackpackDisplay(playerID, page);
+                } else if (Journal.isJournal(item)) {
+                    // if it's a journal, remove it so it appears in backpack again
+                    dbHandler.getJournal().removeJournal();
                 }
-            } else if (event.getRawSlot() > 53) {
-                // slot above 53 is player's inventory, so handle item storing
-                Debug.info("  Player's inventory was clicked");
-                final int slot = event.getSlot();
-                final ClickType click = event.getClick();
-                ItemStack item = player.getInventory().getItem(slot);
-                if (item != null) {
-                    // if the item exists continue
-                    if (Utils.isQuestItem(item)) {
-                        // if it is a quest item, add it to the backpack
-                        Debug.info("    Slot " + slot + ", click " + click + ", item " + item.getType());
-                        int amount = 0;
-                        // left click is one item, right is all items
-                        switch (click) {
-                            case LEFT:
-                                amount = 1;
-                                break;
-                            case RIGHT:
-                                amount = item.getAmount();
-                                break;
-                            default:
-                                break;
-                                    }
-                        // add item to backpack and remove it from player's inventory
-                        dbHandler.addItem(item.clone(), amount);
-                        if (item.getAmount() - amount == 0) {
-                            player.getInventory().setItem(slot, null);
-                        } else {
-                            item.setAmount(item.getAmount() - amount);
-                            player.getInventory().setItem(slot, item);
-                        }
-                    } else if (Journal.isJournal(item)) {
-                        // if it's a journal, remove it so it appears in backpack again
-                        dbHandler.getJournal().removeJournal();
-                    }
-                    new BackpackDisplay(playerID, page);
-                }
-            } else if (event.getRawSlot() == 48 && page > 0) {
-                // if it was a previous/next button turn the pages
-                Debug.info("  Previous button has been clicked");
-                new BackpackDisplay(playerID, page - 1);
-            } else if (event.getRawSlot() == 50 && dbHandler.getBackpack().size() > (page + 1) 
-                    * 45 - 1) {
-                Debug.info("  Next button has been clicked");
-                new BackpackDisplay(playerID, page + 1);
-            } else if (event.getRawSlot() == 45) {
-                Debug.info("  Cancel quest button has been clicked");
-                new BackpackDisplay(playerID, -1);
+                show(page);
+            }
+        } else if (event.getRawSlot() == 48 && page > 0) {
+            // if it was a previous/next button turn the pages
+            Debug.info("  Previous button has been clicked");
+            show(page - 1);
+        } else if (event.getRawSlot() == 50 && dbHandler.getBackpack().size() > (page + 1) 
+                * 45 - 1) {
+            Debug.info("  Next button has been clicked");
+            show(page + 1);
+        } else if (event.getRawSlot() == 45) {
+            Debug.info("  Cancel quest button has been clicked");
+            show(-1);
+        }
+    }
+
+    /**
+     * Routes events to displays of players who caused them.
+     */
+    private static class Handler implements Listener {
+
+        @EventHandler
+        public void onClick(InventoryClickEvent event) {
+            if (!(event.getWhoClicked() instanceof Player)) {
+                return;
+            }
+            BackpackDisplay display = displays.get(PlayerConverter.getID((Player) event.getWhoClicked()));
+            if (display != null) {
+                display.click(event);
+            }
+        }
+
+        @EventHandler
+        public void onInventoryClosing(InventoryCloseEvent event) {
+            if (!(event.getPlayer() instanceof Player)) {
+                return;
+            }
+            String playerID = PlayerConverter.getID((Player) event.getPlayer());
+            BackpackDisplay display = displays.get(playerID);
+            // closing the previous inventory when a new page is opened
+            // doesn't close the display
+            if (display != null && event.getInventory().equals(display.inv)) {
+                Debug.info("Player " + playerID + " closed his backpack, terminating");
+                displays.remove(playerID);
             }
         }
     }
 
-    @EventHandler
-    public void onInventoryClosing(InventoryCloseEvent event) {
-        if (event.getPlayer().equals(player)) {
-            Debug.info("Player " + playerID + " closed his backpack, terminating");
-            HandlerList.unregisterAll(this);
+    /**
+     * Buttons of the backpack, generated from the configuration.
+     */
+    private static class Buttons {
+
+        private final ItemStack previous, next, cancel, canceler;
+        private final String cancelColor;
+
+        private Buttons() {
+            previous = button("default.items.previous_button", Material.GLOWSTONE_DUST, "previous");
+            next = button("default.items.next_button", Material.REDSTONE, "next");
+            cancel = button("default.items.cancel_button", Material.BONE, "cancel");
+            String item = Config.getString("default.items.cancel_button");
+            canceler = (item != null) ? new QuestItem(item).generateItem(1) : new ItemStack(Material.BONE);
+            cancelColor = Config.getString("messages.global.cancel_color").replace("&", "§");
+        }
+
+        private static ItemStack button(String address, Material def, String message) {
+            String item = Config.getString(address);
+            ItemStack button = (item != null) ? new QuestItem(item).generateItem(1) : new ItemStack(def);
+            ItemMeta meta = button.getItemMeta();
+            meta.setDisplayName(Config.getMessage(message).replaceAll("&", "§"));
+            button.setItemMeta(meta);
+            return button;
         }
     }
 }
@@ -0,0 +1,200 @@
+/**
+ * BetonQuest - advanced quests for Bukkit
+ * Copyright (C) 2015  Jakub "Co0sh" Sapalski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.betoncraft.betonquest.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Format of a chat line, compiled once into literal segments and
+ * placeholder slots. Color codes in the literal segments are translated
+ * while compiling, so rendering is a single pass over a StringBuilder.
+ * 
+ * @author Co0sh
+ */
+public class ChatTemplate {
+
+    /**
+     * Slot of the "%player%" placeholder
+     */
+    public static final int PLAYER = 0;
+    /**
+     * Slot of the "%quester%" placeholder
+     */
+    public static final int QUESTER = 1;
+    /**
+     * Slot of the "%number%" placeholder
+     */
+    public static final int NUMBER = 2;
+    /**
+     * Placeholders, indexed by their slots
+     */
+    private static final String[] PLACEHOLDERS = new String[] { "%player%", "%quester%", "%number%" };
+
+    /**
+     * Literal segments; there is one more segment than there are slots
+     */
+    private final String[] segments;
+    /**
+     * Slots inserted between the segments
+     */
+    private final int[] slots;
+
+    /**
+     * Compiles the format.
+     * 
+     * @param format
+     *            the format with "&" color codes and placeholders; null is
+     *            treated as an empty format
+     */
+    public ChatTemplate(String format) {
+        List<String> segmentList = new ArrayList<>();
+        List<Integer> slotList = new ArrayList<>();
+        StringBuilder segment = new StringBuilder();
+        if (format != null) {
+            int i = 0;
+            while (i < format.length()) {
+                int slot = placeholderAt(format, i);
+                if (slot >= 0) {
+                    segmentList.add(segment.toString());
+                    slotList.add(slot);
+                    segment.setLength(0);
+                    i += PLACEHOLDERS[slot].length();
+                } else {
+                    char c = format.charAt(i++);
+                    segment.append(c == '&' ? '§' : c);
+                }
+            }
+        }
+        segmentList.add(segment.toString());
+        segments = segmentList.toArray(new String[segmentList.size()]);
+        slots = new int[slotList.size()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = slotList.get(i);
+        }
+    }
+
+    /**
+     * Renders the format followed by the message. Placeholders and color
+     * codes in the message are handled in the same pass.
+     * 
+     * @param builder
+     *            builder to append the line to
+     * @param values
+     *            values of the placeholders, indexed by their slots; color
+     *            codes in them must already be translated, and placeholders
+     *            without values are left untouched
+     * @param message
+     *            the message appended after the format, can be null
+     * @return the builder
+     */
+    public StringBuilder render(StringBuilder builder, String[] values, String message) {
+        builder.append(segments[0]);
+        for (int i = 0; i < slots.length; i++) {
+            int slot = slots[i];
+            String value = slot < values.length ? values[slot] : null;
+            // without a value the placeholder is left as it is
+            builder.append(value != null ? value : PLACEHOLDERS[slot]).append(segments[i + 1]);
+        }
+        if (message != null) {
+            appendText(builder, message, values);
+        }
+        return builder;
+    }
+
+    /**
+     * Renders the format followed by the message into a new string.
+     * 
+     * @param values
+     *            values of the placeholders, indexed by their slots
+     * @param message
+     *            the message appended after the format, can be null
+     * @return the rendered line
+     */
+    public String render(String[] values, String message) {
+        return render(new StringBuilder(64), values, message).toString();
+    }
+
+    /**
+     * Appends the text, replacing placeholders and translating color codes.
+     * 
+     * @param builder
+     *            builder to append the text to
+     * @param text
+     *            the text
+     * @param values
+     *            values of the placeholders, indexed by their slots
+     */
+    public static void appendText(StringBuilder builder, String text, String[] values) {
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '%') {
+                int slot = placeholderAt(text, i);
+                if (slot >= 0 && slot < values.length && values[slot] != null) {
+                    builder.append(values[slot]);
+                    i += PLACEHOLDERS[slot].length();
+                    continue;
+                }
+            }
+            builder.append(c == '&' ? '§' : c);
+            i++;
+        }
+    }
+
+    /**
+     * Translates "&" color codes in the text.
+     * 
+     * @param text
+     *            the text
+     * @return the text with "§" color codes
+     */
+    public static String color(String text) {
+        return text == null ? "" : text.replace('&', '§');
+    }
+
+    /**
+     * Appends the text escaped for a JSON string.
+     * 
+     * @param builder
+     *            builder to append the text to
+     * @param text
+     *            the text
+     */
+    public static void appendJSON(StringBuilder builder, CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\');
+            }
+            builder.append(c);
+        }
+    }
+
+    private static int placeholderAt(String text, int index) {
+        if (text.charAt(index) != '%') {
+            return -1;
+        }
+        for (int slot = 0; slot < PLACEHOLDERS.length; slot++) {
+            if (text.startsWith(PLACEHOLDERS[slot], index)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * BetonQuest - advanced quests for Bukkit
+ * Copyright (C) 2015  Jakub "Co0sh" Sapalski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.betoncraft.betonquest.core;
+
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bukkit.scheduler.BukkitRunnable;
+
+import pl.betoncraft.betonquest.config.Config;
+import pl.betoncraft.betonquest.utils.Debug;
+
+/**
+ * Remembers results of conditions for the current tick, so the same
+ * condition checked many times for the same player is evaluated only once.
+ * Results of a player are forgotten earlier when the player's tags,
+ * points, journal, items or objectives change, or when an event is fired
+ * for the player. Only conditions marked as cacheable are remembered. The
+ * task must run every tick to count them.
+ * 
+ * @author Jakub Sapalski
+ */
+public class ConditionCache extends BukkitRunnable {
+
+    /**
+     * Instance of active cache
+     */
+    private static ConditionCache instance;
+    private static volatile boolean enabled = false;
+    private static volatile long tick = 0;
+    private static final ConcurrentHashMap<String, Results> players = new ConcurrentHashMap<>();
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates new condition cache, clearing all previous results. It's
+     * enabled by "condition_cache" option in config.yml.
+     */
+    public ConditionCache() {
+        instance = this;
+        players.clear();
+        enabled = !"false".equalsIgnoreCase(Config.getString("config.condition_cache"));
+        Debug.info("Condition cache is " + (enabled ? "enabled" : "disabled"));
+    }
+
+    /**
+     * Stops active condition cache
+     */
+    public static void stop() {
+        if (instance != null) {
+            instance.cancel();
+        }
+        enabled = false;
+        players.clear();
+        Debug.info("Condition cache: " + hits.get() + " hits, " + misses.get() + " misses");
+    }
+
+    @Override
+    public void run() {
+        tick++;
+    }
+
+    /**
+     * Returns results of conditions for the player in the current tick.
+     * 
+     * @param playerID
+     *            ID of the player
+     * @return results of the player or null if the cache is disabled
+     */
+    static Results get(String playerID) {
+        if (!enabled) {
+            return null;
+        }
+        Results results = players.get(playerID);
+        if (results == null) {
+            results = new Results();
+            Results previous = players.putIfAbsent(playerID, results);
+            if (previous != null) {
+                results = previous;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Forgets all results of the player. Call it when something that
+     * conditions depend on has changed.
+     * 
+     * @param playerID
+     *            ID of the player
+     */
+    public static void invalidate(String playerID) {
+        if (playerID != null) {
+            players.remove(playerID);
+        }
+    }
+
+    /**
+     * Forgets results of all players, for example after a static event.
+     */
+    public static void invalidateAll() {
+        players.clear();
+    }
+
+    /**
+     * @return number of conditions which were taken from the cache
+     */
+    public static long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of conditions which had to be checked
+     */
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Results of conditions of a single player, valid for one tick. When the
+     * player's results are invalidated, they are replaced with new ones, so
+     * checks which were already running can't put outdated results in the
+     * new ones.
+     */
+    static class Results {
+
+        private long resultsTick = tick;
+        private final HashMap<Integer, Boolean> results = new HashMap<>();
+
+        /**
+         * @return the result of the condition in the slot, or null if it
+         *         wasn't checked in this tick
+         */
+        synchronized Boolean get(int slot) {
+            if (resultsTick != tick) {
+                resultsTick = tick;
+                results.clear();
+            }
+            Boolean result = results.get(slot);
+            if (result == null) {
+                misses.incrementAndGet();
+            } else {
+                hits.incrementAndGet();
+            }
+            return result;
+        }
+
+        synchronized void put(int slot, boolean result) {
+            if (resultsTick == tick) {
+                results.put(slot, result);
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * BetonQuest - advanced quests for Bukkit
+ * Copyright (C) 2015  Jakub "Co0sh" Sapalski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.betoncraft.betonquest.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import pl.betoncraft.betonquest.api.Condition;
+import pl.betoncraft.betonquest.utils.Debug;
+import pl.betoncraft.betonquest.utils.PlayerConverter;
+
+/**
+ * Handle of a condition, with the ID and inversion resolved only once.
+ * Checking it doesn't do any string work, it just calls the linked
+ * condition. Handles are relinked to new conditions after a reload.
+ * 
+ * @author Jakub Sapalski
+ */
+public class ConditionRef {
+
+    /**
+     * Conditions linked to handles
+     */
+    private static final RefTable<Condition> table = new RefTable<>();
+    /**
+     * Already created handles, by their raw IDs (with "!")
+     */
+    private static final ConcurrentHashMap<String, ConditionRef> refs = new ConcurrentHashMap<>();
+
+    private final String ID;
+    private final boolean inverted;
+    private final int slot;
+
+    private ConditionRef(String ID, boolean inverted, int slot) {
+        this.ID = ID;
+        this.inverted = inverted;
+        this.slot = slot;
+    }
+
+    /**
+     * Returns the handle of the condition. The ID can be prefixed with "!"
+     * to invert the condition.
+     * 
+     * @param conditionID
+     *            full ID of the condition
+     * @return the handle
+     */
+    public static ConditionRef get(String conditionID) {
+        ConditionRef ref = refs.get(conditionID);
+        if (ref == null) {
+            boolean inverted = conditionID.contains("!");
+            String ID = conditionID.replace("!", "");
+            ref = new ConditionRef(ID, inverted, table.slot(ID));
+            ConditionRef previous = refs.putIfAbsent(conditionID, ref);
+            if (previous != null) {
+                ref = previous;
+            }
+        }
+        return ref;
+    }
+
+    /**
+     * Returns the handle of the condition for a one-off check, e.g. from the
+     * API or a command. The handle is kept only if the condition is
+     * defined; for unknown IDs it's resolved by the ID on every check and
+     * then forgotten, so typos don't take slots forever.
+     * 
+     * @param conditionID
+     *            full ID of the condition, optionally prefixed with "!"
+     * @return the handle
+     */
+    public static ConditionRef find(String conditionID) {
+        ConditionRef ref = refs.get(conditionID);
+        if (ref != null) {
+            return ref;
+        }
+        String ID = conditionID.replace("!", "");
+        if (Definitions.get().conditions.contains(ID)) {
+            return get(conditionID);
+        }
+        return new ConditionRef(ID, conditionID.contains("!"), RefTable.NO_SLOT);
+    }
+
+    /**
+     * Returns handles of all conditions in the array.
+     * 
+     * @param conditionIDs
+     *            full IDs of conditions
+     * @return array of handles
+     */
+    public static ConditionRef[] get(String[] conditionIDs) {
+        ConditionRef[] array = new ConditionRef[conditionIDs.length];
+        for (int i = 0; i < conditionIDs.length; i++) {
+            array[i] = get(conditionIDs[i]);
+        }
+        return array;
+    }
+
+    /**
+     * Links all handles to conditions from the map. Handles switch to the new
+     * conditions when the definitions containing the table are published.
+     * 
+     * @param conditions
+     *            map of conditions by their IDs; it must not be modified
+     *            later
+     * @return the table of linked conditions
+     */
+    static RefTable.Linked<Condition> link(Map<String, Condition> conditions) {
+        return table.link(conditions);
+    }
+
+    /**
+     * Checks if the condition is met by the player.
+     * 
+     * @param playerID
+     *            ID of the player
+     * @return true if the condition is met (or not met if it's inverted)
+     */
+    public boolean check(String playerID) {
+        if (playerID == null) {
+            Debug.info("Null arguments for the condition!");
+            return false;
+        }
+        if (PlayerConverter.getPlayer(playerID) == null) {
+            Debug.info("Player was offline, returning false");
+            return false;
+        }
+        Condition condition = Definitions.get().conditions.get(slot, ID);
+        if (condition == null) {
+            Debug.error("The condition " + ID + " is not defined!");
+            return false;
+        }
+        boolean isMet;
+        ConditionCache.Results results = condition.isCacheable() && slot != RefTable.NO_SLOT
+                ? ConditionCache.get(playerID) : null;
+        if (results != null) {
+            Boolean cached = results.get(slot);
+            if (cached == null) {
+                cached = condition.isMet(playerID);
+                results.put(slot, cached);
+            }
+            isMet = cached != inverted;
+        } else {
+            isMet = condition.isMet(playerID) != inverted;
+        }
+        if (Debug.debugging()) {
+            Debug.info((isMet ? "TRUE" : "FALSE") + ": " + (inverted ? "inverted" : "")
+                    + " condition " + ID + " for player " + playerID);
+        }
+        return isMet;
+    }
+
+    /**
+     * @return full ID of the condition, without "!"
+     */
+    public String getID() {
+        return ID;
+    }
+
+    /**
+     * @return true if the condition is inverted
+     */
+    public boolean isInverted() {
+        return inverted;
+    }
+
+    @Override
+    public String toString() {
+        return inverted ? "!" + ID : ID;
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * BetonQuest - advanced quests for Bukkit
+ * Copyright (C) 2015  Jakub "Co0sh" Sapalski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.betoncraft.betonquest.core;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+
+import pl.betoncraft.betonquest.api.QuestFactory;
+
+/**
+ * Factory calling the (String, Instruction) constructor of a class, or the
+ * (String, String) one if the class doesn't have it, which is looked up only
+ * once. It's used for types registered with their class instead of a
+ * factory.
+ * 
+ * @author Jakub Sapalski
+ */
+public class ConstructorFactory<T> implements QuestFactory<T> {
+
+    private final Constructor<? extends T> constructor;
+    /**
+     * Whether the constructor takes the parsed instruction; older types
+     * take the string and parse it again
+     */
+    private final boolean parsed;
+
+    /**
+     * Looks up the constructor of the class.
+     * 
+     * @param type
+     *            the class, it must be public and have a public (String,
+     *            Instruction) or (String, String) constructor
+     * @throws IllegalArgumentException
+     *             if there is no such constructor
+     */
+    public ConstructorFactory(Class<? extends T> type) {
+        Constructor<? extends T> found;
+        try {
+            found = type.getConstructor(String.class, Instruction.class);
+        } catch (NoSuchMethodException e) {
+            try {
+                found = type.getConstructor(String.class, String.class);
+            } catch (NoSuchMethodException ex) {
+                throw new IllegalArgumentException(type.getName() + " doesn't have a public"
+                    + " (String, Instruction) or (String, String) constructor", ex);
+            }
+        }
+        constructor = found;
+        parsed = found.getParameterTypes()[1] == Instruction.class;
+    }
+
+    @Override
+    public T create(String first, Instruction instruction) throws InstructionParseException {
+        try {
+            return constructor.newInstance(first, parsed ? instruction : instruction.getInstruction());
+        } catch (InvocationTargetException e) {
+            // exceptions thrown by the constructor are not wrapped
+            Throwable cause = e.getCause();
+            if (cause instanceof InstructionParseException) {
+                throw (InstructionParseException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -19,18 +19,15 @@ package pl.betoncraft.betonquest.core;
 
 import java.util.HashMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
-import org.bukkit.event.EventHandler;
-import org.bukkit.event.EventPriority;
-import org.bukkit.event.HandlerList;
-import org.bukkit.event.Listener;
-import org.bukkit.event.entity.EntityDamageByEntityEvent;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
-import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.util.Vector;
 
@@ -38,22 +35,30 @@ import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.PlayerConversationEndEvent;
 import pl.betoncraft.betonquest.api.PlayerConversationStartEvent;
 import pl.betoncraft.betonquest.config.Config;
-import pl.betoncraft.betonquest.config.ConfigPackage;
+import pl.betoncraft.betonquest.core.ConversationData.Option;
 import pl.betoncraft.betonquest.utils.Debug;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
 /**
- * Represents a conversation between QuestPlayer and Quester
+ * Represents a conversation between QuestPlayer and Quester.
+ * <p/>
+ * Conversations can be created from any thread, but they start, check
+ * conditions, fire events and process answers only on the main thread.
+ * Answers typed on the (asynchronous) chat are queued and handled on the
+ * main thread. The player is added to the list of active conversations
+ * atomically, so two conversations can't be started for one player.
+ * Events of players are passed to their conversations by
+ * {@link ConversationListener}.
  * 
  * @author Co0sh
  */
-public class Conversation implements Listener {
+public class Conversation {
 
     /**
      * Contains a list of players in active conversation, described by their
      * playerID, and their active conversation.
      */
-    private static HashMap<String, Conversation> list = new HashMap<>();
+    private static final ConcurrentHashMap<String, Conversation> list = new ConcurrentHashMap<>();
     /**
      * Represents name of the NPC
      */
@@ -75,9 +80,13 @@ public class Conversation implements Listener {
      */
     private final Location location;
     /**
-     * Map containing current player answers and their pointers
+     * Maximum distance from the location, squared
      */
-    private HashMap<Integer, String> current = new HashMap<>();
+    private final double maxDistanceSquared;
+    /**
+     * Map containing current player options by their numbers
+     */
+    private HashMap<Integer, Option> current = new HashMap<>();
     /**
      * Map containing hashes for tellraw answers
      */
@@ -91,25 +100,31 @@ public class Conversation implements Listener {
      */
     private boolean movementBlock;
     /**
-     * Raw list of final events, separated by commas
+     * Compiled conversation, shared with other players
+     */
+    private ConversationData data;
+    /**
+     * Set when the conversation has ended, it can end only once
      */
-    private String finalEvents;
+    private final AtomicBoolean ended = new AtomicBoolean(false);
     /**
-     * "Unknown" message said by NPC when he doesn't understand player's input
+     * Answers received from the chat, waiting to be processed on the main
+     * thread
      */
-    private String unknown;
+    private final ConcurrentLinkedQueue<String> answers = new ConcurrentLinkedQueue<>();
     /**
-     * First options for this conversation, separated by commas
+     * Set when processing of queued answers is scheduled
      */
-    private String startingOptions;
+    private final AtomicBoolean answering = new AtomicBoolean(false);
     /**
-     * Package in which this conversation is defined
+     * Set when the conversation has started on the main thread
      */
-    private ConfigPackage pack;
+    private volatile boolean started = false;
 
     /**
      * Constructor method, starts a new conversation between player and npc at
-     * given location
+     * given location. If it's not called on the main thread, the
+     * conversation will start on the next tick.
      * 
      * @param playerID
      * @param conversationID
@@ -121,6 +136,8 @@ public class Conversation implements Listener {
         this.player = PlayerConverter.getPlayer(playerID);
         this.location = location;
         this.tellraw = Config.getString("config.tellraw").equalsIgnoreCase("true");
+        int maxDistance = Integer.parseInt(Config.getString("config.max_npc_distance"));
+        this.maxDistanceSquared = (double) maxDistance * maxDistance;
 
         Debug.info("Starting conversation " + conversationID + " for player " + playerID);
 
@@ -130,68 +147,58 @@ public class Conversation implements Listener {
             return;
         }
 
-        // if the player has active conversation, terminate this one
-        if (list.containsKey(playerID)) {
-            Debug.info("Player " + playerID + " is in conversation right now, returning.");
-            return;
-        }
-        
-        // check if the package is alright
-        pack = Config.getPackage(packName);
-        if (pack == null) {
-            Debug.error("Package " + packName + " is not defined!");
+        // get the compiled conversation; errors in it were reported when it
+        // was loaded
+        data = ConversationData.get(packName, conversationID);
+        if (data == null) {
+            Debug.error("Conversation " + packName + "." + conversationID + " is not loaded!");
             return;
         }
+        this.quester = data.getQuester();
+        this.movementBlock = data.isStop();
 
-        // Check if everything is defined correctly, so the conversation doesn't
-        // start with invalid data
-        this.quester = pack.getString("conversations." + conversationID + ".quester");
-        this.finalEvents = pack.getString("conversations." + conversationID + ".final_events");
-        this.unknown = pack.getString("conversations." + conversationID + ".unknown");
-        // get initial npc's options
-        this.startingOptions = pack.getString("conversations." + conversationID + ".first");
-
-        // check if all data is valid (or at least exist)
-        if (quester == null || quester.equals("")) {
-            Debug.error("Quester's name is not defined in " + conversationID + " conversation!");
+        // add the player to the list of active conversations; if there
+        // already is an active conversation, terminate this one
+        if (list.putIfAbsent(playerID, this) != null) {
+            Debug.info("Player " + playerID + " is in conversation right now, returning.");
             return;
         }
-        if (unknown == null || unknown.equals("")) {
-            Debug.error("\"Unknown\" text is not defined in " + conversationID + " conversation!");
-            return;
+
+        // the rest must be done on the main thread
+        if (Bukkit.isPrimaryThread()) {
+            start();
+        } else {
+            new BukkitRunnable() {
+                @Override
+                public void run() {
+                    start();
+                }
+            }.runTask(BetonQuest.getInstance());
         }
-        if (startingOptions == null || startingOptions.equals("")) {
-            Debug.error("Starting options are not defined in " + conversationID + " conversation!");
+    }
+
+    /**
+     * Starts the conversation, which is already on the list of active
+     * conversations.
+     */
+    private void start() {
+        // the player could have left (or the conversation could have been
+        // ended by a reload) before the start
+        if (ended.get() || !player.isOnline()) {
+            list.remove(playerID, this);
             return;
         }
-        // if final events are not defined then set them to none
-        if (finalEvents == null) {
-            finalEvents = "";
-        }
 
-        // everything is ok, register conversation as listener and command and fire an event
-        BetonQuest.getInstance().getServer().getPluginManager()
-                .registerEvents(this, BetonQuest.getInstance());
-        
+        // everything is ok, start receiving player's events and fire an event
+        started = true;
         Bukkit.getServer().getPluginManager().callEvent(new PlayerConversationStartEvent(player, this));
 
-        // add the player to the list of active conversations
-        list.put(playerID, this);
-
         // print message about starting a conversation
         SimpleTextOutput.sendSystemMessage(playerID, Config.getMessage("conversation_start")
                 .replaceAll("%quester%", quester), Config.getString("config.sounds.start"));
 
-        // if stop is true stop the player from moving away
-        String stop = pack.getString("conversations." + conversationID + ".stop");
-        if (stop != null && stop.equalsIgnoreCase("true")) {
-            movementBlock = true;
-        } else {
-            movementBlock = false;
-        }
-
-        // print one of them
-        printNPCText(startingOptions);
+        // print one of the starting options
+        printNPCText(data.getStartingOptions());
     }
 
     /**
@@ -199,42 +206,22 @@ public class Conversation implements Listener {
      * option and displays it.
      * 
      * @param options
-     *            list of option pointers separated by commas
+     *            NPC options to choose from
      */
-    private void printNPCText(String options) {
-
-        // if options are empty end conversation
-        if (options.equals("")) {
-            endConversation();
-            return;
-        }
+    private void printNPCText(Option[] options) {
 
         // get npc's text
-        String option = null;
-        options: for (String NPCoption : options.split(",")) {
-            String rawConditions = pack.getString("conversations." + this.conversationID
-                    + ".NPC_options." + NPCoption + ".conditions");
-            if (rawConditions == null) {
+        Option option = null;
+        for (Option NPCoption : options) {
+            // the option is invalid, it was reported on loading
+            if (NPCoption == null) {
                 endConversation();
-                Debug.error("Conversation " + conversationID
-                    + " is missing conditions in NPC option " + NPCoption);
                 return;
             }
-            String[] conditions = rawConditions.split(",");
-            for (String condition : conditions) {
-                if (condition.equals("")) {
-                    option = NPCoption;
-                    break options;
-                }
-                if (!condition.contains(".")) {
-                    condition = pack.getName() + "." + condition;
-                }
-                if (!BetonQuest.condition(this.playerID, condition)) {
-                    continue options;
-                }
+            if (NPCoption.isAvailable(playerID)) {
+                option = NPCoption;
+                break;
             }
-            option = NPCoption;
-            break;
         }
 
         // if there are no possible options end conversation
@@ -244,29 +231,9 @@ public class Conversation implements Listener {
         }
 
         // and print it to player
-        String text = pack.getString("conversations." + this.conversationID  + ".NPC_options." + option + ".text");
-        if (text == null) {
-            Debug.error("Conversation " + conversationID + " is missing NPC text in option " + option);
-            endConversation();
-            return;
-        }
-        SimpleTextOutput.sendQuesterMessage(this.playerID, quester, text);
-
-        String events = pack.getString("conversations." + this.conversationID + ".NPC_options." + option + ".events");
-        if (events == null) {
-            Debug.error("Conversation " + conversationID + " is missing events in NPC option " + option);
-            endConversation();
-            return;
-        }
-        fireEvents(events);
-
-        String pointers = pack.getString("conversations." + this.conversationID + ".NPC_options." + option + ".pointer");
-        if (pointers == null) {
-            Debug.error("Conversation " + conversationID + " is missing pointer in NPC option " + option);
-            endConversation();
-            return;
-        }
-        printOptions(pointers);
+        SimpleTextOutput.sendQuesterMessage(playerID, quester, option.getText());
+        fireEvents(option.getEvents());
+        printOptions(option.getPointers());
     }
 
     /**
@@ -277,6 +244,11 @@ public class Conversation implements Listener {
      */
     public void passPlayerAnswer(String rawAnswer) {
 
+        // the conversation could have ended while the answer was waiting
+        if (ended.get()) {
+            return;
+        }
+
         String answer = rawAnswer.trim();
 
         // if answer isn't a number, or the number is greater than amount of
@@ -284,120 +256,69 @@ public class Conversation implements Listener {
         if (answer.equalsIgnoreCase("0") || !answer.matches("\\d+")
             || Integer.valueOf(answer) > current.size()) {
             // some text from npc saying that he doesn't understand player
-            SimpleTextOutput.sendQuesterMessage(playerID, quester, unknown);
+            SimpleTextOutput.sendQuesterMessage(playerID, quester, data.getUnknown());
             // and instructions from plugin about answering npcs
             SimpleTextOutput.sendSystemMessage(playerID, Config.getMessage("help_with_answering"), "false");
             return;
         }
 
-        // get the answer ID from player's response
-        Integer number = new Integer(answer);
-        String choosenAnswerID = current.get(number);
+        // get the answer from player's response
+        Option choosenAnswer = current.get(Integer.valueOf(answer));
 
         // clear hashmap
         current.clear();
         if (tellraw) hashes.clear();
 
         // print to player his answer
-        String reply = pack.getString("conversations." + conversationID + ".player_options." + choosenAnswerID + ".text");
-        SimpleTextOutput.sendPlayerReply(playerID, quester, reply);
+        SimpleTextOutput.sendPlayerReply(playerID, quester, choosenAnswer.getText());
 
         // fire events
-        String events = pack.getString("conversations." + conversationID + ".player_options." + choosenAnswerID + ".events");
-        if (events == null) {
-            Debug.error("Conversation " + conversationID + " is missing events in player option " + choosenAnswerID);
-            endConversation();
-            return;
-        }
-        fireEvents(events);
+        fireEvents(choosenAnswer.getEvents());
 
         // print to player npc's answer
-        String NPCanswer = pack.getString("conversations." + conversationID + ".player_options." + choosenAnswerID + ".pointer");
-        if (NPCanswer == null) {
-            Debug.error("Conversation " + conversationID + " is missing pointer in player option " + choosenAnswerID);
-            endConversation();
-            return;
-        }
-        printNPCText(NPCanswer);
+        printNPCText(choosenAnswer.getPointers());
     }
 
     /**
-     * Fires events from the string.
+     * Fires events for the player.
      * 
-     * @param rawEvents
-     *            list of event IDs separated by commas
+     * @param events
+     *            handles of events
      */
-    private void fireEvents(String rawEvents) {
-        // do nothing if its empty
-        if (!rawEvents.equalsIgnoreCase("")) {
-            // split it to individual event ids
-            String[] events = rawEvents.split(",");
-            // foreach eventID fire an event
-            for (String event : events) {
-        	if (!event.contains(".")) {
-        	    event = pack.getName() + "." + event;
-        	}
-                BetonQuest.event(playerID, event);
-            }
+    private void fireEvents(EventRef[] events) {
+        for (EventRef event : events) {
+            event.fire(playerID);
         }
     }
 
     /**
      * Prints answers the player can choose.
      * 
-     * @param rawOptions
-     *            list of pointers to player options separated by commas
+     * @param options
+     *            player options to print
      */
-    private void printOptions(String rawOptions) {
-
-        // if rawOptions are empty
-        if (rawOptions.equals("")) {
-            endConversation();
-            return;
-        }
-
-        // get IDs
-        String[] options = rawOptions.split(",");
+    private void printOptions(Option[] options) {
 
         // print them
         int i = 0;
-        answers: for (String option : options) {
-            // get conditions from config
-            String rawConditions = pack.getString("conversations." + conversationID + ".player_options." + option + ".conditions");
-            if (rawConditions == null) {
-                Debug.error("Conversation " + conversationID + " is missing conditions in player option " + option);
+        for (Option option : options) {
+            // the option is invalid, it was reported on loading
+            if (option == null) {
                 endConversation();
                 return;
             }
-            // if there are any conditions, do something with them
-            if (!rawConditions.equalsIgnoreCase("")) {
-                // split them to separate ids
-                String[] conditions = rawConditions.split(",");
-                // if some condition is not met, skip printing this option and move on
-                for (String condition : conditions) {
-                    if (!condition.contains(".")) {
-                	condition = pack.getName() + "." + condition;
-                    }
-                    if (!BetonQuest.condition(playerID, condition)) {
-                        continue answers;
-                    }
-                }
+            // if some condition is not met, skip printing this option
+            if (!option.isAvailable(playerID)) {
+                continue;
             }
             // i is for counting replies, like 1. something, 2. something else
             // etc.
             i++;
             // print reply
-            String reply = pack.getString("conversations." + conversationID + ".player_options." + option + ".text");
-            if (reply == null) {
-                Debug.error("Conversation " + conversationID + " is missing text in player option "
-                    + option);
-                endConversation();
-                return;
-            }
             String randomID = UUID.randomUUID().toString();
-            SimpleTextOutput.sendQuesterReply(playerID, i, quester, reply, randomID);
-            // put reply to hashmap in order to find it's ID when player responds by
-            // it's i number (id is string, we don't want to print it to player)
+            SimpleTextOutput.sendQuesterReply(playerID, i, quester, option.getText(), randomID);
+            // put reply to hashmap in order to find it when player responds by
+            // it's i number
             current.put(Integer.valueOf(i), option);
             if (tellraw) {
                 hashes.put(Integer.valueOf(i), randomID);
@@ -416,28 +337,23 @@ public class Conversation implements Listener {
      * active conversations
      */
     public void endConversation() {
-        // fire final events
-        if (!finalEvents.equals("")) {
-            String[] splitFinalEvents = finalEvents.split(",");
-            for (String event : splitFinalEvents) {
-                if (!event.contains(".")) {
-                    event = pack.getName() + "." + event;
-                }
-                BetonQuest.event(playerID, event);
-            }
+        // end the conversation only once
+        if (!ended.compareAndSet(false, true)) {
+            return;
         }
+        // fire final events
+        fireEvents(data.getFinalEvents());
         // print message
         SimpleTextOutput.sendSystemMessage(playerID, Config.getMessage("conversation_end")
                 .replaceAll("%quester%", quester), Config.getString("config.sounds.end"));
-        // delete conversation on the next tick to prevent errors
+        // delete conversation on the next tick to prevent errors; remove it
+        // only if it wasn't replaced by a new one already
         new BukkitRunnable() {
             @Override
             public void run() {
-                list.remove(playerID);
+                list.remove(playerID, Conversation.this);
             }
         }.runTask(BetonQuest.getInstance());
-        // unregister listener
-        HandlerList.unregisterAll(this);
         Bukkit.getServer().getPluginManager().callEvent(new PlayerConversationEndEvent(player, this));
     }
 
@@ -450,35 +366,52 @@ public class Conversation implements Listener {
         return movementBlock;
     }
 
-    @EventHandler(priority = EventPriority.LOWEST)
-    public void onReply(final AsyncPlayerChatEvent event) {
-        // return if it's someone else
-        if (event.getPlayer() != player) {
-            return;
-        }
+    /**
+     * @return true if the conversation has started and hasn't ended yet
+     */
+    public boolean isActive() {
+        return started && !ended.get();
+    }
+
+    /**
+     * Handles the chat message of the player, called on the chat thread.
+     * 
+     * @param event
+     *            the chat event
+     */
+    void onReply(AsyncPlayerChatEvent event) {
         if (event.getMessage().startsWith("#")) {
             event.setMessage(event.getMessage().substring(1).trim());
         } else {
             event.setCancelled(true);
-            // processing the answer should be done in a sync thread
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    passPlayerAnswer(event.getMessage());
-                }
-            }.runTask(BetonQuest.getInstance());
+            // processing the answer should be done in a sync thread; queue
+            // it and schedule processing if it isn't scheduled already
+            answers.add(event.getMessage());
+            if (answering.compareAndSet(false, true)) {
+                new BukkitRunnable() {
+                    @Override
+                    public void run() {
+                        answering.set(false);
+                        String answer;
+                        while ((answer = answers.poll()) != null) {
+                            passPlayerAnswer(answer);
+                        }
+                    }
+                }.runTask(BetonQuest.getInstance());
+            }
         }
     }
 
-    @EventHandler
-    public void onWalkAway(PlayerMoveEvent event) {
-        // return if it's someone else
-        if (!event.getPlayer().equals(player)) {
-            return;
-        }
+    /**
+     * Handles the movement of the player.
+     * 
+     * @param event
+     *            the move event
+     */
+    void onWalkAway(PlayerMoveEvent event) {
         // if player passes max distance
-        if (!event.getTo().getWorld().equals(location.getWorld()) || event.getTo().distance(location)
-                > Integer.valueOf(Config.getString("config.max_npc_distance"))) {
+        if (!event.getTo().getWorld().equals(location.getWorld())
+            || event.getTo().distanceSquared(location) > maxDistanceSquared) {
             // we can stop the player or end conversation
             if (isMovementBlock()) {
                 moveBack(event);
@@ -486,17 +419,6 @@ public class Conversation implements Listener {
                 endConversation();
             }
         }
-        return;
-    }
-    
-    @EventHandler
-    public void onDamage(EntityDamageByEntityEvent event) {
-        // prevent damage to (or from) player while in conversation
-        if ((event.getEntity() instanceof Player && PlayerConverter.getID((Player) event
-                .getEntity()).equals(playerID)) || (event.getDamager() instanceof Player &&
-                PlayerConverter.getID((Player) event.getDamager()).equals(playerID)) ) {
-            event.setCancelled(true);
-        }
     }
 
     /**
@@ -509,8 +431,8 @@ public class Conversation implements Listener {
     private void moveBack(PlayerMoveEvent event) {
         // if the player is in other world (he teleported himself), teleport him
         // back to the center of the conversation
-        if (!event.getTo().getWorld().equals(location.getWorld()) || event.getTo().distance(location)
-                > Integer.valueOf(Config.getString("config.max_npc_distance")) * 2) {
+        if (!event.getTo().getWorld().equals(location.getWorld())
+            || event.getTo().distanceSquared(location) > maxDistanceSquared * 4) {
             event.getPlayer().teleport(location);
             return;
         }
@@ -531,14 +453,6 @@ public class Conversation implements Listener {
         }
     }
 
-    @EventHandler
-    public void onQuit(PlayerQuitEvent event) {
-        // if player quits, end conversation (why keep listeners running?)
-        if (event.getPlayer().equals(player)) {
-            endConversation();
-        }
-    }
-
     /**
      * Checks if the player is in a conversation
      * 
@@ -554,10 +468,8 @@ public class Conversation implements Listener {
      * Ends every active conversation for every online player.
      */
     public static void clear() {
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            String playerID = PlayerConverter.getID(player);
-            if (list.containsKey(playerID))
-                list.get(playerID).endConversation();
+        for (Conversation conversation : list.values()) {
+            conversation.endConversation();
         }
     }
 
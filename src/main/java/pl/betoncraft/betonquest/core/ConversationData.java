@@ -0,0 +1,386 @@
+/**
+ * BetonQuest - advanced quests for Bukkit
+ * Copyright (C) 2015  Jakub "Co0sh" Sapalski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.betoncraft.betonquest.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import pl.betoncraft.betonquest.config.ConfigPackage;
+import pl.betoncraft.betonquest.utils.Debug;
+import pl.betoncraft.betonquest.utils.Utils;
+
+/**
+ * Conversation compiled from its file into a graph of options. It's created
+ * once when the plugin loads and shared by every player talking to the NPC.
+ * Options hold handles of their conditions and events, their texts with
+ * variables already inserted, and direct links to the options they point
+ * to. All errors in the file are reported while loading.
+ * 
+ * @author Co0sh
+ */
+public class ConversationData {
+
+    private final String packName;
+    private final String name;
+    private final String quester;
+    private final String unknown;
+    private final boolean stop;
+    private final EventRef[] finalEvents;
+    private final Option[] startingOptions;
+
+    /**
+     * Type of the option: said by the NPC or chosen by the player
+     */
+    public enum OptionType {
+        NPC, PLAYER
+    }
+
+    /**
+     * Compiles the conversation from its file.
+     * 
+     * @param pack
+     *            package of the conversation
+     * @param name
+     *            name of the conversation
+     * @param events
+     *            loaded events, used to report undefined ones
+     * @param conditions
+     *            loaded conditions, used to report undefined ones
+     * @throws InstructionParseException
+     *             if the conversation can't be started at all
+     */
+    private ConversationData(ConfigPackage pack, String name, Map<String, ?> events,
+            Map<String, ?> conditions) throws InstructionParseException {
+        this.packName = pack.getName();
+        this.name = name;
+        String prefix = "conversations." + name + ".";
+        quester = pack.getString(prefix + "quester");
+        if (quester == null || quester.equals("")) {
+            throw new InstructionParseException("Quester's name is not defined");
+        }
+        unknown = pack.getString(prefix + "unknown");
+        if (unknown == null || unknown.equals("")) {
+            throw new InstructionParseException("\"Unknown\" text is not defined");
+        }
+        String first = pack.getString(prefix + "first");
+        if (first == null || first.equals("")) {
+            throw new InstructionParseException("Starting options are not defined");
+        }
+        String stopString = pack.getString(prefix + "stop");
+        stop = stopString != null && stopString.equalsIgnoreCase("true");
+        finalEvents = events(pack.getString(prefix + "final_events"), events, "final events");
+        // create all options first, so pointers can be linked to them
+        FileConfiguration config = pack.getConversation(name).getConfig();
+        HashMap<String, Option> npcOptions = options(pack, OptionType.NPC, config
+                .getConfigurationSection("NPC_options"), events, conditions);
+        HashMap<String, Option> playerOptions = options(pack, OptionType.PLAYER, config
+                .getConfigurationSection("player_options"), events, conditions);
+        for (Option option : npcOptions.values()) {
+            option.link(playerOptions);
+        }
+        for (Option option : playerOptions.values()) {
+            option.link(npcOptions);
+        }
+        startingOptions = pointers(first, npcOptions, "starting options");
+    }
+
+    /**
+     * Compiles conversations in all packages of the definitions. It should
+     * be called after events and conditions are loaded, and can be called
+     * on any thread.
+     * 
+     * @param definitions
+     *            definitions with packages
+     * @param events
+     *            loaded events, by their IDs
+     * @param conditions
+     *            loaded conditions, by their IDs
+     * @return compiled conversations, by "package.name"
+     */
+    public static HashMap<String, ConversationData> load(final Definitions definitions,
+            final Map<String, ?> events, final Map<String, ?> conditions) {
+        // packages are compiled in parallel, the maps are only read
+        List<Callable<HashMap<String, ConversationData>>> tasks = new ArrayList<>();
+        for (final String packName : definitions.getPackageNames()) {
+            tasks.add(new Callable<HashMap<String, ConversationData>>() {
+                @Override
+                public HashMap<String, ConversationData> call() {
+                    return load(definitions.getPackage(packName), events, conditions);
+                }
+            });
+        }
+        HashMap<String, ConversationData> map = new HashMap<>();
+        for (HashMap<String, ConversationData> loaded : Utils.invokeAll(tasks)) {
+            map.putAll(loaded);
+        }
+        return map;
+    }
+
+    private static HashMap<String, ConversationData> load(ConfigPackage pack,
+            Map<String, ?> events, Map<String, ?> conditions) {
+        HashMap<String, ConversationData> map = new HashMap<>();
+        String packName = pack.getName();
+        for (String name : pack.getConversationNames()) {
+            try {
+                map.put(packName + "." + name, new ConversationData(pack, name, events,
+                        conditions));
+                Debug.info("  Conversation " + packName + "." + name + " loaded");
+            } catch (InstructionParseException e) {
+                Debug.error("Error in " + packName + "." + name + " conversation: "
+                        + e.getMessage());
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Returns the compiled conversation.
+     * 
+     * @param packName
+     *            name of the package
+     * @param name
+     *            name of the conversation
+     * @return the conversation or null if it's not loaded
+     */
+    public static ConversationData get(String packName, String name) {
+        return Definitions.get().getConversation(packName, name);
+    }
+
+    /**
+     * @return name of the package
+     */
+    public String getPackName() {
+        return packName;
+    }
+
+    /**
+     * @return name of the conversation
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return name of the NPC
+     */
+    public String getQuester() {
+        return quester;
+    }
+
+    /**
+     * @return the text said by the NPC when it doesn't understand the player
+     */
+    public String getUnknown() {
+        return unknown;
+    }
+
+    /**
+     * @return true if the player can't walk away from the conversation
+     */
+    public boolean isStop() {
+        return stop;
+    }
+
+    /**
+     * @return events fired when the conversation ends
+     */
+    public EventRef[] getFinalEvents() {
+        return finalEvents;
+    }
+
+    /**
+     * @return NPC options the conversation starts with; invalid ones are null
+     */
+    public Option[] getStartingOptions() {
+        return startingOptions;
+    }
+
+    private HashMap<String, Option> options(ConfigPackage pack, OptionType type,
+            ConfigurationSection section, Map<String, ?> events, Map<String, ?> conditions) {
+        HashMap<String, Option> options = new HashMap<>();
+        if (section == null) {
+            return options;
+        }
+        for (String optionName : section.getKeys(false)) {
+            try {
+                options.put(optionName, new Option(pack, type, optionName, events, conditions));
+            } catch (InstructionParseException e) {
+                Debug.error("Error in " + type + " option " + optionName + " in " + packName
+                        + "." + name + " conversation: " + e.getMessage());
+            }
+        }
+        return options;
+    }
+
+    private EventRef[] events(String raw, Map<String, ?> events, String where) {
+        List<EventRef> list = new ArrayList<>();
+        for (String ID : split(raw)) {
+            String eventID = ID.contains(".") ? ID : packName + "." + ID;
+            if (!events.containsKey(eventID)) {
+                Debug.error("Event " + eventID + " in " + where + " in " + packName + "."
+                        + name + " conversation is not defined!");
+            }
+            list.add(EventRef.get(eventID));
+        }
+        return list.toArray(new EventRef[list.size()]);
+    }
+
+    private ConditionRef[] conditions(String raw, Map<String, ?> conditions, String where) {
+        List<ConditionRef> list = new ArrayList<>();
+        for (String ID : split(raw)) {
+            ConditionRef ref = ConditionRef.get(ID.contains(".") ? ID : packName + "." + ID);
+            if (!conditions.containsKey(ref.getID())) {
+                Debug.error("Condition " + ref.getID() + " in " + where + " in " + packName + "."
+                        + name + " conversation is not defined!");
+            }
+            list.add(ref);
+        }
+        return list.toArray(new ConditionRef[list.size()]);
+    }
+
+    private Option[] pointers(String raw, Map<String, Option> targets, String where) {
+        String[] names = split(raw);
+        Option[] pointers = new Option[names.length];
+        for (int i = 0; i < names.length; i++) {
+            pointers[i] = targets.get(names[i]);
+            if (pointers[i] == null) {
+                Debug.error("Option " + names[i] + " in " + where + " in " + packName + "."
+                        + name + " conversation does not exist or is invalid!");
+            }
+        }
+        return pointers;
+    }
+
+    private static String[] split(String raw) {
+        if (raw == null || raw.isEmpty()) {
+            return new String[0];
+        }
+        List<String> list = new ArrayList<>();
+        for (String part : raw.split(",")) {
+            if (!part.isEmpty()) {
+                list.add(part);
+            }
+        }
+        return list.toArray(new String[list.size()]);
+    }
+
+    /**
+     * Single option of the conversation, said by the NPC or chosen by the
+     * player.
+     */
+    public class Option {
+
+        private final OptionType type;
+        private final String name;
+        private final String text;
+        private final ConditionRef[] conditions;
+        private final EventRef[] events;
+        private final String rawPointers;
+        private Option[] pointers;
+
+        private Option(ConfigPackage pack, OptionType type, String name, Map<String, ?> events,
+                Map<String, ?> conditions) throws InstructionParseException {
+            this.type = type;
+            this.name = name;
+            String prefix = "conversations." + ConversationData.this.name + "."
+                    + (type == OptionType.NPC ? "NPC_options." : "player_options.") + name + ".";
+            String where = type + " option " + name;
+            text = pack.getString(prefix + "text");
+            if (text == null) {
+                throw new InstructionParseException("Text is not defined");
+            }
+            String rawConditions = pack.getString(prefix + "conditions");
+            if (rawConditions == null) {
+                throw new InstructionParseException("Conditions are not defined");
+            }
+            String rawEvents = pack.getString(prefix + "events");
+            if (rawEvents == null) {
+                throw new InstructionParseException("Events are not defined");
+            }
+            rawPointers = pack.getString(prefix + "pointer");
+            if (rawPointers == null) {
+                throw new InstructionParseException("Pointer is not defined");
+            }
+            this.conditions = ConversationData.this.conditions(rawConditions, conditions, where);
+            this.events = ConversationData.this.events(rawEvents, events, where);
+        }
+
+        private void link(Map<String, Option> targets) {
+            pointers = ConversationData.this.pointers(rawPointers, targets, type + " option "
+                    + name);
+        }
+
+        /**
+         * @return the type of the option
+         */
+        public OptionType getType() {
+            return type;
+        }
+
+        /**
+         * @return name of the option
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return text of the option, with variables inserted
+         */
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * @return events fired when the option is said or chosen
+         */
+        public EventRef[] getEvents() {
+            return events;
+        }
+
+        /**
+         * @return options of the other type this option points to; invalid
+         *         ones are null
+         */
+        public Option[] getPointers() {
+            return pointers;
+        }
+
+        /**
+         * Checks if all conditions of the option are met.
+         * 
+         * @param playerID
+         *            ID of the player
+         * @return true if the option is available for the player
+         */
+        public boolean isAvailable(String playerID) {
+            for (ConditionRef condition : conditions) {
+                if (!condition.check(playerID)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * BetonQuest - advanced quests for Bukkit
+ * Copyright (C) 2015  Jakub "Co0sh" Sapalski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.betoncraft.betonquest.core;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.player.AsyncPlayerChatEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import pl.betoncraft.betonquest.BetonQuest;
+import pl.betoncraft.betonquest.utils.PlayerConverter;
+
+/**
+ * Passes events of players to their active conversations. There is only one
+ * listener for all conversations, which finds the conversation of the
+ * player directly.
+ * 
+ * @author Co0sh
+ */
+public class ConversationListener implements Listener {
+
+    /**
+     * Registers the conversation listener.
+     */
+    public ConversationListener() {
+        Bukkit.getPluginManager().registerEvents(this, BetonQuest.getInstance());
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onReply(AsyncPlayerChatEvent event) {
+        Conversation conv = getConversation(event.getPlayer());
+        if (conv != null) {
+            conv.onReply(event);
+        }
+    }
+
+    @EventHandler
+    public void onWalkAway(PlayerMoveEvent event) {
+        // the distance can change noticeably only when the block changes
+        Location from = event.getFrom(), to = event.getTo();
+        if (from.getBlockX() == to.getBlockX() && from.getBlockY() == to.getBlockY()
+            && from.getBlockZ() == to.getBlockZ() && from.getWorld().equals(to.getWorld())) {
+            return;
+        }
+        Conversation conv = getConversation(event.getPlayer());
+        if (conv != null) {
+            conv.onWalkAway(event);
+        }
+    }
+
+    @EventHandler
+    public void onDamage(EntityDamageByEntityEvent event) {
+        // prevent damage to (or from) player while in conversation
+        if (getConversation(event.getEntity()) != null || getConversation(event.getDamager()) != null) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler
+    public void onQuit(PlayerQuitEvent event) {
+        // if player quits, end conversation
+        Conversation conv = getConversation(event.getPlayer());
+        if (conv != null) {
+            conv.endConversation();
+        }
+    }
+
+    /**
+     * @return active conversation of the entity, or null if it's not a
+     *         player or the player is not in a conversation
+     */
+    private static Conversation getConversation(Entity entity) {
+        if (!(entity instanceof Player)) {
+            return null;
+        }
+        Conversation conv = Conversation.getConversation(PlayerConverter.getID((Player) entity));
+        if (conv == null || !conv.isActive()) {
+            return null;
+        }
+        return conv;
+    }
+}
@@ -0,0 +1,211 @@
+/**
+ * BetonQuest - advanced quests for Bukkit
+ * Copyright (C) 2015  Jakub "Co0sh" Sapalski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.betoncraft.betonquest.core;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import pl.betoncraft.betonquest.api.Condition;
+import pl.betoncraft.betonquest.api.QuestEvent;
+import pl.betoncraft.betonquest.config.ConfigPackage;
+
+/**
+ * Snapshot of all quest definitions: packages with their files (items,
+ * journal entries, cancelers, static events, global locations), NPC
+ * assignments, events, conditions and conversations. It's immutable; a
+ * reload builds a new snapshot in the background and publishes it with a
+ * single swap, so nothing ever sees half of the old and half of the new
+ * definitions.
+ * 
+ * @author Jakub Sapalski
+ */
+public class Definitions {
+
+    /**
+     * Published definitions
+     */
+    private static volatile Definitions current = new Definitions(
+            Collections.<String, ConfigPackage> emptyMap(), Collections.<String, String> emptyMap());
+    /**
+     * Definitions being loaded on this thread, if any
+     */
+    private static final ThreadLocal<Definitions> loading = new ThreadLocal<>();
+
+    private final Map<String, ConfigPackage> packages;
+    private final Map<String, String> npcs;
+    final RefTable.Linked<QuestEvent> events;
+    final RefTable.Linked<Condition> conditions;
+    private final Map<String, ConversationData> conversations;
+
+    /**
+     * Creates definitions with loaded packages, without any events,
+     * conditions or conversations.
+     * 
+     * @param packages
+     *            valid packages by their names
+     * @param npcs
+     *            IDs of conversations assigned to NPCs, by lower case NPC
+     *            IDs
+     */
+    public Definitions(Map<String, ConfigPackage> packages, Map<String, String> npcs) {
+        this(Collections.unmodifiableMap(new HashMap<>(packages)),
+                Collections.unmodifiableMap(new HashMap<>(npcs)),
+                EventRef.link(Collections.<String, QuestEvent> emptyMap()),
+                ConditionRef.link(Collections.<String, Condition> emptyMap()),
+                Collections.<String, ConversationData> emptyMap());
+    }
+
+    private Definitions(Map<String, ConfigPackage> packages, Map<String, String> npcs,
+            RefTable.Linked<QuestEvent> events, RefTable.Linked<Condition> conditions,
+            Map<String, ConversationData> conversations) {
+        this.packages = packages;
+        this.npcs = npcs;
+        this.events = events;
+        this.conditions = conditions;
+        this.conversations = conversations;
+    }
+
+    /**
+     * Creates definitions with the same packages and new events, conditions
+     * and conversations. Handles are linked to them once the result is
+     * published.
+     * 
+     * @param events
+     *            events by their IDs
+     * @param conditions
+     *            conditions by their IDs
+     * @param conversations
+     *            conversations by "package.name"
+     * @return new definitions
+     */
+    public Definitions withQuests(Map<String, QuestEvent> events, Map<String, Condition> conditions,
+            Map<String, ConversationData> conversations) {
+        return new Definitions(packages, npcs,
+                EventRef.link(Collections.unmodifiableMap(new HashMap<>(events))),
+                ConditionRef.link(Collections.unmodifiableMap(new HashMap<>(conditions))),
+                Collections.unmodifiableMap(new HashMap<>(conversations)));
+    }
+
+    /**
+     * Returns definitions visible to this thread: the ones being loaded if
+     * this thread is loading them, the published ones otherwise.
+     * 
+     * @return the definitions
+     */
+    public static Definitions get() {
+        Definitions definitions = loading.get();
+        return definitions != null ? definitions : current;
+    }
+
+    /**
+     * Publishes the definitions, replacing the current ones at once. It
+     * should be called on the main thread.
+     * 
+     * @param definitions
+     *            new definitions
+     */
+    public static void publish(Definitions definitions) {
+        current = definitions;
+    }
+
+    /**
+     * Wraps the task so it sees the definitions being loaded instead of the
+     * published ones, e.g. when events look up their packages.
+     * 
+     * @param definitions
+     *            definitions being loaded
+     * @param task
+     *            the task
+     * @return the wrapped task
+     */
+    public static <T> Callable<T> loading(final Definitions definitions, final Callable<T> task) {
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                Definitions previous = loading.get();
+                loading.set(definitions);
+                try {
+                    return task.call();
+                } finally {
+                    loading.set(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * @param name
+     *            name of the package
+     * @return the package or null if it's not loaded
+     */
+    public ConfigPackage getPackage(String name) {
+        return packages.get(name);
+    }
+
+    /**
+     * @return names of all loaded packages
+     */
+    public Set<String> getPackageNames() {
+        return packages.keySet();
+    }
+
+    /**
+     * @param npcID
+     *            ID of the NPC, case insensitive
+     * @return the ID of the conversation assigned to the NPC or null
+     */
+    public String getNpc(String npcID) {
+        return npcs.get(npcID.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @param packName
+     *            name of the package
+     * @param name
+     *            name of the conversation
+     * @return the compiled conversation or null if it's not loaded
+     */
+    public ConversationData getConversation(String packName, String name) {
+        return conversations.get(packName + "." + name);
+    }
+
+    /**
+     * @return the amount of loaded events
+     */
+    public int getEventCount() {
+        return events.size();
+    }
+
+    /**
+     * @return the amount of loaded conditions
+     */
+    public int getConditionCount() {
+        return conditions.size();
+    }
+
+    /**
+     * @return the amount of loaded conversations
+     */
+    public int getConversationCount() {
+        return conversations.size();
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * BetonQuest - advanced quests for Bukkit
+ * Copyright (C) 2015  Jakub "Co0sh" Sapalski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.betoncraft.betonquest.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import pl.betoncraft.betonquest.api.QuestEvent;
+import pl.betoncraft.betonquest.utils.Debug;
+
+/**
+ * Handle of an event, with the ID resolved only once. Firing it just calls
+ * the linked event. Handles are relinked to new events after a reload.
+ * 
+ * @author Jakub Sapalski
+ */
+public class EventRef {
+
+    /**
+     * Events linked to handles
+     */
+    private static final RefTable<QuestEvent> table = new RefTable<>();
+    /**
+     * Already created handles, by their IDs
+     */
+    private static final ConcurrentHashMap<String, EventRef> refs = new ConcurrentHashMap<>();
+
+    private final String ID;
+    private final int slot;
+
+    private EventRef(String ID, int slot) {
+        this.ID = ID;
+        this.slot = slot;
+    }
+
+    /**
+     * Returns the handle of the event.
+     * 
+     * @param eventID
+     *            full ID of the event
+     * @return the handle
+     */
+    public static EventRef get(String eventID) {
+        EventRef ref = refs.get(eventID);
+        if (ref == null) {
+            ref = new EventRef(eventID, table.slot(eventID));
+            EventRef previous = refs.putIfAbsent(eventID, ref);
+            if (previous != null) {
+                ref = previous;
+            }
+        }
+        return ref;
+    }
+
+    /**
+     * Returns the handle of the event for a one-off fire, e.g. from the API
+     * or a command. The handle is kept only if the event is defined; for
+     * unknown IDs it's resolved by the ID and then forgotten, so typos don't
+     * take slots forever.
+     * 
+     * @param eventID
+     *            full ID of the event
+     * @return the handle
+     */
+    public static EventRef find(String eventID) {
+        EventRef ref = refs.get(eventID);
+        if (ref != null) {
+            return ref;
+        }
+        if (Definitions.get().events.contains(eventID)) {
+            return get(eventID);
+        }
+        return new EventRef(eventID, RefTable.NO_SLOT);
+    }
+
+    /**
+     * Returns handles of all events in the array.
+     * 
+     * @param eventIDs
+     *            full IDs of events
+     * @return array of handles
+     */
+    public static EventRef[] get(String[] eventIDs) {
+        EventRef[] array = new EventRef[eventIDs.length];
+        for (int i = 0; i < eventIDs.length; i++) {
+            array[i] = get(eventIDs[i]);
+        }
+        return array;
+    }
+
+    /**
+     * Links all handles to events from the map. Handles switch to the new
+     * events when the definitions containing the table are published.
+     * 
+     * @param events
+     *            map of events by their IDs; it must not be modified later
+     * @return the table of linked events
+     */
+    static RefTable.Linked<QuestEvent> link(Map<String, QuestEvent> events) {
+        return table.link(events);
+    }
+
+    /**
+     * Fires the event for the player.
+     * 
+     * @param playerID
+     *            ID of the player
+     */
+    public void fire(String playerID) {
+        QuestEvent event = Definitions.get().events.get(slot, ID);
+        if (event == null) {
+            Debug.error("Event " + ID + " is not defined");
+            return;
+        }
+        event.fire(playerID);
+    }
+
+    /**
+     * @return full ID of the event
+     */
+    public String getID() {
+        return ID;
+    }
+
+    @Override
+    public String toString() {
+        return ID;
+    }
+}
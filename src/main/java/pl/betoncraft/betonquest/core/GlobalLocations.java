@@ -17,7 +17,6 @@
  */
 package pl.betoncraft.betonquest.core;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.bukkit.Bukkit;
@@ -28,7 +27,9 @@ import org.bukkit.scheduler.BukkitRunnable;
 import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.config.Config;
 import pl.betoncraft.betonquest.config.ConfigPackage;
+import pl.betoncraft.betonquest.database.DatabaseHandler;
 import pl.betoncraft.betonquest.utils.Debug;
+import pl.betoncraft.betonquest.utils.LocationIndex;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
 /**
@@ -39,14 +40,9 @@ import pl.betoncraft.betonquest.utils.PlayerConverter;
 public class GlobalLocations extends BukkitRunnable {
 
     /**
-     * Stores a temporary List of GlobalLocation objects
+     * Stores all valid global locations in a chunk grid
      */
-    private List<GlobalLocation> locations = new ArrayList<GlobalLocation>();
-    /**
-     * Stores final list of GlobalLocations objects, created from "locations"
-     * field
-     */
-    private final List<GlobalLocation> finalLocations;
+    private final LocationIndex<GlobalLocation> finalLocations = new LocationIndex<>();
     /**
      * Instance of active GlobalLocations handler
      */
@@ -57,7 +53,7 @@ public class GlobalLocations extends BukkitRunnable {
      */
     public GlobalLocations() {
         instance = this;
-        // get list of global locations and make it final
+        // index all global locations by their areas
         for (String packName : Config.getPackageNames()) {
             ConfigPackage pack = Config.getPackage(packName);
             String rawGlobalLocations = pack.getString("main.global_locations");
@@ -67,66 +63,61 @@ public class GlobalLocations extends BukkitRunnable {
             String[] parts = rawGlobalLocations.split(",");
             for (String event : parts) {
                 GlobalLocation gL = new GlobalLocation(pack, event);
-                if (gL.isValid())
-                    locations.add(gL);
+                if (gL.isValid()) {
+                    Location loc = gL.getLocation();
+                    finalLocations.add(loc.getWorld().getName(), loc.getX(), loc.getY(),
+                            loc.getZ(), gL.getDistance(), gL);
+                }
             }
         }
-        finalLocations = locations;
     }
 
     /**
      * Stops active global locations timer
      */
     public static void stop() {
-        instance.cancel();
+        if (instance != null) {
+            instance.cancel();
+        }
     }
 
     @Override
     public void run() {
         // do nothing if there is no defined locations
-        if (finalLocations == null) {
+        if (finalLocations.size() == 0) {
             this.cancel();
             return;
         }
         // loop all online players
         Player[] players = Bukkit.getOnlinePlayers();
         for (Player player : players) {
-            // for each player loop all available locations
-            locations: for (GlobalLocation location : finalLocations) {
-                // if location is not set, stop everything, there is an error in
-                // config
-                if (location.getLocation() == null) {
+            // for each player loop only locations which he is inside
+            List<GlobalLocation> inside = finalLocations.get(player.getLocation());
+            if (inside.isEmpty()) {
+                continue;
+            }
+            String playerID = PlayerConverter.getID(player);
+            DatabaseHandler dbHandler = BetonQuest.getInstance().getDBHandler(playerID);
+            if (dbHandler == null) {
+                continue;
+            }
+            locations: for (GlobalLocation location : inside) {
+                // check if player has already triggered this location
+                if (dbHandler.hasTag("global_" + location.getTag())) {
                     continue locations;
                 }
-                // if player is inside location, do stuff
-                if (player.getLocation().getWorld().equals(location.getLocation().getWorld())
-                    && player.getLocation().distanceSquared(
-                            new Location(
-                                    location.getLocation().getWorld(), location.getLocation()
-                                    .getX(), location.getLocation().getY(), location.getLocation()
-                                    .getZ())
-                            ) <= location.getDistance()*location.getDistance()) {
-                    // check if player has already triggered this location
-                    if (BetonQuest.getInstance().getDBHandler(PlayerConverter.getID(player))
-                            .hasTag("global_" + location.getTag())) {
+                // check all conditions
+                for (ConditionRef condition : location.getConditions()) {
+                    if (!condition.check(playerID)) {
+                        // if some conditions are not met, skip to next location
                         continue locations;
                     }
-                    // check all conditions
-                    if (location.getConditions() != null) {
-                        for (String condition : location.getConditions()) {
-                            if (!BetonQuest.condition(PlayerConverter.getID(player), condition)) {
-                                // if some conditions are not met, skip to next location
-                                continue locations;
-                            }
-                        }
-                    }
-                    // set the tag, player has triggered this location
-                    BetonQuest.getInstance().getDBHandler(PlayerConverter.getID(player))
-                            .addTag("global_" + location.getTag());
-                    // fire all events for the location
-                    for (String event : location.getEvents()) {
-                        BetonQuest.event(PlayerConverter.getID(player), event);
-                    }
+                }
+                // set the tag, player has triggered this location
+                dbHandler.addTag("global_" + location.getTag());
+                // fire all events for the location
+                for (EventRef event : location.getEvents()) {
+                    event.fire(playerID);
                 }
             }
         }
@@ -144,13 +135,13 @@ public class GlobalLocations extends BukkitRunnable {
          */
         private Location location;
         /**
-         * Stores an array of condition IDs for this global location.
+         * Stores an array of condition handles for this global location.
          */
-        private String[] conditions;
+        private ConditionRef[] conditions = new ConditionRef[0];
         /**
-         * Stores an array of event IDs for this global location.
+         * Stores an array of event handles for this global location.
          */
-        private String[] events;
+        private EventRef[] events = new EventRef[0];
         /**
          * Minimum distance the player needs to be near center to activate
          * global location.
@@ -216,20 +207,22 @@ public class GlobalLocations extends BukkitRunnable {
             // extract all conditions, events and the tag
             for (String part : parts) {
                 if (part.contains("conditions:")) {
-                    conditions = part.substring(11).split(",");
-                    for (int i = 0; i < conditions.length; i++) {
-                	if (!conditions[i].contains(".")) {
-                	    conditions[i] = pack.getName() + "." + conditions[i];
+                    String[] tempConditions = part.substring(11).split(",");
+                    for (int i = 0; i < tempConditions.length; i++) {
+                	if (!tempConditions[i].contains(".")) {
+                	    tempConditions[i] = pack.getName() + "." + tempConditions[i];
                 	}
                     }
+                    conditions = ConditionRef.get(tempConditions);
                 }
                 if (part.contains("events:")) {
-                    events = part.substring(7).split(",");
-                    for (int i = 0; i < events.length; i++) {
-                	if (!events[i].contains(".")) {
-                	    events[i] = pack.getName() + "." + events[i];
+                    String[] tempEvents = part.substring(7).split(",");
+                    for (int i = 0; i < tempEvents.length; i++) {
+                	if (!tempEvents[i].contains(".")) {
+                	    tempEvents[i] = pack.getName() + "." + tempEvents[i];
                 	}
                     }
+                    events = EventRef.get(tempEvents);
                 }
                 if (part.contains("label:")) {
                     tag = part.substring(6);
@@ -253,14 +246,14 @@ public class GlobalLocations extends BukkitRunnable {
         /**
          * @return the conditions
          */
-        public String[] getConditions() {
+        public ConditionRef[] getConditions() {
             return conditions;
         }
 
         /**
          * @return the events
          */
-        public String[] getEvents() {
+        public EventRef[] getEvents() {
             return events;
         }
 
@@ -0,0 +1,292 @@
+/**
+ * BetonQuest - advanced quests for Bukkit
+ * Copyright (C) 2015  Jakub "Co0sh" Sapalski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.betoncraft.betonquest.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import pl.betoncraft.betonquest.utils.Debug;
+
+/**
+ * Instruction string of an event, condition or objective, parsed once. It
+ * holds the parts of the instruction, the label and IDs of events and
+ * conditions with their packages already resolved.
+ * 
+ * @author Jakub Sapalski
+ */
+public class Instruction {
+
+    /**
+     * Raw instruction string
+     */
+    private final String instruction;
+    /**
+     * Name of the package used to resolve IDs, can be null
+     */
+    private final String packName;
+    /**
+     * Parts of the instruction, separated by spaces
+     */
+    private final String[] parts;
+    /**
+     * The label (without leading "label:"), or null if there is none
+     */
+    private final String label;
+    /**
+     * IDs of events from "events:" argument
+     */
+    private final String[] events;
+    /**
+     * IDs of conditions from "conditions:" argument
+     */
+    private final String[] conditions;
+    /**
+     * IDs of conditions from "event_conditions:" argument
+     */
+    private final String[] eventConditions;
+    /**
+     * Handles of events and conditions from these arguments
+     */
+    private final EventRef[] eventRefs;
+    private final ConditionRef[] conditionRefs, eventConditionRefs;
+
+    /**
+     * Parses the instruction string.
+     * 
+     * @param packName
+     *            name of the package in which the instruction is defined;
+     *            IDs without the package will be resolved to this one. If
+     *            it's null, such IDs are considered invalid and skipped.
+     * @param instruction
+     *            the instruction string
+     */
+    public Instruction(String packName, String instruction) {
+        this.instruction = instruction;
+        this.packName = packName;
+        this.parts = instruction.trim().split(" ");
+        this.label = getOptional("label");
+        this.events = resolve(getOptional("events"), "event");
+        this.conditions = resolve(getOptional("conditions"), "condition");
+        this.eventConditions = resolve(getOptional("event_conditions"), "condition");
+        this.eventRefs = EventRef.get(events);
+        this.conditionRefs = ConditionRef.get(conditions);
+        this.eventConditionRefs = ConditionRef.get(eventConditions);
+    }
+
+    /**
+     * Splits the comma separated list of IDs and adds the package to IDs
+     * which don't have it.
+     * 
+     * @param list
+     *            comma separated list of IDs
+     * @param type
+     *            type of IDs, used in the error message
+     * @return array of full IDs
+     */
+    private String[] resolve(String list, String type) {
+        if (list == null || list.isEmpty()) {
+            return new String[0];
+        }
+        String[] IDs = list.split(",");
+        List<String> resolved = new ArrayList<>(IDs.length);
+        for (String ID : IDs) {
+            if (ID.contains(".")) {
+                resolved.add(ID);
+            } else if (packName != null) {
+                resolved.add(packName + "." + ID);
+            } else {
+                Debug.error("Package not specified for " + type + " " + ID);
+            }
+        }
+        return resolved.toArray(new String[resolved.size()]);
+    }
+
+    /**
+     * @return the raw instruction string
+     */
+    public String getInstruction() {
+        return instruction;
+    }
+
+    /**
+     * @return the name of the package, can be null
+     */
+    public String getPackName() {
+        return packName;
+    }
+
+    /**
+     * @return all parts of the instruction
+     */
+    public String[] getParts() {
+        return parts;
+    }
+
+    /**
+     * @return the amount of parts in the instruction
+     */
+    public int size() {
+        return parts.length;
+    }
+
+    /**
+     * @return the type of the instruction (the first part)
+     */
+    public String getType() {
+        return parts[0];
+    }
+
+    /**
+     * @return the label or null if it wasn't defined
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return full IDs of events from "events:" argument
+     */
+    public String[] getEvents() {
+        return events;
+    }
+
+    /**
+     * @return full IDs of conditions from "conditions:" argument
+     */
+    public String[] getConditions() {
+        return conditions;
+    }
+
+    /**
+     * @return full IDs of conditions from "event_conditions:" argument
+     */
+    public String[] getEventConditions() {
+        return eventConditions;
+    }
+
+    /**
+     * @return handles of events from "events:" argument
+     */
+    public EventRef[] getEventRefs() {
+        return eventRefs;
+    }
+
+    /**
+     * @return handles of conditions from "conditions:" argument
+     */
+    public ConditionRef[] getConditionRefs() {
+        return conditionRefs;
+    }
+
+    /**
+     * @return handles of conditions from "event_conditions:" argument
+     */
+    public ConditionRef[] getEventConditionRefs() {
+        return eventConditionRefs;
+    }
+
+    /**
+     * Returns the part at the index.
+     * 
+     * @param index
+     *            index of the part
+     * @return the part
+     * @throws InstructionParseException
+     *             if there is no such part
+     */
+    public String getPart(int index) throws InstructionParseException {
+        if (index >= parts.length) {
+            throw new InstructionParseException("Not enough arguments");
+        }
+        return parts[index];
+    }
+
+    /**
+     * Returns the part at the index as an integer.
+     * 
+     * @param index
+     *            index of the part
+     * @return the number
+     * @throws InstructionParseException
+     *             if there is no such part or it's not a number
+     */
+    public int getInt(int index) throws InstructionParseException {
+        String part = getPart(index);
+        try {
+            return Integer.parseInt(part);
+        } catch (NumberFormatException e) {
+            throw new InstructionParseException("Could not parse a number: " + part);
+        }
+    }
+
+    /**
+     * Returns the part at the index as a decimal number.
+     * 
+     * @param index
+     *            index of the part
+     * @return the number
+     * @throws InstructionParseException
+     *             if there is no such part or it's not a number
+     */
+    public double getDouble(int index) throws InstructionParseException {
+        String part = getPart(index);
+        try {
+            return Double.parseDouble(part);
+        } catch (NumberFormatException e) {
+            throw new InstructionParseException("Could not parse a number: " + part);
+        }
+    }
+
+    /**
+     * Returns the value of an optional argument ("name:value").
+     * 
+     * @param name
+     *            name of the argument, without the colon
+     * @return the value or null if the argument is not present
+     */
+    public String getOptional(String name) {
+        String prefix = name + ":";
+        for (String part : parts) {
+            if (part.startsWith(prefix)) {
+                return part.substring(prefix.length());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the instruction contains the argument (e.g. "notify").
+     * 
+     * @param name
+     *            the argument
+     * @return true if the argument is present
+     */
+    public boolean hasArgument(String name) {
+        for (String part : parts) {
+            if (part.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return instruction;
+    }
+}
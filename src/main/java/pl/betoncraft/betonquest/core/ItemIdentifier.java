@@ -0,0 +1,120 @@
+/**
+ * BetonQuest - advanced quests for Bukkit
+ * Copyright (C) 2015  Jakub "Co0sh" Sapalski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.betoncraft.betonquest.core;
+
+import java.util.List;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.BookMeta;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import pl.betoncraft.betonquest.config.Config;
+
+/**
+ * Recognizes quest items and journals. Marker strings are prepared once per
+ * reload and the item meta (which is copied on every access) is read at
+ * most once per check.
+ * 
+ * @author Jakub Sapalski
+ */
+public class ItemIdentifier {
+
+    /**
+     * Kinds of items recognized by BetonQuest
+     */
+    public enum Kind {
+        NONE, QUEST_ITEM, JOURNAL
+    }
+
+    /**
+     * Marker strings of the current configuration
+     */
+    private static volatile Markers markers;
+
+    /**
+     * Prepares marker strings from the configuration. Call it after the
+     * configuration was (re)loaded.
+     */
+    public static void reload() {
+        markers = new Markers();
+    }
+
+    /**
+     * @return title of the journal, with colors
+     */
+    public static String getJournalTitle() {
+        return markers().journalTitle;
+    }
+
+    /**
+     * @return lore line marking the journal, with colors
+     */
+    public static String getJournalLore() {
+        return markers().journalLore;
+    }
+
+    /**
+     * Checks what kind of item is this.
+     * 
+     * @param item
+     *            the item to check, can be null
+     * @return the kind of the item
+     */
+    public static Kind identify(ItemStack item) {
+        // items without meta can't have lore; hasItemMeta() doesn't copy
+        // the meta, so it's checked first
+        if (item == null || !item.hasItemMeta()) {
+            return Kind.NONE;
+        }
+        Markers markers = markers();
+        ItemMeta meta = item.getItemMeta();
+        if (!meta.hasLore()) {
+            return Kind.NONE;
+        }
+        List<String> lore = meta.getLore();
+        if (item.getType() == Material.WRITTEN_BOOK && lore.contains(markers.journalLore)) {
+            BookMeta book = (BookMeta) meta;
+            if (book.hasTitle() && book.getTitle().equals(markers.journalTitle)) {
+                return Kind.JOURNAL;
+            }
+        }
+        if (lore.contains(markers.questItem)) {
+            return Kind.QUEST_ITEM;
+        }
+        return Kind.NONE;
+    }
+
+    private static Markers markers() {
+        Markers current = markers;
+        if (current == null) {
+            current = markers = new Markers();
+        }
+        return current;
+    }
+
+    /**
+     * Marker strings with color codes already replaced.
+     */
+    private static class Markers {
+
+        private final String questItem = Config.getMessage("quest_item").replaceAll("&", "§");
+        private final String journalTitle = Config.getMessage("journal_title").replaceAll("&", "§");
+        private final String journalLore = Config.getMessage("journal_lore").replaceAll("&", "§");
+    }
+}
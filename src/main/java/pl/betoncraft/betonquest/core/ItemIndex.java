@@ -0,0 +1,172 @@
+/**
+ * BetonQuest - advanced quests for Bukkit
+ * Copyright (C) 2015  Jakub "Co0sh" Sapalski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.betoncraft.betonquest.core;
+
+import java.util.HashMap;
+
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+import pl.betoncraft.betonquest.utils.PlayerConverter;
+
+/**
+ * Counts quest items in player's inventory and backpack. Counts in the
+ * backpack are kept until the backpack changes; the inventory is changed by
+ * Minecraft itself in many ways, so it's counted on every call (results of
+ * conditions are cached anyway).
+ * 
+ * @author Jakub Sapalski
+ */
+public class ItemIndex {
+
+    private final String playerID;
+    private final Backpack backpack;
+    private final HashMap<QuestItem, Integer> backpackCounts = new HashMap<>();
+
+    /**
+     * Creates the index of player's items.
+     * 
+     * @param playerID
+     *            ID of the player
+     * @param backpack
+     *            player's backpack
+     */
+    public ItemIndex(String playerID, Backpack backpack) {
+        this.playerID = playerID;
+        this.backpack = backpack;
+    }
+
+    /**
+     * Returns the amount of quest items in player's inventory and backpack.
+     * 
+     * @param questItem
+     *            the item to count
+     * @return the amount of items
+     */
+    public synchronized int count(QuestItem questItem) {
+        return countInventory(questItem) + countBackpack(questItem);
+    }
+
+    /**
+     * Returns the amount of quest items in player's inventory (without
+     * armor slots).
+     * 
+     * @param questItem
+     *            the item to count
+     * @return the amount of items, 0 if the player is offline
+     */
+    public int countInventory(QuestItem questItem) {
+        int count = 0;
+        Player player = PlayerConverter.getPlayer(playerID);
+        if (player != null) {
+            for (ItemStack item : player.getInventory().getContents()) {
+                if (questItem.equalsI(item)) {
+                    count += item.getAmount();
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the amount of quest items in player's backpack.
+     * 
+     * @param questItem
+     *            the item to count
+     * @return the amount of items
+     */
+    public synchronized int countBackpack(QuestItem questItem) {
+        Integer count = backpackCounts.get(questItem);
+        if (count == null) {
+            count = 0;
+            for (ItemStack item : backpack.getItems()) {
+                if (questItem.equalsI(item)) {
+                    count += item.getAmount();
+                }
+            }
+            backpackCounts.put(questItem, count);
+        }
+        return count;
+    }
+
+    /**
+     * Removes quest items from player's inventory, armor slots and backpack,
+     * in this order. Only slots with matching items are modified.
+     * 
+     * @param questItem
+     *            the item to remove
+     * @param amount
+     *            amount of items to remove
+     * @return the amount of items which could not be removed
+     */
+    public synchronized int take(QuestItem questItem, int amount) {
+        Player player = PlayerConverter.getPlayer(playerID);
+        if (player != null) {
+            PlayerInventory inventory = player.getInventory();
+            ItemStack[] contents = inventory.getContents();
+            for (int i = 0; i < contents.length && amount > 0; i++) {
+                if (questItem.equalsI(contents[i])) {
+                    amount = take(contents[i], amount);
+                    inventory.setItem(i, contents[i].getAmount() > 0 ? contents[i] : null);
+                }
+            }
+            if (amount > 0) {
+                ItemStack[] armor = inventory.getArmorContents();
+                boolean changed = false;
+                for (int i = 0; i < armor.length && amount > 0; i++) {
+                    if (questItem.equalsI(armor[i])) {
+                        amount = take(armor[i], amount);
+                        if (armor[i].getAmount() <= 0) {
+                            armor[i] = null;
+                        }
+                        changed = true;
+                    }
+                }
+                if (changed) {
+                    inventory.setArmorContents(armor);
+                }
+            }
+        }
+        if (amount > 0 && countBackpack(questItem) > 0) {
+            amount = backpack.take(questItem, amount);
+            backpackCounts.clear();
+        }
+        ConditionCache.invalidate(playerID);
+        return amount;
+    }
+
+    /**
+     * Takes up to the amount of items from the stack.
+     * 
+     * @return the amount left to take
+     */
+    private static int take(ItemStack item, int amount) {
+        int taken = Math.min(item.getAmount(), amount);
+        item.setAmount(item.getAmount() - taken);
+        return amount - taken;
+    }
+
+    /**
+     * Forgets counts of items in the backpack. Call it when the backpack has
+     * changed.
+     */
+    public synchronized void backpackChanged() {
+        backpackCounts.clear();
+    }
+}
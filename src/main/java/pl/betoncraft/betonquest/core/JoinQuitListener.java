@@ -26,7 +26,6 @@ import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.AsyncPlayerPreLoginEvent.Result;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.config.Config;
@@ -100,16 +99,13 @@ public class JoinQuitListener implements Listener {
 
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
-        final String playerID = PlayerConverter.getID(event.getPlayer());
-        // save in async thread
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                DatabaseHandler dbHandler = BetonQuest.getInstance().getDBHandler(playerID);
-                dbHandler.saveData();
-                dbHandler.removeData();
-                BetonQuest.getInstance().removeDBHandler(playerID);
-            }
-        }.runTaskAsynchronously(instance);
+        String playerID = PlayerConverter.getID(event.getPlayer());
+        // queue the changes and make the saver write them right away
+        DatabaseHandler dbHandler = instance.getDBHandler(playerID);
+        dbHandler.saveData();
+        dbHandler.removeData();
+        instance.removeDBHandler(playerID);
+        instance.getSaver().requestFlush();
+        ConditionCache.invalidate(playerID);
     }
 }
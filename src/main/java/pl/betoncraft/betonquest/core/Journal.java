@@ -19,7 +19,6 @@ package pl.betoncraft.betonquest.core;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 import org.bukkit.Material;
@@ -51,9 +50,23 @@ public class Journal {
      */
     private List<Pointer> pointers;
     /**
-     * List of texts generated from pointers.
+     * List of texts generated from pointers, in the same order as pointers.
+     * Texts of pointers from missing packages are null.
      */
     private List<String> texts = new ArrayList<String>();
+    /**
+     * Pages of the journal book, null if entries changed since they were
+     * generated
+     */
+    private List<String> pages;
+    /**
+     * The journal book, null if entries changed since it was generated
+     */
+    private ItemStack book;
+    /**
+     * Format of journal entries, shared by all journals
+     */
+    private static volatile Style style;
 
     /**
      * Creates new Journal instance from List of Pointers.
@@ -65,7 +78,9 @@ public class Journal {
         // generate texts from list of pointers
         this.playerID = playerID;
         pointers = list;
-        generateTexts();
+        for (Pointer pointer : pointers) {
+            texts.add(generateText(pointer));
+        }
     }
 
     /**
@@ -89,7 +104,10 @@ public class Journal {
         Debug.info("Adding new pointer \"" + pointer.getPointer() + "\" / " + pointer
                 .getTimestamp() + " to journal for player " + playerID);
         pointers.add(pointer);
-        generateTexts();
+        texts.add(generateText(pointer));
+        pages = null;
+        book = null;
+        ConditionCache.invalidate(playerID);
     }
 
     /**
@@ -98,28 +116,50 @@ public class Journal {
      * @return list of Strings - texts for every journal entry
      */
     public List<String> getText() {
-        return Lists.reverse(texts);
+        List<String> list = new ArrayList<>(texts.size());
+        for (String text : Lists.reverse(texts)) {
+            if (text != null) {
+                list.add(text);
+            }
+        }
+        return list;
     }
 
     /**
-     * Generates texts for every pointer and places them inside a List
+     * Generates texts for every pointer and places them inside a List. It
+     * also reloads the format of entries, so call it after the configuration
+     * was reloaded.
      */
     public void generateTexts() {
+        style = new Style();
         texts.clear();
         for (Pointer pointer : pointers) {
-            String date = new SimpleDateFormat(Config.getString("messages.global.date_format")).format(pointer.getTimestamp());
-            String day = "§" + Config.getString("config.journal_colors.date.day") + date.split(" ")[0];
-            String hour = "§" + Config.getString("config.journal_colors.date.hour") + date.split(" ")[1];
-            String[] parts = pointer.getPointer().split("\\.");
-            String packName = parts[0];
-            ConfigPackage pack = Config.getPackage(packName);
-            if (pack == null) {
-                continue;
-            }
-            String pointerName = parts[1];
-            texts.add(day + " " + hour + "§" + Config.getString("config.journal_colors.text") + "\n" 
-                    + pack.getString("journal." + pointerName));
+            texts.add(generateText(pointer));
         }
+        pages = null;
+        book = null;
+    }
+
+    /**
+     * Generates the text of a single journal entry.
+     * 
+     * @param pointer
+     *            pointer to the entry
+     * @return the text or null if the package of this entry doesn't exist
+     */
+    private static String generateText(Pointer pointer) {
+        String[] parts = pointer.getPointer().split("\\.");
+        ConfigPackage pack = Config.getPackage(parts[0]);
+        if (pack == null) {
+            return null;
+        }
+        Style style = Journal.style;
+        if (style == null) {
+            style = Journal.style = new Style();
+        }
+        String[] date = style.date.get().format(pointer.getTimestamp()).split(" ");
+        return style.day + date[0] + " " + style.hour + date[1] + style.text + "\n"
+                + pack.getString("journal." + parts[1]);
     }
 
     /**
@@ -128,6 +168,8 @@ public class Journal {
     public void clear() {
         texts.clear();
         pointers.clear();
+        pages = null;
+        book = null;
     }
     
     /**
@@ -172,26 +214,47 @@ public class Journal {
      * @return the journal ItemStack
      */
     public ItemStack generateJournal() {
+        return getBook().clone();
+    }
+
+    /**
+     * Returns the journal book, generating it only if entries have changed.
+     * Don't modify the returned ItemStack.
+     * 
+     * @return the journal ItemStack
+     */
+    ItemStack getBook() {
+        if (book != null) {
+            return book;
+        }
         // create the book with default title/author
         ItemStack item = new ItemStack(Material.WRITTEN_BOOK);
         BookMeta meta = (BookMeta) item.getItemMeta();
-        meta.setTitle(Config.getMessage("journal_title").replaceAll("&", "§"));
+        meta.setTitle(ItemIdentifier.getJournalTitle());
         meta.setAuthor(PlayerConverter.getPlayer(playerID).getName());
         List<String> lore = new ArrayList<String>();
-        lore.add(Config.getMessage("journal_lore").replaceAll("&", "§"));
+        lore.add(ItemIdentifier.getJournalLore());
         meta.setLore(lore);
 
-        // logic for converting entries into single text and then to pages
-        StringBuilder stringBuilder = new StringBuilder();
-        for (String entry : getText()) {
-            stringBuilder.append(entry.replaceAll("&", "§") + "\n§"
-                + Config.getString("config.journal_colors.line") + "---------------\n");
+        // logic for converting entries into single text and then to pages;
+        // entries flow through pages, so they are paginated again only when
+        // some entry has changed
+        if (pages == null) {
+            Style style = Journal.style;
+            if (style == null) {
+                style = Journal.style = new Style();
+            }
+            StringBuilder stringBuilder = new StringBuilder();
+            for (String entry : getText()) {
+                stringBuilder.append(entry.replace('&', '§')).append(style.line);
+            }
+            pages = Utils.pagesFromString(stringBuilder.toString().trim(), true);
         }
-        String wholeString = stringBuilder.toString().trim();
 
         // return ready journal ItemStack
-        meta.setPages(Utils.pagesFromString(wholeString, true));
+        meta.setPages(pages);
         item.setItemMeta(meta);
+        book = item;
         return item;
     }
     
@@ -236,16 +299,11 @@ public class Journal {
      * @return true if the ItemStack is the journal, false otherwise
      */
     public static boolean isJournal(ItemStack item) {
-        // if there is no item then it's not a journal
-        if (item == null) {
+        // only written books can be journals, don't look at other items
+        if (item == null || item.getType() != Material.WRITTEN_BOOK) {
             return false;
         }
-        // check all properties of the item and return the result
-        return (item.getType().equals(Material.WRITTEN_BOOK)
-            && ((BookMeta) item.getItemMeta()).hasTitle()
-            && ((BookMeta) item.getItemMeta()).getTitle().equals(Config.getMessage("journal_title").replaceAll("&", "§"))
-            && item.getItemMeta().hasLore()
-            && item.getItemMeta().getLore().contains(Config.getMessage("journal_lore").replaceAll("&", "§")));
+        return ItemIdentifier.identify(item) == ItemIdentifier.Kind.JOURNAL;
     }
     
     /**
@@ -265,13 +323,39 @@ public class Journal {
     }
     
     public void removePointer(String pointer) {
-        for (Iterator<Pointer> iterator = pointers.iterator(); iterator.hasNext();) {
-            Pointer pointerr = (Pointer) iterator.next();
-            if (pointerr.getPointer().equalsIgnoreCase(pointer)) {
-                iterator.remove();
+        for (int i = 0; i < pointers.size(); i++) {
+            if (pointers.get(i).getPointer().equalsIgnoreCase(pointer)) {
+                pointers.remove(i);
+                texts.remove(i);
+                pages = null;
+                book = null;
                 break;
             }
         }
-        generateTexts();
+        ConditionCache.invalidate(playerID);
+    }
+
+    /**
+     * Format of journal entries read from the configuration. Date formats
+     * aren't thread safe, so every thread gets its own.
+     */
+    private static class Style {
+
+        private final String day, hour, text, line;
+        private final ThreadLocal<SimpleDateFormat> date;
+
+        private Style() {
+            day = "§" + Config.getString("config.journal_colors.date.day");
+            hour = "§" + Config.getString("config.journal_colors.date.hour");
+            text = "§" + Config.getString("config.journal_colors.text");
+            line = "\n§" + Config.getString("config.journal_colors.line") + "---------------\n";
+            final String pattern = Config.getString("messages.global.date_format");
+            date = new ThreadLocal<SimpleDateFormat>() {
+                @Override
+                protected SimpleDateFormat initialValue() {
+                    return new SimpleDateFormat(pattern);
+                }
+            };
+        }
     }
 }
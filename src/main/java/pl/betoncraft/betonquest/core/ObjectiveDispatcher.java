@@ -0,0 +1,422 @@
+/**
+ * BetonQuest - advanced quests for Bukkit
+ * Copyright (C) 2015  Jakub "Co0sh" Sapalski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.betoncraft.betonquest.core;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.Projectile;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.event.entity.EntityTameEvent;
+import org.bukkit.event.entity.ProjectileHitEvent;
+import org.bukkit.event.inventory.FurnaceExtractEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.player.PlayerEvent;
+import org.bukkit.plugin.EventExecutor;
+
+import pl.betoncraft.betonquest.BetonQuest;
+import pl.betoncraft.betonquest.api.Objective;
+import pl.betoncraft.betonquest.utils.Debug;
+import pl.betoncraft.betonquest.utils.PlayerConverter;
+
+/**
+ * Routes Bukkit events to active objectives. There is only one Bukkit
+ * listener per event type and priority, and it passes the event only to the
+ * objectives of players involved in that event, instead of every objective
+ * on the server.
+ * 
+ * @author Co0sh
+ */
+public class ObjectiveDispatcher implements Listener {
+
+    /**
+     * Instance of active dispatcher
+     */
+    private static ObjectiveDispatcher instance;
+    /**
+     * Stores event handler methods of every objective class
+     */
+    private final ConcurrentHashMap<Class<?>, List<HandlerMethod>> methods = new ConcurrentHashMap<>();
+    /**
+     * Stores channels for every event type and priority
+     */
+    private final HashMap<Class<? extends Event>, HashMap<EventPriority, Channel>> channels = new HashMap<>();
+    /**
+     * Stores extractors of players involved in events, which are not known
+     * to BetonQuest itself
+     */
+    private final ConcurrentHashMap<Class<? extends Event>, PlayerExtractor> extractors = new ConcurrentHashMap<>();
+
+    /**
+     * Creates new dispatcher for objective events.
+     */
+    public ObjectiveDispatcher() {
+        instance = this;
+    }
+
+    /**
+     * Registers all event handlers of the objective, so it will receive events
+     * involving the player.
+     * 
+     * @param playerID
+     *            ID of the player who owns the objective
+     * @param objective
+     *            the objective to register
+     */
+    public static void register(String playerID, Objective objective) {
+        if (!(objective instanceof Listener)) {
+            return;
+        }
+        // older objectives register themselves in Bukkit, this would
+        // fire them twice
+        HandlerList.unregisterAll((Listener) objective);
+        for (HandlerMethod method : instance.getMethods(objective.getClass())) {
+            Channel channel = instance.getChannel(method.eventClass, method.priority);
+            if (channel != null) {
+                channel.add(playerID, new Handler(objective, method));
+            }
+        }
+    }
+
+    /**
+     * Unregisters all event handlers of the objective.
+     * 
+     * @param playerID
+     *            ID of the player who owns the objective
+     * @param objective
+     *            the objective to unregister
+     */
+    public static void unregister(String playerID, Objective objective) {
+        if (!(objective instanceof Listener)) {
+            return;
+        }
+        for (HandlerMethod method : instance.getMethods(objective.getClass())) {
+            Channel channel = instance.getChannel(method.eventClass, method.priority);
+            if (channel != null) {
+                channel.remove(playerID, objective);
+            }
+        }
+    }
+
+    /**
+     * Registers a way to get players involved in the custom event. Events
+     * without such extractor will be passed to every objective handling them.
+     * 
+     * @param eventClass
+     *            class of the event
+     * @param extractor
+     *            extractor of players involved in the event
+     */
+    public static void registerExtractor(Class<? extends Event> eventClass, PlayerExtractor extractor) {
+        instance.extractors.put(eventClass, extractor);
+    }
+
+    /**
+     * Returns the list of event handler methods in the objective class. They
+     * are found in the same way Bukkit finds them in listeners.
+     * 
+     * @param objectiveClass
+     *            class of the objective
+     * @return list of handler methods
+     */
+    @SuppressWarnings("unchecked")
+    private List<HandlerMethod> getMethods(Class<?> objectiveClass) {
+        List<HandlerMethod> list = methods.get(objectiveClass);
+        if (list != null) {
+            return list;
+        }
+        list = new ArrayList<>();
+        Set<Method> candidates = new HashSet<>();
+        Collections.addAll(candidates, objectiveClass.getMethods());
+        Collections.addAll(candidates, objectiveClass.getDeclaredMethods());
+        for (Method method : candidates) {
+            EventHandler annotation = method.getAnnotation(EventHandler.class);
+            if (annotation == null || method.isBridge() || method.isSynthetic()) {
+                continue;
+            }
+            Class<?>[] params = method.getParameterTypes();
+            if (params.length != 1 || !Event.class.isAssignableFrom(params[0])) {
+                Debug.error("Invalid event handler " + method.getName() + " in objective "
+                    + objectiveClass.getSimpleName());
+                continue;
+            }
+            method.setAccessible(true);
+            list.add(new HandlerMethod(method, (Class<? extends Event>) params[0],
+                    annotation.priority(), annotation.ignoreCancelled()));
+        }
+        methods.put(objectiveClass, list);
+        return list;
+    }
+
+    /**
+     * Returns the channel for specified event type and priority, registering
+     * it in Bukkit if it doesn't exist yet.
+     * 
+     * @param eventClass
+     *            class of the event
+     * @param priority
+     *            priority of the handler
+     * @return the channel or null if the event cannot be listened to
+     */
+    private synchronized Channel getChannel(Class<? extends Event> eventClass, EventPriority priority) {
+        HashMap<EventPriority, Channel> byPriority = channels.get(eventClass);
+        if (byPriority == null) {
+            byPriority = new HashMap<>();
+            channels.put(eventClass, byPriority);
+        }
+        if (byPriority.containsKey(priority)) {
+            return byPriority.get(priority);
+        }
+        Channel channel = new Channel(eventClass);
+        try {
+            Bukkit.getPluginManager().registerEvent(eventClass, this, priority, channel,
+                    BetonQuest.getInstance());
+        } catch (Exception e) {
+            Debug.error("Could not listen to " + eventClass.getSimpleName() + ": " + e.getMessage());
+            channel = null;
+        }
+        byPriority.put(priority, channel);
+        return channel;
+    }
+
+    /**
+     * Returns a list of players involved in the event.
+     * 
+     * @param event
+     *            the event
+     * @return list of players (possibly empty) or null if there is no way to
+     *         find out who is involved
+     */
+    private List<Player> getPlayers(Event event) {
+        List<Player> players = new ArrayList<>(2);
+        if (event instanceof PlayerEvent) {
+            players.add(((PlayerEvent) event).getPlayer());
+        } else if (event instanceof BlockBreakEvent) {
+            players.add(((BlockBreakEvent) event).getPlayer());
+        } else if (event instanceof BlockPlaceEvent) {
+            players.add(((BlockPlaceEvent) event).getPlayer());
+        } else if (event instanceof FurnaceExtractEvent) {
+            players.add(((FurnaceExtractEvent) event).getPlayer());
+        } else if (event instanceof InventoryClickEvent) {
+            addPlayer(players, ((InventoryClickEvent) event).getWhoClicked());
+        } else if (event instanceof EntityTameEvent) {
+            Object owner = ((EntityTameEvent) event).getOwner();
+            if (owner instanceof Player) {
+                players.add((Player) owner);
+            }
+        } else if (event instanceof ProjectileHitEvent) {
+            addShooter(players, ((ProjectileHitEvent) event).getEntity());
+        } else if (event instanceof EntityDeathEvent) {
+            // both the dead player and the killer are involved
+            EntityDeathEvent death = (EntityDeathEvent) event;
+            addPlayer(players, death.getEntity());
+            addPlayer(players, death.getEntity().getKiller());
+            EntityDamageEvent cause = death.getEntity().getLastDamageCause();
+            if (cause instanceof EntityDamageByEntityEvent) {
+                Entity damager = ((EntityDamageByEntityEvent) cause).getDamager();
+                addPlayer(players, damager);
+                if (damager instanceof Projectile) {
+                    addShooter(players, (Projectile) damager);
+                }
+            }
+        } else if (event instanceof EntityDamageEvent) {
+            addPlayer(players, ((EntityDamageEvent) event).getEntity());
+        } else {
+            Class<?> eventClass = event.getClass();
+            while (eventClass != null && Event.class.isAssignableFrom(eventClass)) {
+                PlayerExtractor extractor = extractors.get(eventClass);
+                if (extractor != null) {
+                    return extractor.getPlayers(event);
+                }
+                eventClass = eventClass.getSuperclass();
+            }
+            return null;
+        }
+        return players;
+    }
+
+    /**
+     * Adds the entity to the list if it's a player not yet added.
+     */
+    private static void addPlayer(List<Player> players, Entity entity) {
+        if (entity instanceof Player && !players.contains(entity)) {
+            players.add((Player) entity);
+        }
+    }
+
+    /**
+     * Adds the shooter of the projectile to the list if it's a player.
+     */
+    private static void addShooter(List<Player> players, Projectile projectile) {
+        Object shooter = projectile.getShooter();
+        if (shooter instanceof Player && !players.contains(shooter)) {
+            players.add((Player) shooter);
+        }
+    }
+
+    /**
+     * Returns players involved in the event, used for custom events.
+     */
+    public interface PlayerExtractor {
+
+        /**
+         * Returns players involved in the event.
+         * 
+         * @param event
+         *            the event
+         * @return list of players involved in the event
+         */
+        public List<Player> getPlayers(Event event);
+    }
+
+    /**
+     * Event handler method of the objective class.
+     */
+    private static class HandlerMethod {
+
+        private final Method method;
+        private final Class<? extends Event> eventClass;
+        private final EventPriority priority;
+        private final boolean ignoreCancelled;
+
+        private HandlerMethod(Method method, Class<? extends Event> eventClass,
+                EventPriority priority, boolean ignoreCancelled) {
+            this.method = method;
+            this.eventClass = eventClass;
+            this.priority = priority;
+            this.ignoreCancelled = ignoreCancelled;
+        }
+    }
+
+    /**
+     * Handler method bound to the objective instance.
+     */
+    private static class Handler {
+
+        private final Objective objective;
+        private final HandlerMethod method;
+
+        private Handler(Objective objective, HandlerMethod method) {
+            this.objective = objective;
+            this.method = method;
+        }
+
+        private void call(Event event) {
+            if (method.ignoreCancelled && event instanceof Cancellable
+                && ((Cancellable) event).isCancelled()) {
+                return;
+            }
+            try {
+                method.method.invoke(objective, event);
+            } catch (InvocationTargetException e) {
+                e.getCause().printStackTrace();
+                Debug.error("Error in " + objective.getTag() + " objective while handling "
+                    + event.getEventName() + ": " + e.getCause().getMessage());
+            } catch (IllegalAccessException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Single Bukkit listener for an event type and priority, which stores
+     * handlers of active objectives indexed by players' IDs.
+     */
+    private class Channel implements EventExecutor {
+
+        private final Class<? extends Event> eventClass;
+        private final ConcurrentHashMap<String, List<Handler>> handlers = new ConcurrentHashMap<>();
+
+        private Channel(Class<? extends Event> eventClass) {
+            this.eventClass = eventClass;
+        }
+
+        private synchronized void add(String playerID, Handler handler) {
+            List<Handler> list = handlers.get(playerID);
+            if (list == null) {
+                list = new CopyOnWriteArrayList<>();
+                handlers.put(playerID, list);
+            }
+            list.add(handler);
+        }
+
+        private synchronized void remove(String playerID, Objective objective) {
+            List<Handler> list = handlers.get(playerID);
+            if (list == null) {
+                return;
+            }
+            for (Handler handler : list) {
+                if (handler.objective == objective) {
+                    list.remove(handler);
+                }
+            }
+            if (list.isEmpty()) {
+                handlers.remove(playerID);
+            }
+        }
+
+        @Override
+        public void execute(Listener listener, Event event) throws EventException {
+            // the listener is registered for the whole handler list, which
+            // can be shared with other event types
+            if (!eventClass.isInstance(event) || handlers.isEmpty()) {
+                return;
+            }
+            List<Player> players = getPlayers(event);
+            if (players == null) {
+                for (List<Handler> list : handlers.values()) {
+                    for (Handler handler : list) {
+                        handler.call(event);
+                    }
+                }
+                return;
+            }
+            for (Player player : players) {
+                List<Handler> list = handlers.get(PlayerConverter.getID(player));
+                if (list == null) {
+                    continue;
+                }
+                for (Handler handler : list) {
+                    handler.call(event);
+                }
+            }
+        }
+    }
+}
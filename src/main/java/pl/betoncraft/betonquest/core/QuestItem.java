@@ -57,6 +57,40 @@ public class QuestItem {
     private List<PotionEffect> effects = null;
     private Color color = null;
     private String owner = null;
+    /**
+     * Kind of the material, which decides what meta is compared
+     */
+    private Kind kind;
+    /**
+     * Pages of the book, generated from the text
+     */
+    private List<String> pages = null;
+    /**
+     * If false, comparing material and data is enough
+     */
+    private boolean checkMeta;
+    /**
+     * Default color of leather armor, taken from the item factory on the
+     * main thread
+     */
+    private static volatile Color defaultLeatherColor;
+
+    /**
+     * Takes everything needed to parse items from the server, so they can
+     * be parsed on other threads. It must be called on the main thread.
+     */
+    public static void snapshot() {
+        defaultLeatherColor = Bukkit.getServer().getItemFactory().getDefaultLeatherColor();
+    }
+
+    private static Color defaultLeatherColor() {
+        Color color = defaultLeatherColor;
+        if (color == null) {
+            color = defaultLeatherColor = Bukkit.getServer().getItemFactory()
+                    .getDefaultLeatherColor();
+        }
+        return color;
+    }
 
     /**
      * Legacy method for the updater, don't use for anything else
@@ -79,6 +113,7 @@ public class QuestItem {
         }
         this.name = name;
         this.lore = lore;
+        compile();
     }
 
     /**
@@ -150,7 +185,7 @@ public class QuestItem {
                 }
             } else if (part.startsWith("color:")) {
                 if (part.equals("color:none")) {
-                    color = Bukkit.getServer().getItemFactory().getDefaultLeatherColor();
+                    color = defaultLeatherColor();
                 } else {
                     color = Color.fromRGB(Integer.parseInt(part.substring(6)));
                 }
@@ -162,6 +197,7 @@ public class QuestItem {
                 }
             }
         }
+        compile();
     }
 
     /**
@@ -225,139 +261,127 @@ public class QuestItem {
      *            ItemStack to compare
      * @return true if the item matches
      */
-    @SuppressWarnings("deprecation")
     public boolean equalsI(ItemStack item) {
-        if (item == null) {
+        // material and data first, they don't need the meta
+        if (item == null || item.getType() != material) {
             return false;
         }
-        if (item.getType() != material) {
+        if (data >= 0 && (byte) item.getDurability() != data) {
             return false;
         }
-        if (data >= 0 && item.getData().getData() != data) {
-            return false;
+        if (!checkMeta) {
+            return true;
         }
+        // the meta is copied on every call, so get it only once
+        ItemMeta meta = item.getItemMeta();
         if (name != null) {
-            if (name.equals("")) {
-                if (item.getItemMeta().hasDisplayName()) {
-                    return false;
-                }
-            } else {
-                if (item.getItemMeta().hasDisplayName()) {
-                    if (!item.getItemMeta().getDisplayName().equals(name)) {
-                        return false;
-                    }
-                } else {
+            if (name.isEmpty()) {
+                if (meta.hasDisplayName()) {
                     return false;
                 }
+            } else if (!meta.hasDisplayName() || !meta.getDisplayName().equals(name)) {
+                return false;
             }
         }
         if (lore != null) {
             if (lore.isEmpty()) {
-                if (item.getItemMeta().hasLore()) {
+                if (meta.hasLore()) {
                     return false;
                 }
-            } else {
-                if (!item.getItemMeta().hasLore()) {
-                    return false;
-                } else {
-                    if (!item.getItemMeta().getLore().equals(lore)) {
-                        return false;
-                    }
-                }
+            } else if (!meta.hasLore() || !meta.getLore().equals(lore)) {
+                return false;
             }
         }
         if (enchants != null) {
-            if (enchants.isEmpty()) {
-                if (material != Material.ENCHANTED_BOOK) {
-                    if (item.getItemMeta().hasEnchants()) {
-                        return false;
-                    }
-                } else {
-                    EnchantmentStorageMeta storageMeta = (EnchantmentStorageMeta) item.getItemMeta();
-                    if (!storageMeta.getStoredEnchants().equals(enchants)) {
-                        return false;
-                    }
+            if (material == Material.ENCHANTED_BOOK) {
+                EnchantmentStorageMeta storageMeta = (EnchantmentStorageMeta) meta;
+                if (!enchants.isEmpty() && !storageMeta.hasStoredEnchants()) {
+                    return false;
                 }
-            } else {
-                if (material != Material.ENCHANTED_BOOK) {
-                    if (!item.getItemMeta().hasEnchants()) {
-                        return false;
-                    } else {
-                        if (!item.getEnchantments().equals(enchants)) {
-                            return false;
-                        }
-                    }
-                } else {
-                    EnchantmentStorageMeta storageMeta = (EnchantmentStorageMeta) item.getItemMeta();
-                    if (!storageMeta.hasStoredEnchants()) {
-                        return false;
-                    } else {
-                        if (!storageMeta.getStoredEnchants().equals(enchants)) {
-                            return false;
-                        }
-                    }
+                if (!storageMeta.getStoredEnchants().equals(enchants)) {
+                    return false;
                 }
-            }
-        }
-        if (item.getType().equals(Material.WRITTEN_BOOK)) {
-            BookMeta bookMeta = (BookMeta) item.getItemMeta();
-            if (author != null && (!bookMeta.hasAuthor() || !bookMeta.getAuthor().equals(author))) {
-                return false;
-            }
-            if (title != null && (!bookMeta.hasTitle() || !bookMeta.getTitle().equals(title))) {
-                return false;
-            }
-            if (text != null  && (!bookMeta.hasPages() || !bookMeta.getPages().equals(
-                        Utils.pagesFromString(text, false)))) {
+            } else if (enchants.isEmpty()) {
+                if (meta.hasEnchants()) {
+                    return false;
+                }
+            } else if (!meta.hasEnchants() || !meta.getEnchants().equals(enchants)) {
                 return false;
             }
-        } else if (item.getType().equals(Material.POTION)) {
-            if (effects != null) {
-              PotionMeta potionMeta = (PotionMeta) item.getItemMeta();
-                if (effects.isEmpty()) {
-                    if (potionMeta.hasCustomEffects()) {
-                        return false;
-                    }
-                } else {
-                    if (!potionMeta.hasCustomEffects()) {
-                        return false;
-                    } else {
-                        if (!potionMeta.getCustomEffects().equals(effects)) {
+        }
+        switch (kind) {
+            case BOOK:
+                BookMeta bookMeta = (BookMeta) meta;
+                if (author != null && (!bookMeta.hasAuthor() || !bookMeta.getAuthor().equals(author))) {
+                    return false;
+                }
+                if (title != null && (!bookMeta.hasTitle() || !bookMeta.getTitle().equals(title))) {
+                    return false;
+                }
+                if (pages != null && (!bookMeta.hasPages() || !bookMeta.getPages().equals(pages))) {
+                    return false;
+                }
+                break;
+            case POTION:
+                if (effects != null) {
+                    PotionMeta potionMeta = (PotionMeta) meta;
+                    if (effects.isEmpty()) {
+                        if (potionMeta.hasCustomEffects()) {
                             return false;
                         }
+                    } else if (!potionMeta.hasCustomEffects()
+                        || !potionMeta.getCustomEffects().equals(effects)) {
+                        return false;
                     }
                 }
-            }
-        } else if (item.getType().equals(Material.LEATHER_BOOTS)      ||
-                   item.getType().equals(Material.LEATHER_CHESTPLATE) ||
-                   item.getType().equals(Material.LEATHER_HELMET)     ||
-                   item.getType().equals(Material.LEATHER_LEGGINGS)) {
-            LeatherArmorMeta armorMeta = (LeatherArmorMeta) item.getItemMeta();
-            if (color != null) {
-                if (!armorMeta.getColor().equals(color)) {
+                break;
+            case LEATHER:
+                if (color != null && !((LeatherArmorMeta) meta).getColor().equals(color)) {
                     return false;
                 }
-            }
-        } else if (item.getType() == Material.SKULL_ITEM) {
-            SkullMeta skullMeta = (SkullMeta) item.getItemMeta();
-            if (owner != null) {
-                if (owner.equals("")) {
-                    if (skullMeta.hasOwner()) {
-                        return false;
-                    }
-                } else {
-                    if (!skullMeta.hasOwner()) {
-                        return false;
-                    } else {
-                        if (!skullMeta.getOwner().equals(owner)) {
+                break;
+            case SKULL:
+                if (owner != null) {
+                    SkullMeta skullMeta = (SkullMeta) meta;
+                    if (owner.isEmpty()) {
+                        if (skullMeta.hasOwner()) {
                             return false;
                         }
+                    } else if (!skullMeta.hasOwner() || !skullMeta.getOwner().equals(owner)) {
+                        return false;
                     }
                 }
-            }
+                break;
+            default:
+                break;
         }
         return true;
     }
+
+    /**
+     * Prepares everything needed to compare ItemStacks with this quest item,
+     * so it's not done again for every compared stack.
+     */
+    private void compile() {
+        if (material == Material.WRITTEN_BOOK) {
+            kind = Kind.BOOK;
+        } else if (material == Material.POTION) {
+            kind = Kind.POTION;
+        } else if (material == Material.LEATHER_BOOTS || material == Material.LEATHER_CHESTPLATE
+            || material == Material.LEATHER_HELMET || material == Material.LEATHER_LEGGINGS) {
+            kind = Kind.LEATHER;
+        } else if (material == Material.SKULL_ITEM) {
+            kind = Kind.SKULL;
+        } else {
+            kind = Kind.OTHER;
+        }
+        pages = (text == null) ? null : Utils.pagesFromString(text, false);
+        checkMeta = name != null || lore != null || enchants != null
+            || (kind == Kind.BOOK && (author != null || title != null || pages != null))
+            || (kind == Kind.POTION && effects != null)
+            || (kind == Kind.LEATHER && color != null)
+            || (kind == Kind.SKULL && owner != null);
+    }
     
     /**
      * Generates this quest item as ItemStack with given amount
@@ -367,10 +391,7 @@ public class QuestItem {
      * @return the ItemStack equal to this quest item
      */
     public ItemStack generateItem(int stackSize) {
-        if (data < 0) {
-            data = 0;
-        }
-        ItemStack item = new ItemStack(material, stackSize, data);
+        ItemStack item = new ItemStack(material, stackSize, data < 0 ? 0 : data);
         ItemMeta meta = item.getItemMeta();
         if (name != null && !name.equals("")) {
             meta.setDisplayName(name);
@@ -391,7 +412,7 @@ public class QuestItem {
                 bookMeta.setAuthor(Config.getMessage("unknown_author"));
             }
             if (text != null) {
-                bookMeta.setPages(Utils.pagesFromString(text, false));
+                bookMeta.setPages(pages);
             }
             if (title != null) {
                 bookMeta.setTitle(title);
@@ -411,7 +432,7 @@ public class QuestItem {
                     material.equals(Material.LEATHER_CHESTPLATE) ||
                     material.equals(Material.LEATHER_HELMET)     ||
                     material.equals(Material.LEATHER_LEGGINGS))  &&
-                    color != null && !color.equals(Bukkit.getServer().getItemFactory().getDefaultLeatherColor())) {
+                    color != null && !color.equals(defaultLeatherColor())) {
             LeatherArmorMeta armorMeta = (LeatherArmorMeta) meta;
             armorMeta.setColor(color);
             item.setItemMeta(armorMeta);
@@ -531,4 +552,11 @@ public class QuestItem {
     public String getOwner() {
         return owner;
     }
+
+    /**
+     * Kinds of materials with their own meta
+     */
+    private enum Kind {
+        BOOK, POTION, LEATHER, SKULL, OTHER
+    }
 }
@@ -84,7 +84,7 @@ public class QuestItemHandler implements Listener {
             return;
         }
         // canceling all action that could lead to transfering the journal
-        if (Journal.isJournal(event.getCursor()) || Utils.isQuestItem(event.getCursor())) {
+        if (isSpecial(event.getCursor())) {
             if (event.getAction().equals(InventoryAction.PLACE_ALL)
                 || event.getAction().equals(InventoryAction.PLACE_ONE) || event.getAction().equals(
                     InventoryAction.PLACE_SOME)) {
@@ -95,7 +95,7 @@ public class QuestItemHandler implements Listener {
                 }
             }
         } else if (event.getAction().equals(InventoryAction.MOVE_TO_OTHER_INVENTORY)) {
-            if (Journal.isJournal(event.getCurrentItem()) || Utils.isQuestItem(event.getCurrentItem())) {
+            if (isSpecial(event.getCurrentItem())) {
                 event.setCancelled(true);
             }
         }
@@ -108,7 +108,7 @@ public class QuestItemHandler implements Listener {
         }
         // this is moving the item across the inventory outside of Player's
         // inventory
-        if (Journal.isJournal(event.getOldCursor()) || Utils.isQuestItem(event.getOldCursor())) {
+        if (isSpecial(event.getOldCursor())) {
             for (Integer slot : event.getRawSlots()) {
                 if (slot < (event.getView().countSlots() - 36)) {
                     event.setCancelled(true);
@@ -131,8 +131,7 @@ public class QuestItemHandler implements Listener {
             ItemStack stack = litr.next();
             if (Journal.isJournal(stack)) {
                 litr.remove();
-            }
-            if (Utils.isQuestItem(stack)) {
+            } else if (Utils.isQuestItem(stack)) {
                 BetonQuest.getInstance().getDBHandler(PlayerConverter.getID(event.getEntity()))
                         .addItem(stack.clone(), stack.getAmount());
                 litr.remove();
@@ -162,8 +161,7 @@ public class QuestItemHandler implements Listener {
         }
         // this prevents the journal from being placed inside of item frame
         if (event.getRightClicked() instanceof ItemFrame
-            && (Journal.isJournal(event.getPlayer().getItemInHand()) || Utils.isQuestItem(event
-                    .getPlayer().getItemInHand()))) {
+            && isSpecial(event.getPlayer().getItemInHand())) {
             event.setCancelled(true);
         }
     }
@@ -178,4 +176,11 @@ public class QuestItemHandler implements Listener {
             event.setCancelled(true);
         }
     }
+
+    /**
+     * @return true if the item is a journal or a quest item
+     */
+    private static boolean isSpecial(ItemStack item) {
+        return ItemIdentifier.identify(item) != ItemIdentifier.Kind.NONE;
+    }
 }
@@ -0,0 +1,129 @@
+/**
+ * BetonQuest - advanced quests for Bukkit
+ * Copyright (C) 2015  Jakub "Co0sh" Sapalski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.betoncraft.betonquest.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table of objects linked to handles by their IDs. Every ID gets a slot, and
+ * linking creates an immutable table of objects in these slots. Tables are
+ * published as a part of {@link Definitions}, so handles never see half of
+ * the old and half of the new objects.
+ * 
+ * @author Jakub Sapalski
+ */
+class RefTable<T> {
+
+    /**
+     * Slot of handles which aren't kept in the table; they are always looked
+     * up by the ID
+     */
+    static final int NO_SLOT = -1;
+
+    /**
+     * Stores slot numbers of IDs
+     */
+    private final ConcurrentHashMap<String, Integer> slots = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the slot for the ID, creating it if needed.
+     * 
+     * @param ID
+     *            ID of the object
+     * @return number of the slot
+     */
+    int slot(String ID) {
+        Integer slot = slots.get(ID);
+        if (slot != null) {
+            return slot;
+        }
+        synchronized (this) {
+            slot = slots.get(ID);
+            if (slot != null) {
+                return slot;
+            }
+            slot = slots.size();
+            slots.put(ID, slot);
+            return slot;
+        }
+    }
+
+    /**
+     * Creates the table of objects from the map for all existing slots.
+     * 
+     * @param objects
+     *            map of objects by their IDs; it must not be modified later
+     * @return the linked table
+     */
+    synchronized Linked<T> link(Map<String, T> objects) {
+        Object[] table = new Object[slots.size()];
+        for (Map.Entry<String, Integer> entry : slots.entrySet()) {
+            table[entry.getValue()] = objects.get(entry.getKey());
+        }
+        return new Linked<>(table, objects);
+    }
+
+    /**
+     * Immutable table of linked objects.
+     */
+    static class Linked<T> {
+
+        private final Object[] table;
+        private final Map<String, T> objects;
+
+        private Linked(Object[] table, Map<String, T> objects) {
+            this.table = table;
+            this.objects = objects;
+        }
+
+        /**
+         * Returns the object in the slot. Slots created after linking and
+         * {@link RefTable#NO_SLOT} are looked up by the ID.
+         * 
+         * @param slot
+         *            number of the slot
+         * @param ID
+         *            ID of the object
+         * @return the object or null if it's not defined
+         */
+        @SuppressWarnings("unchecked")
+        T get(int slot, String ID) {
+            if (slot != NO_SLOT && slot < table.length) {
+                return (T) table[slot];
+            }
+            return objects.get(ID);
+        }
+
+        /**
+         * @param ID
+         *            ID of the object
+         * @return true if the object is defined
+         */
+        boolean contains(String ID) {
+            return objects.containsKey(ID);
+        }
+
+        /**
+         * @return the amount of linked objects
+         */
+        int size() {
+            return objects.size();
+        }
+    }
+}
@@ -25,12 +25,49 @@ import pl.betoncraft.betonquest.config.Config;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
 /**
- * Utility for sending messages to the player
+ * Utility for sending messages to the player. Formats of the lines are
+ * compiled into templates when the configuration is loaded.
  * 
  * @author Co0sh
  */
 public class SimpleTextOutput {
 
+    /**
+     * Beginning of the tellraw JSON, before the reply
+     */
+    private static final String JSON_START = " {\"text\":\"\",\"extra\":[{\"text\":\"";
+    /**
+     * Middle of the tellraw JSON, between the reply and the hash
+     */
+    private static final String JSON_MIDDLE = "\",\"clickEvent\":{\"action\":\"run_command\",\"value\":\""
+            + "/betonquestanswer ";
+    /**
+     * End of the tellraw JSON, after the hash
+     */
+    private static final String JSON_END = "\"}}]}";
+
+    /**
+     * Templates compiled from the current configuration
+     */
+    private static volatile Templates templates;
+
+    /**
+     * Compiles formats of the lines from the configuration. It should be
+     * called every time the configuration is loaded.
+     */
+    public static void reload() {
+        templates = new Templates();
+    }
+
+    private static Templates getTemplates() {
+        Templates current = templates;
+        if (current == null) {
+            current = new Templates();
+            templates = current;
+        }
+        return current;
+    }
+
     /**
      * Sends player a message that is supposed to look like a plugin
      * notification
@@ -42,9 +79,9 @@ public class SimpleTextOutput {
      */
     public static void sendSystemMessage(String playerID, String message, String soundName) {
         Player player = PlayerConverter.getPlayer(playerID);
-        String finalString = (Config.getString("messages.global.plugin_prefix") + message)
-                .replaceAll("&", "§");
-        player.sendMessage(finalString);
+        StringBuilder builder = new StringBuilder(getTemplates().prefix);
+        builder.append(ChatTemplate.color(message));
+        player.sendMessage(builder.toString());
         if (!soundName.equalsIgnoreCase("false")) {
             player.playSound(player.getLocation(), Sound.valueOf(soundName), 1F, 1F);
         }
@@ -63,10 +100,9 @@ public class SimpleTextOutput {
      *            message
      */
     public static void sendQuesterMessage(String playerID, String quester, String message) {
-        String finalString = (Config.getString("messages.global.quester_line_format") + message)
-                .replaceAll("%player%", PlayerConverter.getPlayer(playerID).getName())
-                .replaceAll("%quester%", quester).replaceAll("&", "§");
-        PlayerConverter.getPlayer(playerID).sendMessage(finalString);
+        Player player = PlayerConverter.getPlayer(playerID);
+        player.sendMessage(getTemplates().questerLine.render(
+                values(player, quester, null), message));
     }
 
     /**
@@ -82,18 +118,18 @@ public class SimpleTextOutput {
      *            message
      */
     public static void sendQuesterReply(String playerID, int number, String quester, String message, String hash) {
-        String finalString = (Config.getString("messages.global.quester_reply_format") + message)
-                .replaceAll("%quester%", quester).replaceAll("%number%", String.valueOf(number))
-                .replaceAll("%player%", PlayerConverter.getPlayer(playerID).getName())
-                .replaceAll("&", "§");
-        if (Config.getString("config.tellraw").equalsIgnoreCase("true")) {
-            Bukkit.getServer().dispatchCommand(Bukkit.getConsoleSender(),
-                    "tellraw " + PlayerConverter.getPlayer(playerID).getName()
-                        + " {\"text\":\"\",\"extra\":[{\"text\":\"" + finalString
-                        + "\",\"clickEvent\":{\"action\":\"run_command\",\"value\":\""
-                        + "/betonquestanswer " + hash + "\"}}]}");
+        Player player = PlayerConverter.getPlayer(playerID);
+        Templates current = getTemplates();
+        String[] values = values(player, quester, String.valueOf(number));
+        if (current.tellraw) {
+            String line = current.questerReply.render(values, message);
+            StringBuilder command = new StringBuilder(line.length() + 160);
+            command.append("tellraw ").append(player.getName()).append(JSON_START);
+            ChatTemplate.appendJSON(command, line);
+            command.append(JSON_MIDDLE).append(hash).append(JSON_END);
+            Bukkit.getServer().dispatchCommand(Bukkit.getConsoleSender(), command.toString());
         } else {
-            PlayerConverter.getPlayer(playerID).sendMessage(finalString);
+            player.sendMessage(current.questerReply.render(values, message));
         }
     }
 
@@ -107,9 +143,37 @@ public class SimpleTextOutput {
      * @param message
      */
     public static void sendPlayerReply(String playerID, String quester, String message) {
-        String finalString = (Config.getString("messages.global.player_reply_format") + message)
-                .replaceAll("%player%", PlayerConverter.getPlayer(playerID).getName())
-                .replaceAll("%quester%", quester).replaceAll("&", "§");
-        PlayerConverter.getPlayer(playerID).sendMessage(finalString);
+        Player player = PlayerConverter.getPlayer(playerID);
+        player.sendMessage(getTemplates().playerReply.render(
+                values(player, quester, null), message));
+    }
+
+    private static String[] values(Player player, String quester, String number) {
+        String[] values = new String[3];
+        values[ChatTemplate.PLAYER] = player.getName();
+        values[ChatTemplate.QUESTER] = ChatTemplate.color(quester);
+        values[ChatTemplate.NUMBER] = number;
+        return values;
+    }
+
+    /**
+     * Templates and settings read from the configuration at once.
+     */
+    private static class Templates {
+
+        private final String prefix;
+        private final ChatTemplate questerLine;
+        private final ChatTemplate questerReply;
+        private final ChatTemplate playerReply;
+        private final boolean tellraw;
+
+        private Templates() {
+            prefix = ChatTemplate.color(Config.getString("messages.global.plugin_prefix"));
+            questerLine = new ChatTemplate(Config.getString("messages.global.quester_line_format"));
+            questerReply = new ChatTemplate(Config.getString("messages.global.quester_reply_format"));
+            playerReply = new ChatTemplate(Config.getString("messages.global.player_reply_format"));
+            String tellrawString = Config.getString("config.tellraw");
+            tellraw = tellrawString != null && tellrawString.equalsIgnoreCase("true");
+        }
     }
 }
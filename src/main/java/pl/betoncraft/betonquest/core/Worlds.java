@@ -0,0 +1,117 @@
+/**
+ * BetonQuest - advanced quests for Bukkit
+ * Copyright (C) 2015  Jakub "Co0sh" Sapalski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.betoncraft.betonquest.core;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import pl.betoncraft.betonquest.utils.Debug;
+
+/**
+ * Names of loaded worlds, taken on the main thread before instructions are
+ * loaded. Events and conditions are parsed on other threads, so they check
+ * their worlds here and look up World objects only when they are used.
+ * 
+ * @author Jakub Sapalski
+ */
+public class Worlds {
+
+    /**
+     * Lower case names of worlds, or null if they weren't taken yet
+     */
+    private static volatile Set<String> names;
+
+    /**
+     * Takes names of all loaded worlds. It must be called on the main thread.
+     */
+    public static void snapshot() {
+        Set<String> set = new HashSet<>();
+        for (World world : Bukkit.getWorlds()) {
+            set.add(world.getName().toLowerCase(Locale.ROOT));
+        }
+        names = Collections.unmodifiableSet(set);
+    }
+
+    /**
+     * Checks if the world was loaded when the names were taken. Without
+     * the names the world is looked up directly.
+     * 
+     * @param name
+     *            name of the world
+     * @return true if the world exists
+     */
+    public static boolean exists(String name) {
+        Set<String> current = names;
+        if (current == null) {
+            return Bukkit.getWorld(name) != null;
+        }
+        return current.contains(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Creates the location in the world with this name. Use it on the main
+     * thread, when the location is needed.
+     * 
+     * @param name
+     *            name of the world
+     * @param x
+     *            X coordinate
+     * @param y
+     *            Y coordinate
+     * @param z
+     *            Z coordinate
+     * @param yaw
+     *            the yaw
+     * @param pitch
+     *            the pitch
+     * @return the location, or null if the world is not loaded anymore
+     */
+    public static Location location(String name, double x, double y, double z, float yaw,
+            float pitch) {
+        World world = Bukkit.getWorld(name);
+        if (world == null) {
+            Debug.error("World " + name + " is not loaded");
+            return null;
+        }
+        return new Location(world, x, y, z, yaw, pitch);
+    }
+
+    /**
+     * Creates the location in the world with this name. Use it on the main
+     * thread, when the location is needed.
+     * 
+     * @param name
+     *            name of the world
+     * @param x
+     *            X coordinate
+     * @param y
+     *            Y coordinate
+     * @param z
+     *            Z coordinate
+     * @return the location, or null if the world is not loaded anymore
+     */
+    public static Location location(String name, double x, double y, double z) {
+        return location(name, x, y, z, 0, 0);
+    }
+}
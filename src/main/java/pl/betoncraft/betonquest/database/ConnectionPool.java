@@ -0,0 +1,266 @@
+/**
+ * BetonQuest - advanced quests for Bukkit
+ * Copyright (C) 2015  Jakub "Co0sh" Sapalski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.betoncraft.betonquest.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import pl.betoncraft.betonquest.utils.Debug;
+
+/**
+ * Fixed set of long-lived connections to the database. Connections are
+ * opened when needed, up to the size of the pool; when all of them are in
+ * use, {@link #borrow()} waits for one to be released.
+ * 
+ * @author Jakub Sapalski
+ */
+public class ConnectionPool {
+
+    /**
+     * Connections idle for longer than this (in milliseconds) are checked
+     * before borrowing
+     */
+    private static final long CHECK_AFTER = 30000;
+
+    private final Database db;
+    private final int size;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    /**
+     * Number of opened connections, idle or not
+     */
+    private final AtomicInteger opened = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong waitTime = new AtomicLong();
+    private volatile boolean closed = false;
+
+    /**
+     * Creates new pool.
+     * 
+     * @param db
+     *            database opening the connections
+     * @param size
+     *            maximum number of connections
+     */
+    public ConnectionPool(Database db, int size) {
+        this.db = db;
+        this.size = size;
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if there are no
+     * idle connections and the pool is not full. If it is, waits for a
+     * connection to be released. It must be given back with
+     * {@link #release(PooledConnection)}.
+     * 
+     * @return the connection
+     */
+    public PooledConnection borrow() {
+        long start = System.nanoTime();
+        PooledConnection pooled = idle.pollFirst();
+        while (pooled == null) {
+            int count = opened.get();
+            if (count < size) {
+                if (opened.compareAndSet(count, count + 1)) {
+                    pooled = new PooledConnection(db.openConnection());
+                }
+                continue;
+            }
+            try {
+                pooled = idle.pollFirst(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (pooled == null) {
+            // interrupted, open an extra connection rather than failing
+            opened.incrementAndGet();
+            pooled = new PooledConnection(db.openConnection());
+        } else if (System.currentTimeMillis() - pooled.released > CHECK_AFTER && !pooled.isValid()) {
+            Debug.info("Reopening broken database connection");
+            pooled.close();
+            pooled = new PooledConnection(db.openConnection());
+        }
+        waitTime.addAndGet(System.nanoTime() - start);
+        borrows.incrementAndGet();
+        active.incrementAndGet();
+        return pooled;
+    }
+
+    /**
+     * Gives the connection back to the pool.
+     * 
+     * @param pooled
+     *            borrowed connection
+     */
+    public void release(PooledConnection pooled) {
+        active.decrementAndGet();
+        if (closed || pooled.connection == null || opened.get() > size) {
+            pooled.close();
+            opened.decrementAndGet();
+            return;
+        }
+        pooled.released = System.currentTimeMillis();
+        idle.offerFirst(pooled);
+    }
+
+    /**
+     * Closes all idle connections; connections in use will be closed when
+     * they are released.
+     */
+    public void close() {
+        closed = true;
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.close();
+            opened.decrementAndGet();
+        }
+        Debug.info("Closed connection pool: " + this);
+    }
+
+    /**
+     * @return the number of borrowed connections
+     */
+    public int getActive() {
+        return active.get();
+    }
+
+    /**
+     * @return the number of opened connections waiting to be borrowed
+     */
+    public int getIdle() {
+        return idle.size();
+    }
+
+    /**
+     * @return the number of borrowed connections since the start
+     */
+    public long getBorrows() {
+        return borrows.get();
+    }
+
+    /**
+     * @return average time of borrowing a connection, in milliseconds
+     */
+    public double getAverageWait() {
+        long count = borrows.get();
+        return count == 0 ? 0 : waitTime.get() / 1000000.0 / count;
+    }
+
+    @Override
+    public String toString() {
+        return active.get() + " active, " + idle.size() + " idle, " + borrows.get()
+            + " borrows, " + String.format("%.2f", getAverageWait()) + " ms average wait";
+    }
+
+    /**
+     * Connection from the pool, with its prepared statements cached.
+     */
+    public static class PooledConnection {
+
+        private final Connection connection;
+        private final HashMap<Object, PreparedStatement> statements = new HashMap<>();
+        private long released = System.currentTimeMillis();
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * @return the JDBC connection, or null if it couldn't be opened
+         */
+        public Connection getConnection() {
+            return connection;
+        }
+
+        /**
+         * Returns the statement cached for the key.
+         * 
+         * @param key
+         *            the key, for example type of the query
+         * @return the statement or null if it isn't cached
+         */
+        public PreparedStatement getStatement(Object key) {
+            return statements.get(key);
+        }
+
+        /**
+         * Prepares the statement and caches it under the key.
+         * 
+         * @param key
+         *            the key, for example type of the query
+         * @param sql
+         *            SQL of the statement
+         * @return the prepared statement
+         * @throws SQLException
+         *             when the statement could not be prepared
+         */
+        public PreparedStatement prepare(Object key, String sql) throws SQLException {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statements.put(key, statement);
+            return statement;
+        }
+
+        /**
+         * Closes all cached statements, for example after tables were
+         * dropped.
+         */
+        public void clearStatements() {
+            for (PreparedStatement statement : statements.values()) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+            statements.clear();
+        }
+
+        private boolean isValid() {
+            if (connection == null) {
+                return false;
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.executeQuery("SELECT 1").close();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        private void close() {
+            if (connection == null) {
+                return;
+            }
+            clearStatements();
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
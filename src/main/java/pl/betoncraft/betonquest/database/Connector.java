@@ -17,12 +17,19 @@
  */
 package pl.betoncraft.betonquest.database;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import pl.betoncraft.betonquest.BetonQuest;
+import pl.betoncraft.betonquest.database.ConnectionPool.PooledConnection;
 
 /**
  * Connects to the database and queries it
@@ -34,16 +41,44 @@ public class Connector {
     private BetonQuest plugin;
     private String prefix;
     private Database db;
+    private ConnectionPool pool;
+    private PooledConnection pooled;
     private Connection connection;
+    /**
+     * Statement which is not cached, closed with the next query or when
+     * the connection is given back
+     */
+    private PreparedStatement uncached;
+    /**
+     * IDs of names added to the table of names in the current transaction;
+     * they are remembered in the {@link TagDictionary} after it's committed
+     */
+    private final HashMap<String, Integer> newNames = new HashMap<>();
+    private boolean transaction = false;
 
     /**
-     * Opens a new connection to the database
+     * Borrows a connection from the pool
      */
     public Connector() {
+        this(false);
+    }
+
+    /**
+     * Borrows a connection from the pool, or from the pool of reading
+     * connections. Reading connections don't wait for connections used by
+     * the {@link Saver}, so they should be used when loading data on the
+     * main thread.
+     * 
+     * @param reading
+     *          whether the connector will only read data
+     */
+    public Connector(boolean reading) {
         plugin = BetonQuest.getInstance();
         prefix = plugin.getConfig().getString("mysql.prefix", "");
         db = plugin.getDB();
-        connection = db.openConnection();
+        pool = reading ? db.getReadPool() : db.getPool();
+        pooled = pool.borrow();
+        connection = pooled.getConnection();
     }
     
     /**
@@ -53,71 +88,14 @@ public class Connector {
      *          type of the query
      * @param args
      *          arguments
-     * @return ResultSet with the requsted data
+     * @return ResultSet with the requsted data, or null if the query failed
      */
     public ResultSet querySQL(QueryType type, String[] args) {
+        if (connection == null) {
+            return null;
+        }
         try {
-            PreparedStatement statement;
-            switch (type) {
-                case SELECT_JOURNAL:
-                    statement = connection
-                            .prepareStatement("SELECT pointer, date FROM " + prefix + "journal WHERE playerID = ?;");
-                    break;
-                case SELECT_POINTS:
-                    statement = connection
-                            .prepareStatement("SELECT category, count FROM " + prefix + "points WHERE playerID = ?;");
-                    break;
-                case SELECT_OBJECTIVES:
-                    statement = connection
-                            .prepareStatement("SELECT instructions FROM " + prefix + "objectives WHERE playerID = ?;");
-                    break;
-                case SELECT_TAGS:
-                    statement = connection
-                            .prepareStatement("SELECT tag FROM " + prefix + "tags WHERE playerID = ?;");
-                    break;
-                case SELECT_BACKPACK:
-                    statement = connection
-                            .prepareStatement("SELECT instruction, amount FROM " + prefix + "backpack WHERE playerID = ?;");
-                    break;
-                case SELECT_PLAYERS_TAGS:
-                    statement = connection
-                            .prepareStatement("SELECT playerID FROM " + prefix + "tags GROUP BY playerID;");
-                    break;
-                case SELECT_PLAYERS_JOURNAL:
-                    statement = connection
-                            .prepareStatement("SELECT playerID FROM " + prefix + "journal GROUP BY playerID;");
-                    break;
-                case SELECT_PLAYERS_POINTS:
-                    statement = connection
-                            .prepareStatement("SELECT playerID FROM " + prefix + "points GROUP BY playerID;");
-                    break;
-                case SELECT_PLAYERS_OBJECTIVES:
-                    statement = connection
-                            .prepareStatement("SELECT playerID FROM " + prefix + "objectives GROUP BY playerID;");
-                    break;
-                case SELECT_PLAYERS_BACKPACK:
-                    statement = connection
-                            .prepareStatement("SELECT playerID FROM " + prefix + "backpack GROUP BY playerID;");
-                    break;
-                case LOAD_ALL_JOURNALS:
-                    statement = connection.prepareStatement("SELECT * FROM " + prefix + "journal");
-                    break;
-                case LOAD_ALL_OBJECTIVES:
-                    statement = connection.prepareStatement("SELECT * FROM " + prefix + "objectives");
-                    break;
-                case LOAD_ALL_POINTS:
-                    statement = connection.prepareStatement("SELECT * FROM " + prefix + "points");
-                    break;
-                case LOAD_ALL_TAGS:
-                    statement = connection.prepareStatement("SELECT * FROM " + prefix + "tags");
-                    break;
-                case LOAD_ALL_BACKPACK:
-                    statement = connection.prepareStatement("SELECT * FROM " + prefix + "backpack");
-                    break;
-                default:
-                    statement = null;
-                    break;
-            }
+            PreparedStatement statement = prepareQuery(type);
             for (int i = 0; i < args.length; i++) {
                 statement.setString(i + 1, args[i]);
             }
@@ -128,6 +106,149 @@ public class Connector {
         }
     }
 
+    /**
+     * Queries all data (objectives, tags, journal, points and backpack) of
+     * many players at once. Every row has "type" column ("objective", "tag",
+     * "journal", "point" or "backpack"), "playerID", "text" (instruction,
+     * tag, pointer or category), "number" (count or amount) and "date".
+     * 
+     * @param playerIDs
+     *          IDs of players
+     * @return ResultSet with the requested data, valid until the next call
+     *         of this method or closing the connector, or null if the query
+     *         failed
+     */
+    public ResultSet queryPlayerData(String[] playerIDs) {
+        closeUncached();
+        if (connection == null) {
+            return null;
+        }
+        if (playerIDs.length == 1) {
+            String ID = playerIDs[0];
+            return querySQL(QueryType.SELECT_PLAYER_DATA, new String[] { ID, ID, ID, ID, ID });
+        }
+        try {
+            StringBuilder in = new StringBuilder("IN (");
+            for (int i = 0; i < playerIDs.length; i++) {
+                in.append(i == 0 ? "?" : ", ?");
+            }
+            in.append(')');
+            // this statement depends on the number of players, don't cache it
+            PreparedStatement statement = connection.prepareStatement(playerDataSQL(in.toString()));
+            uncached = statement;
+            int index = 1;
+            for (int table = 0; table < 5; table++) {
+                for (String playerID : playerIDs) {
+                    statement.setString(index++, playerID);
+                }
+            }
+            return statement.executeQuery();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Builds the query selecting all player data from every table in a
+     * single round trip.
+     * 
+     * @param condition
+     *          condition for playerID column, for example "= ?"
+     * @return the SQL string
+     */
+    private String playerDataSQL(String condition) {
+        return "SELECT 'objective' AS type, playerID, instructions AS text, NULL AS number, NULL AS date"
+            + " FROM " + prefix + "objectives WHERE playerID " + condition
+            + " UNION ALL SELECT 'tag', t.playerID, n.name, NULL, NULL FROM " + prefix + "tags t"
+            + " JOIN " + prefix + "names n ON n.id = t.name_id WHERE t.playerID " + condition
+            + " UNION ALL SELECT 'journal', playerID, pointer, NULL, date"
+            + " FROM " + prefix + "journal WHERE playerID " + condition
+            + " UNION ALL SELECT 'point', p.playerID, n.name, p.count, NULL FROM " + prefix + "points p"
+            + " JOIN " + prefix + "names n ON n.id = p.name_id WHERE p.playerID " + condition
+            + " UNION ALL SELECT 'backpack', playerID, instruction, amount, NULL"
+            + " FROM " + prefix + "backpack WHERE playerID " + condition + ";";
+    }
+
+    /**
+     * Returns the cached statement for the given type of the query,
+     * preparing it on first use
+     * 
+     * @param type
+     *          type of the query
+     * @return the statement, ready to set arguments
+     * @throws SQLException
+     *          when the statement could not be prepared
+     */
+    private PreparedStatement prepareQuery(QueryType type) throws SQLException {
+        PreparedStatement statement = pooled.getStatement(type);
+        if (statement != null) {
+            return statement;
+        }
+        String sql;
+        switch (type) {
+            case SELECT_JOURNAL:
+                sql = "SELECT pointer, date FROM " + prefix + "journal WHERE playerID = ?;";
+                break;
+            case SELECT_POINTS:
+                sql = "SELECT n.name AS category, p.count FROM " + prefix + "points p JOIN " + prefix
+                    + "names n ON n.id = p.name_id WHERE p.playerID = ?;";
+                break;
+            case SELECT_OBJECTIVES:
+                sql = "SELECT instructions FROM " + prefix + "objectives WHERE playerID = ?;";
+                break;
+            case SELECT_TAGS:
+                sql = "SELECT n.name AS tag FROM " + prefix + "tags t JOIN " + prefix
+                    + "names n ON n.id = t.name_id WHERE t.playerID = ?;";
+                break;
+            case SELECT_BACKPACK:
+                sql = "SELECT instruction, amount FROM " + prefix + "backpack WHERE playerID = ?;";
+                break;
+            case SELECT_PLAYERS_TAGS:
+                sql = "SELECT playerID FROM " + prefix + "tags GROUP BY playerID;";
+                break;
+            case SELECT_PLAYERS_JOURNAL:
+                sql = "SELECT playerID FROM " + prefix + "journal GROUP BY playerID;";
+                break;
+            case SELECT_PLAYERS_POINTS:
+                sql = "SELECT playerID FROM " + prefix + "points GROUP BY playerID;";
+                break;
+            case SELECT_PLAYERS_OBJECTIVES:
+                sql = "SELECT playerID FROM " + prefix + "objectives GROUP BY playerID;";
+                break;
+            case SELECT_PLAYERS_BACKPACK:
+                sql = "SELECT playerID FROM " + prefix + "backpack GROUP BY playerID;";
+                break;
+            case LOAD_ALL_JOURNALS:
+                sql = "SELECT * FROM " + prefix + "journal";
+                break;
+            case LOAD_ALL_OBJECTIVES:
+                sql = "SELECT * FROM " + prefix + "objectives";
+                break;
+            case LOAD_ALL_POINTS:
+                sql = "SELECT p.id, p.playerID, n.name AS category, p.count FROM " + prefix
+                    + "points p JOIN " + prefix + "names n ON n.id = p.name_id";
+                break;
+            case LOAD_ALL_TAGS:
+                sql = "SELECT t.id, t.playerID, n.name AS tag FROM " + prefix + "tags t JOIN "
+                    + prefix + "names n ON n.id = t.name_id";
+                break;
+            case LOAD_ALL_BACKPACK:
+                sql = "SELECT * FROM " + prefix + "backpack";
+                break;
+            case SELECT_PLAYER_DATA:
+                sql = playerDataSQL("= ?");
+                break;
+            case SELECT_NAME:
+                sql = "SELECT id FROM " + prefix + "names WHERE hash = ?;";
+                break;
+            default:
+                sql = null;
+                break;
+        }
+        return pooled.prepare(type, sql);
+    }
+
     /**
      * Updates the database with the given type and arguments
      * 
@@ -138,120 +259,365 @@ public class Connector {
      */
     public void updateSQL(UpdateType type, String[] args) {
         try {
-            PreparedStatement statement;
-            switch (type) {
-                case ADD_OBJECTIVES:
-                    statement = connection
-                            .prepareStatement("INSERT INTO " + prefix + "objectives (playerID, instructions) VALUES (?, ?);");
-                    break;
-                case ADD_TAGS:
-                    statement = connection
-                            .prepareStatement("INSERT INTO " + prefix + "tags (playerID, tag) VALUES (?, ?);");
-                    break;
-                case ADD_POINTS:
-                    statement = connection
-                            .prepareStatement("INSERT INTO " + prefix + "points (playerID, category, count) VALUES (?, ?, ?);");
-                    break;
-                case ADD_JOURNAL:
-                    statement = connection
-                            .prepareStatement("INSERT INTO " + prefix + "journal (playerID, pointer, date) VALUES (?, ?, ?);");
-                    break;
-                case ADD_BACKPACK:
-                    statement = connection
-                            .prepareStatement("INSERT INTO " + prefix + "backpack (playerID, instruction, amount) VALUES (?, ?, ?);");
-                    break;
-                case DELETE_OBJECTIVES:
-                    statement = connection
-                            .prepareStatement("DELETE FROM " + prefix + "objectives WHERE playerID = ?;");
-                    break;
-                case DELETE_TAGS:
-                    statement = connection.prepareStatement("DELETE FROM " + prefix + "tags WHERE playerID = ?;");
-                    break;
-                case DELETE_POINTS:
-                    statement = connection
-                            .prepareStatement("DELETE FROM " + prefix + "points WHERE playerID = ?;");
-                    break;
-                case DELETE_JOURNAL:
-                    statement = connection
-                            .prepareStatement("DELETE FROM " + prefix + "journal WHERE playerID = ?;");
-                    break;
-                case DELETE_BACKPACK:
-                    statement = connection
-                            .prepareStatement("DELETE FROM " + prefix + "backpack WHERE playerID = ?;");
-                    break;
-                case UPDATE_PLAYERS_OBJECTIVES:
-                    statement = connection
-                            .prepareStatement("UPDATE " + prefix + "objectives SET playerID = ? WHERE playerID = ?;");
-                    break;
-                case UPDATE_PLAYERS_TAGS:
-                    statement = connection
-                            .prepareStatement("UPDATE " + prefix + "tags SET playerID = ? WHERE playerID = ?;");
-                    break;
-                case UPDATE_PLAYERS_POINTS:
-                    statement = connection
-                            .prepareStatement("UPDATE " + prefix + "points SET playerID = ? WHERE playerID = ?;");
-                    break;
-                case UPDATE_PLAYERS_JOURNAL:
-                    statement = connection
-                            .prepareStatement("UPDATE " + prefix + "journal SET playerID = ? WHERE playerID = ?;");
-                    break;
-                case UPDATE_PLAYERS_BACKPACK:
-                    statement = connection
-                            .prepareStatement("UPDATE " + prefix + "backpack SET playerID = ? WHERE playerID = ?;");
-                    break;
-                case DROP_OBJECTIVES:
-                    statement = connection.prepareStatement("DROP TABLE " + prefix + "objectives");
-                    break;
-                case DROP_TAGS:
-                    statement = connection.prepareStatement("DROP TABLE " + prefix + "tags");
-                    break;
-                case DROP_POINTS:
-                    statement = connection.prepareStatement("DROP TABLE " + prefix + "points");
-                    break;
-                case DROP_JOURNALS:
-                    statement = connection.prepareStatement("DROP TABLE " + prefix + "journal");
-                    break;
-                case DROP_BACKPACK:
-                    statement = connection.prepareStatement("DROP TABLE " + prefix + "backpack");
-                    break;
-                case INSERT_OBJECTIVE:
-                    statement = connection.prepareStatement("INSERT INTO " + prefix + "objectives "
-                        + "VALUES (?,?,?)");
-                    break;
-                case INSERT_TAG:
-                    statement = connection.prepareStatement("INSERT INTO " + prefix + "tags "
-                        + "VALUES (?,?,?)");
-                    break;
-                case INSERT_POINT:
-                    statement = connection.prepareStatement("INSERT INTO " + prefix + "points "
-                        + "VALUES (?,?,?,?)");
-                    break;
-                case INSERT_JOURNAL:
-                    statement = connection.prepareStatement("INSERT INTO " + prefix + "journal "
-                        + "VALUES (?,?,?,?)");
-                    break;
-                case INSERT_BACKPACK:
-                    statement = connection.prepareStatement("INSERT INTO " + prefix + "backpack "
-                        + "VALUES (?,?,?,?)");
-                    break;
-                default:
-                    statement = null;
-                    break;
+            int nameID = hasName(type) ? nameID(args[1]) : 0;
+            PreparedStatement statement = prepareUpdate(type);
+            setArguments(statement, type, args, nameID);
+            statement.executeUpdate();
+            if (pooled.getStatement(type) != statement) {
+                statement.close();
             }
-            for (int i = 0; i < args.length; i++) {
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Updates the database with the given type, once for every set of
+     * arguments, sending them together as a batch
+     * 
+     * @param type
+     *          type of the update
+     * @param batch
+     *          list of arguments for every update
+     * @throws SQLException
+     *          when the batch could not be executed
+     */
+    public void updateBatch(UpdateType type, List<String[]> batch) throws SQLException {
+        // names are looked up before the batch is filled
+        int[] nameIDs = new int[batch.size()];
+        if (hasName(type)) {
+            for (int i = 0; i < nameIDs.length; i++) {
+                nameIDs[i] = nameID(batch.get(i)[1]);
+            }
+        }
+        PreparedStatement statement = prepareUpdate(type);
+        for (int i = 0; i < nameIDs.length; i++) {
+            setArguments(statement, type, batch.get(i), nameIDs[i]);
+            statement.addBatch();
+        }
+        statement.executeBatch();
+    }
+
+    /**
+     * Sets arguments of the update. The name of a tag or a point category
+     * (always the second argument) is replaced with its ID.
+     */
+    private void setArguments(PreparedStatement statement, UpdateType type, String[] args,
+            int nameID) throws SQLException {
+        boolean named = hasName(type);
+        for (int i = 0; i < args.length; i++) {
+            if (named && i == 1) {
+                statement.setInt(i + 1, nameID);
+            } else {
                 statement.setString(i + 1, args[i]);
             }
-            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * @return true if the second argument of the update is a name of a tag
+     *         or a point category, stored as its ID
+     */
+    private static boolean hasName(UpdateType type) {
+        switch (type) {
+            case ADD_TAGS:
+            case ADD_POINTS:
+            case REMOVE_TAG:
+            case REMOVE_POINT:
+            case UPSERT_TAG:
+            case UPSERT_POINT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns the ID of the name in the table of names, adding the name if
+     * it's not there yet. IDs of names added in a transaction are remembered
+     * only after it's committed, so a rollback can't leave IDs of names
+     * which don't exist.
+     * 
+     * @param name
+     *          name of a tag or a point category
+     * @return ID of the name
+     * @throws SQLException
+     *          when the name could not be added
+     */
+    private int nameID(String name) throws SQLException {
+        int id = TagDictionary.persistentID(name);
+        if (id > 0) {
+            return id;
+        }
+        Integer added = newNames.get(name);
+        if (added != null) {
+            return added;
+        }
+        String hash = nameHash(name);
+        // another server could have added it already
+        id = selectName(hash);
+        if (id > 0) {
+            TagDictionary.setPersistentID(name, id);
+            return id;
+        }
+        PreparedStatement insert = prepareUpdate(UpdateType.INSERT_NAME);
+        insert.setString(1, hash);
+        insert.setString(2, name);
+        insert.executeUpdate();
+        id = selectName(hash);
+        if (id <= 0) {
+            throw new SQLException("Could not add name " + name);
+        }
+        if (transaction) {
+            newNames.put(name, id);
+        } else {
+            TagDictionary.setPersistentID(name, id);
+        }
+        return id;
+    }
+
+    private int selectName(String hash) throws SQLException {
+        PreparedStatement select = prepareQuery(QueryType.SELECT_NAME);
+        select.setString(1, hash);
+        try (ResultSet res = select.executeQuery()) {
+            return res.next() ? res.getInt("id") : 0;
+        }
+    }
+
+    /**
+     * Returns the hash by which names are found in the table of names. The
+     * hash is compared instead of the name itself, because MySQL compares
+     * texts ignoring the case (and can index only their beginnings), while
+     * names must be equal exactly.
+     * 
+     * @param name
+     *          the name
+     * @return SHA-1 of the name, as lower case hexadecimal string
+     */
+    static String nameHash(String name) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1")
+                    .digest(name.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder(40);
+            for (byte b : digest) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16))
+                    .append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Starts a transaction; following updates will be applied only after
+     * calling {@link #commit()}
+     * 
+     * @throws SQLException
+     *          when there is no connection to the database
+     */
+    public void begin() throws SQLException {
+        if (connection == null) {
+            throw new SQLException("Not connected to the database");
+        }
+        connection.setAutoCommit(false);
+        transaction = true;
+    }
+
+    /**
+     * Applies all updates since {@link #begin()}
+     * 
+     * @throws SQLException
+     *          when the transaction could not be committed
+     */
+    public void commit() throws SQLException {
+        connection.commit();
+        connection.setAutoCommit(true);
+        transaction = false;
+        for (Map.Entry<String, Integer> entry : newNames.entrySet()) {
+            TagDictionary.setPersistentID(entry.getKey(), entry.getValue());
+        }
+        newNames.clear();
+    }
+
+    /**
+     * Discards all updates since {@link #begin()}
+     */
+    public void rollback() {
+        transaction = false;
+        newNames.clear();
+        try {
+            connection.rollback();
+            connection.setAutoCommit(true);
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Returns the cached statement for the given type of the update,
+     * preparing it on first use. Statements dropping tables are not cached.
+     * 
+     * @param type
+     *          type of the update
+     * @return the statement, ready to set arguments
+     * @throws SQLException
+     *          when the statement could not be prepared
+     */
+    private PreparedStatement prepareUpdate(UpdateType type) throws SQLException {
+        PreparedStatement statement = pooled.getStatement(type);
+        if (statement != null) {
+            return statement;
+        }
+        String sql;
+        switch (type) {
+            case ADD_OBJECTIVES:
+                sql = "INSERT INTO " + prefix + "objectives (playerID, instructions) VALUES (?, ?);";
+                break;
+            case ADD_TAGS:
+                sql = "INSERT INTO " + prefix + "tags (playerID, name_id) VALUES (?, ?);";
+                break;
+            case ADD_POINTS:
+                sql = "INSERT INTO " + prefix + "points (playerID, name_id, count) VALUES (?, ?, ?);";
+                break;
+            case ADD_JOURNAL:
+                sql = "INSERT INTO " + prefix + "journal (playerID, pointer, date) VALUES (?, ?, ?);";
+                break;
+            case ADD_BACKPACK:
+                sql = "INSERT INTO " + prefix + "backpack (playerID, instruction, amount) VALUES (?, ?, ?);";
+                break;
+            case DELETE_OBJECTIVES:
+                sql = "DELETE FROM " + prefix + "objectives WHERE playerID = ?;";
+                break;
+            case DELETE_TAGS:
+                sql = "DELETE FROM " + prefix + "tags WHERE playerID = ?;";
+                break;
+            case DELETE_POINTS:
+                sql = "DELETE FROM " + prefix + "points WHERE playerID = ?;";
+                break;
+            case DELETE_JOURNAL:
+                sql = "DELETE FROM " + prefix + "journal WHERE playerID = ?;";
+                break;
+            case DELETE_BACKPACK:
+                sql = "DELETE FROM " + prefix + "backpack WHERE playerID = ?;";
+                break;
+            case UPDATE_PLAYERS_OBJECTIVES:
+                sql = "UPDATE " + prefix + "objectives SET playerID = ? WHERE playerID = ?;";
+                break;
+            case UPDATE_PLAYERS_TAGS:
+                sql = "UPDATE " + prefix + "tags SET playerID = ? WHERE playerID = ?;";
+                break;
+            case UPDATE_PLAYERS_POINTS:
+                sql = "UPDATE " + prefix + "points SET playerID = ? WHERE playerID = ?;";
+                break;
+            case UPDATE_PLAYERS_JOURNAL:
+                sql = "UPDATE " + prefix + "journal SET playerID = ? WHERE playerID = ?;";
+                break;
+            case UPDATE_PLAYERS_BACKPACK:
+                sql = "UPDATE " + prefix + "backpack SET playerID = ? WHERE playerID = ?;";
+                break;
+            case DROP_OBJECTIVES:
+                sql = "DROP TABLE " + prefix + "objectives";
+                break;
+            case DROP_TAGS:
+                sql = "DROP TABLE " + prefix + "tags";
+                break;
+            case DROP_POINTS:
+                sql = "DROP TABLE " + prefix + "points";
+                break;
+            case DROP_JOURNALS:
+                sql = "DROP TABLE " + prefix + "journal";
+                break;
+            case DROP_BACKPACK:
+                sql = "DROP TABLE " + prefix + "backpack";
+                break;
+            case INSERT_OBJECTIVE:
+                sql = "INSERT INTO " + prefix + "objectives "
+                    + "VALUES (?,?,?)";
+                break;
+            case INSERT_TAG:
+                sql = "INSERT INTO " + prefix + "tags "
+                    + "VALUES (?,?,?)";
+                break;
+            case INSERT_POINT:
+                sql = "INSERT INTO " + prefix + "points "
+                    + "VALUES (?,?,?,?)";
+                break;
+            case INSERT_JOURNAL:
+                sql = "INSERT INTO " + prefix + "journal "
+                    + "VALUES (?,?,?,?)";
+                break;
+            case INSERT_BACKPACK:
+                sql = "INSERT INTO " + prefix + "backpack "
+                    + "VALUES (?,?,?,?)";
+                break;
+            case REMOVE_TAG:
+                sql = "DELETE FROM " + prefix + "tags WHERE playerID = ? AND name_id = ?;";
+                break;
+            case REMOVE_POINT:
+                sql = "DELETE FROM " + prefix + "points WHERE playerID = ? AND name_id = ?;";
+                break;
+            case UPSERT_TAG:
+                sql = (plugin.isMySQLUsed() ? "INSERT IGNORE INTO " : "INSERT OR IGNORE INTO ")
+                    + prefix + "tags (playerID, name_id) VALUES (?, ?);";
+                break;
+            case UPSERT_POINT:
+                sql = plugin.isMySQLUsed()
+                    ? "INSERT INTO " + prefix + "points (playerID, name_id, count) VALUES (?, ?, ?)"
+                        + " ON DUPLICATE KEY UPDATE count = VALUES(count);"
+                    : "INSERT OR REPLACE INTO " + prefix + "points (playerID, name_id, count)"
+                        + " VALUES (?, ?, ?);";
+                break;
+            case INSERT_NAME:
+                sql = (plugin.isMySQLUsed() ? "INSERT IGNORE INTO " : "INSERT OR IGNORE INTO ")
+                    + prefix + "names (hash, name) VALUES (?, ?);";
+                break;
+            case DROP_SCHEMA:
+                sql = "DROP TABLE IF EXISTS " + prefix + "schema_version";
+                break;
+            case DROP_NAMES:
+                sql = "DROP TABLE IF EXISTS " + prefix + "names";
+                break;
+            default:
+                sql = null;
+                break;
+        }
+        switch (type) {
+            case DROP_OBJECTIVES:
+            case DROP_TAGS:
+            case DROP_POINTS:
+            case DROP_JOURNALS:
+            case DROP_BACKPACK:
+            case DROP_SCHEMA:
+            case DROP_NAMES:
+                return connection.prepareStatement(sql);
+            default:
+                return pooled.prepare(type, sql);
+        }
+    }
     
     /**
-     * Closes the connection, finishing this object's job 
+     * Gives the connection back to the pool, finishing this object's job 
      */
     public void close() {
-        db.closeConnection(connection);
+        closeUncached();
+        pool.release(pooled);
+    }
+
+    /**
+     * Closes the statement which is not cached, together with its results
+     */
+    private void closeUncached() {
+        if (uncached == null) {
+            return;
+        }
+        try {
+            uncached.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        uncached = null;
     }
 
     /**
@@ -265,7 +631,9 @@ public class Connector {
         SELECT_PLAYERS_OBJECTIVES, SELECT_PLAYERS_BACKPACK,
         
         LOAD_ALL_OBJECTIVES, LOAD_ALL_TAGS, LOAD_ALL_POINTS, LOAD_ALL_JOURNALS,
-        LOAD_ALL_BACKPACK
+        LOAD_ALL_BACKPACK,
+        
+        SELECT_PLAYER_DATA, SELECT_NAME
 
     }
 
@@ -281,7 +649,11 @@ public class Connector {
         UPDATE_PLAYERS_JOURNAL, UPDATE_PLAYERS_BACKPACK,
         
         DROP_OBJECTIVES, DROP_TAGS, DROP_POINTS, DROP_JOURNALS, DROP_BACKPACK,
-        INSERT_OBJECTIVE, INSERT_TAG, INSERT_POINT, INSERT_JOURNAL, INSERT_BACKPACK
+        INSERT_OBJECTIVE, INSERT_TAG, INSERT_POINT, INSERT_JOURNAL, INSERT_BACKPACK,
+        
+        REMOVE_TAG, REMOVE_POINT, UPSERT_TAG, UPSERT_POINT, DROP_SCHEMA,
+
+        INSERT_NAME, DROP_NAMES
     }
 
 }
@@ -36,14 +36,70 @@ public abstract class Database {
 
     protected Plugin plugin;
     protected String prefix;
+    private ConnectionPool pool;
+    private ConnectionPool readPool;
 
     protected Database(Plugin plugin) {
         this.plugin = plugin;
         this.prefix = plugin.getConfig().getString("mysql.prefix", "");
     }
 
+    /**
+     * Opens a new connection, outside of the pool. Use {@link Connector} for
+     * regular queries.
+     * 
+     * @return the connection or null if it couldn't be opened
+     */
     public abstract Connection openConnection();
 
+    /**
+     * @return maximum number of pooled connections
+     */
+    protected int getPoolSize() {
+        return 1;
+    }
+
+    /**
+     * Returns the pool of connections to this database, creating it on first
+     * use.
+     * 
+     * @return the connection pool
+     */
+    public synchronized ConnectionPool getPool() {
+        if (pool == null) {
+            pool = new ConnectionPool(this, getPoolSize());
+        }
+        return pool;
+    }
+
+    /**
+     * Returns the pool of connections used only for reading, creating it on
+     * first use. It's separate from {@link #getPool()}, so loading data
+     * doesn't wait for the saver to give its connection back.
+     * 
+     * @return the pool of reading connections
+     */
+    public synchronized ConnectionPool getReadPool() {
+        if (readPool == null) {
+            readPool = new ConnectionPool(this, getPoolSize());
+        }
+        return readPool;
+    }
+
+    /**
+     * Closes all pooled connections.
+     */
+    public synchronized void closePool() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+        if (readPool != null) {
+            readPool.close();
+            readPool = null;
+        }
+    }
+
     public void closeConnection(Connection connection) {
         try {
             connection.close();
@@ -21,9 +21,15 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.TreeMap;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -33,12 +39,14 @@ import org.bukkit.inventory.ItemStack;
 import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.Objective;
 import pl.betoncraft.betonquest.config.Config;
+import pl.betoncraft.betonquest.core.Backpack;
+import pl.betoncraft.betonquest.core.ConditionCache;
+import pl.betoncraft.betonquest.core.ItemIndex;
 import pl.betoncraft.betonquest.core.Journal;
+import pl.betoncraft.betonquest.core.ObjectiveDispatcher;
 import pl.betoncraft.betonquest.core.Point;
 import pl.betoncraft.betonquest.core.Pointer;
 import pl.betoncraft.betonquest.core.QuestItem;
-import pl.betoncraft.betonquest.database.Connector.QueryType;
-import pl.betoncraft.betonquest.database.Connector.UpdateType;
 import pl.betoncraft.betonquest.utils.Debug;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 import pl.betoncraft.betonquest.utils.Utils;
@@ -53,9 +61,9 @@ public class DatabaseHandler {
     private String playerID;
 
     /**
-     * Stores player's tags.
+     * Stores player's tags, as IDs from the {@link TagDictionary}.
      */
-    private List<String> tags = new ArrayList<>();
+    private BitSet tags = new BitSet();
     /**
      * Temporarily stores player's pointers to journal entries.
      */
@@ -63,7 +71,7 @@ public class DatabaseHandler {
     /**
      * Stores player's Points.
      */
-    private List<Point> points = new ArrayList<>();
+    private LinkedHashMap<String, Point> points = new LinkedHashMap<>();
     /**
      * Temporarily stores player's objective strings, ready to start by
      * startObjectives() method. They are deleted after starting.
@@ -80,7 +88,26 @@ public class DatabaseHandler {
     /**
      * Stores all items in player's backpack
      */
-    private List<ItemStack> backpack = new ArrayList<>();
+    private final Backpack backpack = new Backpack();
+    /**
+     * Counts of quest items in player's inventory and backpack
+     */
+    private final ItemIndex itemIndex;
+
+    /**
+     * Data as it is in the database (or queued to be written there), used to
+     * find what has changed since the last save.
+     */
+    private BitSet savedTags = new BitSet();
+    private HashMap<String, Integer> savedPoints = new HashMap<>();
+    private List<String> savedObjectives = new ArrayList<>();
+    private List<String[]> savedJournal = new ArrayList<>();
+    private List<String[]> savedBackpack = new ArrayList<>();
+    /**
+     * False if loading the data failed; the saved lists are empty then, so
+     * saving would delete the player's data from the database
+     */
+    private boolean loaded = true;
 
     /**
      * Creates new DatabaseHandler for the player represented by playerID.
@@ -89,72 +116,174 @@ public class DatabaseHandler {
      *            - ID of the player
      */
     public DatabaseHandler(String playerID) {
+        this(playerID, true);
+    }
+
+    /**
+     * Creates new DatabaseHandler, loading the data from the database only
+     * if it's needed.
+     */
+    private DatabaseHandler(String playerID, boolean load) {
         this.playerID = playerID;
-        // load data from the database
-        loadAllPlayerData();
+        this.itemIndex = new ItemIndex(playerID, backpack);
+        if (load) {
+            loadAllPlayerData();
+        }
+    }
+
+    /**
+     * Maximum number of players loaded with a single query
+     */
+    private static final int BULK_SIZE = 100;
+
+    /**
+     * Loads data of many players at once, in as few queries as possible.
+     * 
+     * @param playerIDs
+     *            IDs of players to load
+     * @return map of loaded handlers by players' IDs
+     */
+    public static HashMap<String, DatabaseHandler> loadPlayers(List<String> playerIDs) {
+        HashMap<String, DatabaseHandler> handlers = new HashMap<>();
+        if (playerIDs.isEmpty()) {
+            return handlers;
+        }
+        // MySQL may compare IDs ignoring the case, so rows are matched the
+        // same way
+        TreeMap<String, DatabaseHandler> byID = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (String playerID : playerIDs) {
+            DatabaseHandler handler = new DatabaseHandler(playerID, false);
+            handlers.put(playerID, handler);
+            byID.put(playerID, handler);
+        }
+        // make sure that all changes of these players are written
+        BetonQuest.getInstance().getSaver().flush(new HashSet<>(playerIDs));
+        Connector database = new Connector(true);
+        int done = 0;
+        try {
+            for (int i = 0; i < playerIDs.size(); i += BULK_SIZE) {
+                List<String> chunk = playerIDs.subList(i, Math.min(i + BULK_SIZE, playerIDs.size()));
+                ResultSet res = database.queryPlayerData(chunk.toArray(new String[chunk.size()]));
+                if (res == null) {
+                    break;
+                }
+                while (res.next()) {
+                    String playerID = res.getString("playerID");
+                    DatabaseHandler handler = byID.get(playerID);
+                    if (handler == null) {
+                        Debug.error("Loaded data of unexpected player " + playerID);
+                        continue;
+                    }
+                    handler.loadRow(res);
+                }
+                res.close();
+                done += chunk.size();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            database.close();
+        }
+        for (int i = done; i < playerIDs.size(); i++) {
+            handlers.get(playerIDs.get(i)).failLoading();
+        }
+        for (DatabaseHandler handler : handlers.values()) {
+            handler.finishLoading();
+        }
+        return handlers;
     }
 
     /**
      * Loads all data for the player and puts it in appropriate lists.
      */
     public void loadAllPlayerData() {
+        // make sure that all changes of this player are written
+        BetonQuest.getInstance().getSaver().flush(playerID);
+        // load everything in a single query
+        Connector database = new Connector(true);
         try {
-            // open connection to the database
-            Connector database = new Connector();
-
-            // load objectives
-            ResultSet res1 = database.querySQL(QueryType.SELECT_OBJECTIVES,
-                    new String[] { playerID });
-            // put them into the list
-            while (res1.next())
-                objectives.add(res1.getString("instructions"));
-
-            // load tags
-            ResultSet res2 = database.querySQL(QueryType.SELECT_TAGS, new String[] { playerID });
-            // put them into the list
-            while (res2.next())
-                tags.add(res2.getString("tag"));
-
-            // load journals
-            ResultSet res3 = database.querySQL(QueryType.SELECT_JOURNAL, new String[] { playerID });
-            // put them into the list
-            while (res3.next())
-                entries.add(new Pointer(res3.getString("pointer"), res3.getTimestamp("date").getTime()));
-
-            // load points
-            ResultSet res4 = database.querySQL(QueryType.SELECT_POINTS, new String[] { playerID });
-            // put them into the list
-            while (res4.next())
-                points.add(new Point(res4.getString("category"), res4.getInt("count")));
-
-            // load backpack
-            ResultSet res5 = database
-                    .querySQL(QueryType.SELECT_BACKPACK, new String[] { playerID });
-            // put items into the list
-            while (res5.next()) {
-                String instruction = res5.getString("instruction");
-                int amount = res5.getInt("amount");
-                ItemStack item = new QuestItem(instruction).generateItem(amount);
-                backpack.add(item);
+            ResultSet res = database.queryPlayerData(new String[] { playerID });
+            if (res == null) {
+                failLoading();
+            } else {
+                while (res.next()) {
+                    loadRow(res);
+                }
             }
-
-            // everything loaded, close the connection
+        } catch (SQLException e) {
+            e.printStackTrace();
+            failLoading();
+        } finally {
             database.close();
+        }
+        finishLoading();
+    }
 
-            // log data to debugger
-            if (Debug.debugging()) {
-                Debug.info("There are " + objectives.size() + " objectives, " + tags.size()
-                    + " tags, " + points.size() + " points, " + entries.size() + " journal entries"
-                    + " and " + backpack.size() + " items loaded for player " + playerID);
-            }
+    /**
+     * Drops partially loaded data and marks this handler as not loaded, so
+     * it never overwrites the player's data in the database.
+     */
+    private void failLoading() {
+        Debug.error("Could not load data of player " + playerID + ", it won't be saved until the"
+            + " player joins again!");
+        loaded = false;
+        tags.clear();
+        points.clear();
+        objectives.clear();
+        entries.clear();
+        backpack.clear();
+    }
 
-            // generate journal
-            journal = new Journal(playerID, entries);
-            // entries.clear();
+    /**
+     * Puts a single row of player data in the appropriate list.
+     * 
+     * @param res
+     *            ResultSet returned by {@link Connector#queryPlayerData(String[])}
+     */
+    private void loadRow(ResultSet res) throws SQLException {
+        String type = res.getString("type");
+        String text = res.getString("text");
+        switch (type) {
+            case "objective":
+                objectives.add(text);
+                savedObjectives.add(text);
+                break;
+            case "tag":
+                tags.set(TagDictionary.id(text));
+                savedTags.set(TagDictionary.id(text));
+                break;
+            case "journal":
+                entries.add(new Pointer(text, res.getTimestamp("date").getTime()));
+                break;
+            case "point":
+                int count = res.getInt("number");
+                points.put(TagDictionary.intern(text.toLowerCase()), new Point(text, count));
+                savedPoints.put(text, count);
+                break;
+            case "backpack":
+                int amount = res.getInt("number");
+                backpack.append(new QuestItem(text).generateItem(amount));
+                savedBackpack.add(new String[] { text, String.valueOf(amount) });
+                break;
+            default:
+                break;
+        }
+    }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
+    /**
+     * Generates the journal after all rows were loaded.
+     */
+    private void finishLoading() {
+        savedJournal = journalRows(entries);
+        // log data to debugger
+        if (Debug.debugging()) {
+            Debug.info("There are " + objectives.size() + " objectives, " + tags.cardinality()
+                + " tags, " + points.size() + " points, " + entries.size() + " journal entries"
+                + " and " + backpack.size() + " items loaded for player " + playerID);
         }
+        // generate journal
+        journal = new Journal(playerID, entries);
+        itemIndex.backpackChanged();
     }
 
     /**
@@ -178,13 +307,16 @@ public class DatabaseHandler {
     }
 
     /**
-     * Adds an objective to the list.
+     * Adds an objective to the list and starts routing events to it.
      * 
      * @param objective
      *            objective to add
      */
     public void addObjective(Objective objective) {
         activeObjectives.add(objective);
+        ObjectiveDispatcher.register(playerID, objective);
+        objective.start();
+        ConditionCache.invalidate(playerID);
     }
 
     /**
@@ -198,48 +330,107 @@ public class DatabaseHandler {
     }
 
     /**
-     * Saves all data to the database. It does not remove the data, you need to
-     * use {@link #removeData() removeDate} for that.
+     * Saves all data to the database. Only changes since the last save are
+     * queued, and they are written by the {@link Saver} thread. It does not
+     * remove the data, you need to use {@link #removeData() removeData} for
+     * that.
      */
     public void saveData() {
-        Connector con = new Connector();
-        // delete old data
-        con.updateSQL(UpdateType.DELETE_OBJECTIVES, new String[] { playerID });
-        con.updateSQL(UpdateType.DELETE_TAGS, new String[] { playerID });
-        con.updateSQL(UpdateType.DELETE_JOURNAL, new String[] { playerID });
-        con.updateSQL(UpdateType.DELETE_POINTS, new String[] { playerID });
-        con.updateSQL(UpdateType.DELETE_BACKPACK, new String[] { playerID });
-        // insert new data
-        for (String instruction : objectives) {
-            con.updateSQL(UpdateType.ADD_OBJECTIVES, new String[] { playerID, instruction });
+        if (!loaded) {
+            return;
+        }
+        Saver saver = BetonQuest.getInstance().getSaver();
+        int changes = 0;
+        // tags
+        BitSet added = (BitSet) tags.clone();
+        added.andNot(savedTags);
+        for (int id = added.nextSetBit(0); id >= 0; id = added.nextSetBit(id + 1)) {
+            saver.addTag(playerID, TagDictionary.name(id));
+            changes++;
+        }
+        BitSet removed = (BitSet) savedTags.clone();
+        removed.andNot(tags);
+        for (int id = removed.nextSetBit(0); id >= 0; id = removed.nextSetBit(id + 1)) {
+            saver.removeTag(playerID, TagDictionary.name(id));
+            changes++;
+        }
+        savedTags = (BitSet) tags.clone();
+        // points
+        HashMap<String, Integer> currentPoints = new HashMap<>();
+        for (Point point : points.values()) {
+            currentPoints.put(point.getCategory(), point.getCount());
+            if (!Integer.valueOf(point.getCount()).equals(savedPoints.get(point.getCategory()))) {
+                saver.setPoints(playerID, point.getCategory(), point.getCount());
+                changes++;
+            }
+        }
+        for (String category : savedPoints.keySet()) {
+            if (!currentPoints.containsKey(category)) {
+                saver.removePoints(playerID, category);
+                changes++;
+            }
         }
+        savedPoints = currentPoints;
+        // objectives
+        List<String> currentObjectives = new ArrayList<>(objectives);
         for (Objective objective : activeObjectives) {
-            con.updateSQL(UpdateType.ADD_OBJECTIVES,
-                    new String[] { playerID, objective.getInstruction() });
+            currentObjectives.add(objective.getInstruction());
         }
-        for (String tag : tags) {
-            con.updateSQL(UpdateType.ADD_TAGS, new String[] { playerID, tag });
+        if (!currentObjectives.equals(savedObjectives)) {
+            saver.setObjectives(playerID, currentObjectives);
+            savedObjectives = currentObjectives;
+            changes++;
         }
-        for (Point point : points) {
-            con.updateSQL(UpdateType.ADD_POINTS, new String[] { playerID, point.getCategory(),
-                String.valueOf(point.getCount()) });
+        // journal
+        List<String[]> currentJournal = journalRows(journal.getPointers());
+        if (!sameRows(currentJournal, savedJournal)) {
+            saver.setJournal(playerID, currentJournal);
+            savedJournal = currentJournal;
+            changes++;
         }
-        for (Pointer pointer : journal.getPointers()) {
-            con.updateSQL(UpdateType.ADD_JOURNAL,
-                    new String[] { playerID, pointer.getPointer(),
-                    new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(pointer.getTimestamp())) });
+        // backpack
+        List<String[]> currentBackpack = new ArrayList<>(backpack.size());
+        for (ItemStack itemStack : backpack.getItems()) {
+            currentBackpack.add(new String[] { Utils.itemToString(itemStack),
+                String.valueOf(itemStack.getAmount()) });
         }
-        for (ItemStack itemStack : backpack) {
-            String instruction = Utils.itemToString(itemStack);
-            String amount = String.valueOf(itemStack.getAmount());
-            con.updateSQL(UpdateType.ADD_BACKPACK, new String[] { playerID, instruction, amount });
+        if (!sameRows(currentBackpack, savedBackpack)) {
+            saver.setBackpack(playerID, currentBackpack);
+            savedBackpack = currentBackpack;
+            changes++;
         }
-        con.close();
         // log debug message about saving
-        Debug.info("Saved " + (objectives.size() + activeObjectives.size()) + " objectives, "
-            + tags.size() + " tags, " + points.size() + " points, "
-            + journal.getPointers().size() + " journal entries and " + backpack.size()
-            + " items for player " + playerID);
+        if (Debug.debugging()) {
+            Debug.info("Queued " + changes + " changes for saving player " + playerID);
+        }
+    }
+
+    /**
+     * Converts journal pointers to rows of the journal table.
+     */
+    private static List<String[]> journalRows(List<Pointer> pointers) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        List<String[]> rows = new ArrayList<>(pointers.size());
+        for (Pointer pointer : pointers) {
+            rows.add(new String[] { pointer.getPointer(),
+                format.format(new Date(pointer.getTimestamp())) });
+        }
+        return rows;
+    }
+
+    /**
+     * Checks if both lists contain the same rows in the same order.
+     */
+    private static boolean sameRows(List<String[]> first, List<String[]> second) {
+        if (first.size() != second.size()) {
+            return false;
+        }
+        for (int i = 0; i < first.size(); i++) {
+            if (!Arrays.equals(first.get(i), second.get(i))) {
+                return false;
+            }
+        }
+        return true;
     }
     
     /**
@@ -247,6 +438,11 @@ public class DatabaseHandler {
      * use {@link #saveData() saveData} for that.
      */
     public void removeData() {
+        // stop active objectives before forgetting them
+        for (Objective objective : activeObjectives) {
+            objective.delete();
+            ObjectiveDispatcher.unregister(playerID, objective);
+        }
         // clear all lists
         objectives.clear();
         activeObjectives.clear();
@@ -254,9 +450,7 @@ public class DatabaseHandler {
         points.clear();
         journal.clear();
         backpack.clear();
-        for (Objective objective : activeObjectives) {
-            objective.delete();
-        }
+        itemIndex.backpackChanged();
     }
 
     /**
@@ -269,21 +463,38 @@ public class DatabaseHandler {
     }
 
     /**
-     * Returns the List of Tags for this player.
+     * Returns the List of Tags for this player. It's a copy, use
+     * {@link #addTag(String)} and {@link #removeTag(String)} to modify tags.
      * 
      * @return the List of Tags
      */
     public List<String> getTags() {
-        return tags;
+        List<String> list = new ArrayList<>(tags.cardinality());
+        for (int id = tags.nextSetBit(0); id >= 0; id = tags.nextSetBit(id + 1)) {
+            list.add(TagDictionary.name(id));
+        }
+        return list;
     }
 
     /**
-     * Returns the List of Points for this player.
+     * Returns the List of Points for this player. The list is a copy, but
+     * Points in it are not.
      * 
      * @return the List of Points
      */
     public List<Point> getPoints() {
-        return points;
+        return new ArrayList<>(points.values());
+    }
+
+    /**
+     * Returns the Point of specified category, ignoring the case.
+     * 
+     * @param category
+     *            category of points
+     * @return the Point or null if the player doesn't have this category
+     */
+    public Point getPoint(String category) {
+        return points.get(category.toLowerCase());
     }
 
     /**
@@ -300,21 +511,28 @@ public class DatabaseHandler {
      * Purges all player's data from the database and from this handler.
      */
     public void purgePlayer() {
+        // stop active objectives
+        for (Objective objective : activeObjectives) {
+            objective.delete();
+            ObjectiveDispatcher.unregister(playerID, objective);
+        }
         // clear all lists
+        ConditionCache.invalidate(playerID);
         activeObjectives.clear();
         tags.clear();
         points.clear();
         entries.clear();
         journal.clear();
         backpack.clear();
+        itemIndex.backpackChanged();
         // clear the database
-        Connector database = new Connector();
-        database.updateSQL(UpdateType.DELETE_OBJECTIVES, new String[] { playerID });
-        database.updateSQL(UpdateType.DELETE_JOURNAL, new String[] { playerID });
-        database.updateSQL(UpdateType.DELETE_POINTS, new String[] { playerID });
-        database.updateSQL(UpdateType.DELETE_TAGS, new String[] { playerID });
-        database.updateSQL(UpdateType.DELETE_BACKPACK, new String[] { playerID });
-        database.close();
+        BetonQuest.getInstance().getSaver().purge(playerID);
+        loaded = true;
+        savedTags.clear();
+        savedPoints.clear();
+        savedObjectives.clear();
+        savedJournal.clear();
+        savedBackpack.clear();
         // update the journal so it's empty
         if (PlayerConverter.getPlayer(playerID) != null) {
             journal.updateJournal();
@@ -328,7 +546,8 @@ public class DatabaseHandler {
      * @return true if the player has this tag
      */
     public boolean hasTag(String tag) {
-        return tags.contains(tag);
+        int id = TagDictionary.find(tag);
+        return id >= 0 && tags.get(id);
     }
 
     /**
@@ -338,8 +557,8 @@ public class DatabaseHandler {
      *            tag to add
      */
     public void addTag(String tag) {
-        if (!tags.contains(tag))
-            tags.add(tag);
+        tags.set(TagDictionary.id(tag));
+        ConditionCache.invalidate(playerID);
     }
 
     /**
@@ -350,7 +569,11 @@ public class DatabaseHandler {
      *            tag to remove
      */
     public void removeTag(String tag) {
-        tags.remove(tag);
+        int id = TagDictionary.find(tag);
+        if (id >= 0) {
+            tags.clear(id);
+        }
+        ConditionCache.invalidate(playerID);
     }
 
     /**
@@ -360,13 +583,14 @@ public class DatabaseHandler {
      *            objective's tag
      */
     public void deleteObjective(String tag) {
+        ConditionCache.invalidate(playerID);
         // search active objectives
         for (Iterator<Objective> iterator = activeObjectives.iterator(); iterator.hasNext();) {
             Objective objective = iterator.next();
             // if it matches then delete the objective and remove it from list
             if (objective.getTag().equalsIgnoreCase(tag)) {
-                objective.getInstruction();
                 objective.delete();
+                ObjectiveDispatcher.unregister(playerID, objective);
                 iterator.remove();
             }
         }
@@ -396,28 +620,27 @@ public class DatabaseHandler {
      *            how much points will be added (or subtracted)
      */
     public void addPoints(String category, int count) {
+        ConditionCache.invalidate(playerID);
         // check if the category already exists
-        for (Point point : points) {
-            if (point.getCategory().equalsIgnoreCase(category)) {
-                // if it does, add points to it
-                point.addPoints(count);
-                return;
-            }
+        Point point = points.get(category.toLowerCase());
+        if (point != null) {
+            // if it does, add points to it
+            point.addPoints(count);
+            return;
         }
         // if not then create new point category with given amount of points
-        points.add(new Point(category, count));
+        points.put(TagDictionary.intern(category.toLowerCase()), new Point(category, count));
     }
     
+    /**
+     * Removes the category of points, ignoring the case.
+     * 
+     * @param category
+     *            category to remove
+     */
     public void removePointsCategory(String category) {
-        Point pointToRemove = null;
-        for (Point point : points) {
-            if (point.getCategory().equalsIgnoreCase(category)) {
-                pointToRemove = point;
-            }
-        }
-        if (pointToRemove != null) {
-            points.remove(pointToRemove);
-        }
+        points.remove(category.toLowerCase());
+        ConditionCache.invalidate(playerID);
     }
 
     /**
@@ -426,11 +649,33 @@ public class DatabaseHandler {
      * @return list of itemstacks
      */
     public List<ItemStack> getBackpack() {
-        return backpack;
+        return backpack.getItems();
     }
-    
+
+    /**
+     * Replaces all items in player's backpack.
+     * 
+     * @param list
+     *            list of itemstacks
+     */
     public void setBackpack(List<ItemStack> list) {
-        this.backpack = list;
+        backpack.setItems(list);
+        backpackChanged();
+    }
+
+    /**
+     * Forgets everything cached about the items in the backpack.
+     */
+    private void backpackChanged() {
+        itemIndex.backpackChanged();
+        ConditionCache.invalidate(playerID);
+    }
+
+    /**
+     * @return index of quest items in player's inventory and backpack
+     */
+    public ItemIndex getItemIndex() {
+        return itemIndex;
     }
 
     /**
@@ -443,40 +688,25 @@ public class DatabaseHandler {
      *            amount of the items
      */
     public void addItem(ItemStack item, int amount) {
-        Debug.info("  Cloned item type: " + item.getType());
-        for (ItemStack itemStack : backpack) {
-            if (item.isSimilar(itemStack)) {
-                // if items are similar they can be joined in a single itemstack
-                if (amount + itemStack.getAmount() <= itemStack.getMaxStackSize()) {
-                    // if they will fit all together, then just add them
-                    itemStack.setAmount(itemStack.getAmount() + amount);
-                    return;
-                } else {
-                    // if the stack will be overflown, set max size and continue
-                    amount -= itemStack.getMaxStackSize() - itemStack.getAmount();
-                    itemStack.setAmount(itemStack.getMaxStackSize());
-                }
-            }
-        }
-        // every item checked, time to add a new itemstack
-        while (amount > 0) {
-            // if the amount is greater than max size of the itemstack, create max
-            // stacks until it's lower
-            ItemStack newItem = item.clone();
-            int maxSize = newItem.getType().getMaxStackSize();
-            if (amount > maxSize) {
-                if (maxSize == 0) {
-                    maxSize = 64;
-                }
-                newItem.setAmount(maxSize);
-                amount -= maxSize;
-            } else {
-                newItem.setAmount(amount);
-                amount = 0;
-            }
-            Debug.info("    Adding item of type " + newItem.getType() + ", amount left to ad is " + amount);
-            backpack.add(newItem);
-        }
+        Debug.info("  Adding " + amount + " items of type " + item.getType() + " to the backpack");
+        backpack.add(item, amount);
+        backpackChanged();
+    }
+
+    /**
+     * Takes items from the stack in the backpack. The stack is removed if it
+     * becomes empty.
+     * 
+     * @param index
+     *            index of the stack in the backpack
+     * @param amount
+     *            amount of items to take
+     * @return the amount of items actually taken
+     */
+    public int takeItem(int index, int amount) {
+        int taken = backpack.take(index, amount);
+        backpackChanged();
+        return taken;
     }
     
     /**
@@ -0,0 +1,377 @@
+/**
+ * BetonQuest - advanced quests for Bukkit
+ * Copyright (C) 2015  Jakub "Co0sh" Sapalski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.betoncraft.betonquest.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+
+import pl.betoncraft.betonquest.BetonQuest;
+import pl.betoncraft.betonquest.utils.Debug;
+
+/**
+ * Updates the schema of the database to the newest version. The version is
+ * stored in its own table, separately from the configuration version.
+ * 
+ * @author Jakub Sapalski
+ */
+public class DatabaseUpdater {
+
+    /**
+     * Version of the schema this plugin uses
+     */
+    public static final int DESTINATION = 2;
+    /**
+     * Number of rows copied at once when tables are rebuilt
+     */
+    private static final int PAGE = 10000;
+
+    private final BetonQuest instance = BetonQuest.getInstance();
+    private final Database database = instance.getDB();
+    private final boolean isMySQLUsed = instance.isMySQLUsed();
+    private final String prefix = instance.getConfig().getString("mysql.prefix", "");
+    private boolean success = false;
+
+    /**
+     * Updates the schema if needed.
+     */
+    public DatabaseUpdater() {
+        Connection connection = database.openConnection();
+        if (connection == null) {
+            Debug.error("Could not connect to the database to update its schema!");
+            return;
+        }
+        try {
+            Statement statement = connection.createStatement();
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + prefix
+                + "schema_version (version INT NOT NULL);");
+            ResultSet res = statement.executeQuery("SELECT version FROM " + prefix + "schema_version;");
+            int version = res.next() ? res.getInt("version") : 0;
+            res.close();
+            boolean updated = version < DESTINATION;
+            if (updated) {
+                Debug.broadcast("Updating the database schema from version " + version
+                    + " to " + DESTINATION + ", it may take some time!");
+            }
+            while (version < DESTINATION) {
+                switch (version) {
+                    case 0:
+                        updateTo1(connection);
+                        break;
+                    case 1:
+                        updateTo2(connection);
+                        break;
+                    default:
+                        break;
+                }
+                version++;
+                statement.executeUpdate("DELETE FROM " + prefix + "schema_version;");
+                statement.executeUpdate("INSERT INTO " + prefix + "schema_version (version) VALUES ("
+                    + version + ");");
+                Debug.info("Database schema updated to version " + version);
+            }
+            statement.close();
+            if (updated) {
+                // cached statements could still use the old tables
+                database.closePool();
+                TagDictionary.clearPersistentIDs();
+            }
+            success = true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            Debug.error("Could not update the database schema!");
+        } finally {
+            database.closeConnection(connection);
+        }
+    }
+
+    /**
+     * @return true if the schema is up to date; if it's not, the plugin
+     *         can't use the database
+     */
+    public boolean isSuccessful() {
+        return success;
+    }
+
+    /**
+     * Adds indexes on playerID to all tables. Duplicated tags and points are
+     * removed in version 2, where names can be compared exactly.
+     */
+    private void updateTo1(Connection connection) throws SQLException {
+        Debug.info("  Creating indexes");
+        createIndex(connection, "objectives", "playerID", false);
+        createIndex(connection, "journal", "playerID", false);
+        createIndex(connection, "backpack", "playerID", false);
+        createIndex(connection, "tags", "playerID", false);
+        createIndex(connection, "points", "playerID", false);
+    }
+
+    /**
+     * Moves names of tags and point categories to their own table, so tags
+     * and points store only IDs of names. Both tables are rebuilt with unique
+     * keys on (playerID, name_id). Names are compared by their IDs, which is
+     * exact even if the database ignores the case of texts, so only real
+     * duplicates are dropped (for points the newest row is kept).
+     */
+    private void updateTo2(Connection connection) throws SQLException {
+        String autoIncrement = isMySQLUsed ? "AUTO_INCREMENT" : "AUTOINCREMENT";
+        Statement statement = connection.createStatement();
+        Debug.info("  Creating the table of names");
+        statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + prefix + "names (id INTEGER PRIMARY"
+            + " KEY " + autoIncrement + ", hash CHAR(40) NOT NULL, name TEXT NOT NULL);");
+        statement.close();
+        createIndex(connection, "names", "hash", true);
+        HashMap<String, Integer> ids = new HashMap<>();
+        Debug.info("  Moving names of tags");
+        rebuild(connection, ids, "tags", "(id INTEGER PRIMARY KEY " + autoIncrement
+            + ", playerID VARCHAR(256) NOT NULL, name_id INT NOT NULL)", "SELECT id, playerID, tag"
+            + " AS name FROM " + prefix + "tags", (isMySQLUsed ? "INSERT IGNORE INTO "
+                : "INSERT OR IGNORE INTO ") + prefix + "tags_v2 (playerID, name_id) VALUES (?, ?);",
+            false);
+        Debug.info("  Moving names of points");
+        rebuild(connection, ids, "points", "(id INTEGER PRIMARY KEY " + autoIncrement
+            + ", playerID VARCHAR(256) NOT NULL, name_id INT NOT NULL, count INT NOT NULL)",
+            "SELECT id, playerID, category AS name, count FROM " + prefix + "points", isMySQLUsed
+                ? "INSERT INTO " + prefix + "points_v2 (playerID, name_id, count) VALUES (?, ?, ?)"
+                    + " ON DUPLICATE KEY UPDATE count = VALUES(count);"
+                : "INSERT OR REPLACE INTO " + prefix + "points_v2 (playerID, name_id, count)"
+                    + " VALUES (?, ?, ?);", true);
+        Debug.info("  Moved " + ids.size() + " names to their own table");
+    }
+
+    /**
+     * Copies the table to a new one (with "_v2" suffix) which stores IDs of
+     * names, and then replaces the old table with it in a single step. It
+     * can be repeated after a crash: a table which already stores IDs is
+     * left alone, and rows already copied are never dropped while the old
+     * table is gone or empty.
+     * 
+     * @param table
+     *            name of the table, without the prefix
+     * @param definition
+     *            columns of the new table
+     * @param select
+     *            query selecting rows of the old table, see
+     *            {@link #copyRows(Connection, HashMap, String, String, boolean)}
+     * @param insert
+     *            statement inserting rows into the new table
+     * @param withCount
+     *            whether "count" column is copied too
+     */
+    private void rebuild(Connection connection, HashMap<String, Integer> ids, String table,
+            String definition, String select, String insert, boolean withCount) throws SQLException {
+        String oldTable = prefix + table;
+        String newTable = prefix + table + "_v2";
+        Statement statement = connection.createStatement();
+        if (hasColumn(connection, oldTable, "name_id")) {
+            // replaced before, but the version wasn't saved
+            statement.executeUpdate("DROP TABLE IF EXISTS " + oldTable + "_old;");
+            statement.close();
+            return;
+        }
+        int oldRows = countRows(connection, oldTable);
+        int newRows = countRows(connection, newTable);
+        if (newRows > 0 && oldRows <= 0) {
+            // the old table was lost after copying, so these rows are the
+            // only copy of the data
+            Debug.broadcast("Using " + newRows + " rows already copied to " + newTable);
+        } else {
+            // leftovers of a copy which failed are useless, the old table
+            // still has everything
+            statement.executeUpdate("DROP TABLE IF EXISTS " + newTable + ";");
+            statement.executeUpdate("CREATE TABLE " + newTable + " " + definition + ";");
+            createIndex(connection, table + "_v2", "playerID, name_id", true);
+            connection.setAutoCommit(false);
+            try {
+                copyRows(connection, ids, select, insert, withCount);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        if (isMySQLUsed) {
+            // MySQL can't change tables in a transaction, but renaming many
+            // tables in one statement is atomic
+            statement.executeUpdate("DROP TABLE IF EXISTS " + oldTable + "_old;");
+            if (oldRows < 0) {
+                statement.executeUpdate("RENAME TABLE " + newTable + " TO " + oldTable + ";");
+            } else {
+                statement.executeUpdate("RENAME TABLE " + oldTable + " TO " + oldTable + "_old, "
+                    + newTable + " TO " + oldTable + ";");
+                statement.executeUpdate("DROP TABLE " + oldTable + "_old;");
+            }
+        } else {
+            connection.setAutoCommit(false);
+            try {
+                if (oldRows >= 0) {
+                    statement.executeUpdate("DROP TABLE " + oldTable + ";");
+                }
+                statement.executeUpdate("ALTER TABLE " + newTable + " RENAME TO " + oldTable + ";");
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        statement.close();
+    }
+
+    /**
+     * @return true if the table exists and has the column
+     */
+    private boolean hasColumn(Connection connection, String table, String column) {
+        try {
+            Statement statement = connection.createStatement();
+            ResultSetMetaData meta = statement.executeQuery("SELECT * FROM " + table + " LIMIT 0;")
+                    .getMetaData();
+            boolean found = false;
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                if (meta.getColumnLabel(i).equalsIgnoreCase(column)) {
+                    found = true;
+                }
+            }
+            statement.close();
+            return found;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the number of rows in the table, or -1 if it doesn't exist
+     */
+    private int countRows(Connection connection, String table) {
+        try {
+            Statement statement = connection.createStatement();
+            ResultSet res = statement.executeQuery("SELECT COUNT(*) FROM " + table + ";");
+            int count = res.next() ? res.getInt(1) : 0;
+            statement.close();
+            return count;
+        } catch (SQLException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Copies rows of the old table to the new one, page by page in the order
+     * of IDs, replacing names with their IDs.
+     * 
+     * @param select
+     *            query selecting "id", "playerID" and "name" (and "count" if
+     *            it's copied) from the old table, without a WHERE clause
+     * @param insert
+     *            statement inserting playerID, name_id (and count) into the
+     *            new table
+     * @param withCount
+     *            whether "count" column is copied too
+     */
+    private void copyRows(Connection connection, HashMap<String, Integer> ids, String select,
+            String insert, boolean withCount) throws SQLException {
+        PreparedStatement query = connection.prepareStatement(select + " WHERE id > ? ORDER BY id"
+            + " LIMIT " + PAGE + ";");
+        PreparedStatement update = connection.prepareStatement(insert);
+        long last = -1;
+        int copied;
+        do {
+            copied = 0;
+            query.setLong(1, last);
+            ResultSet res = query.executeQuery();
+            while (res.next()) {
+                last = res.getLong("id");
+                update.setString(1, res.getString("playerID"));
+                update.setInt(2, nameID(connection, ids, res.getString("name")));
+                if (withCount) {
+                    update.setInt(3, res.getInt("count"));
+                }
+                update.addBatch();
+                copied++;
+            }
+            res.close();
+            update.executeBatch();
+        } while (copied == PAGE);
+        query.close();
+        update.close();
+    }
+
+    /**
+     * Returns the ID of the name in the table of names, adding it if needed.
+     */
+    private int nameID(Connection connection, HashMap<String, Integer> ids, String name)
+            throws SQLException {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        String hash = Connector.nameHash(name);
+        PreparedStatement insert = connection.prepareStatement((isMySQLUsed ? "INSERT IGNORE INTO "
+            : "INSERT OR IGNORE INTO ") + prefix + "names (hash, name) VALUES (?, ?);");
+        insert.setString(1, hash);
+        insert.setString(2, name);
+        insert.executeUpdate();
+        insert.close();
+        PreparedStatement select = connection.prepareStatement("SELECT id FROM " + prefix
+            + "names WHERE hash = ?;");
+        select.setString(1, hash);
+        ResultSet res = select.executeQuery();
+        if (!res.next()) {
+            select.close();
+            throw new SQLException("Could not add name " + name);
+        }
+        id = res.getInt("id");
+        select.close();
+        ids.put(name, id);
+        return id;
+    }
+
+    /**
+     * Creates the index if it doesn't exist yet. MySQL can't index whole
+     * long VARCHARs, so it indexes only a prefix of playerID; IDs are
+     * shorter than this prefix anyway.
+     */
+    private void createIndex(Connection connection, String table, String columns, boolean unique)
+            throws SQLException {
+        String name = prefix + table + "_" + (unique ? "unique" : "player");
+        String type = unique ? "UNIQUE INDEX " : "INDEX ";
+        Statement statement = connection.createStatement();
+        if (isMySQLUsed) {
+            PreparedStatement check = connection.prepareStatement("SHOW INDEX FROM " + prefix
+                + table + " WHERE Key_name = ?;");
+            check.setString(1, name);
+            ResultSet res = check.executeQuery();
+            boolean exists = res.next();
+            check.close();
+            if (!exists) {
+                statement.executeUpdate("ALTER TABLE " + prefix + table + " ADD " + type + name
+                    + " (" + columns.replace("playerID", "playerID(64)") + ");");
+            }
+        } else {
+            statement.executeUpdate("CREATE " + type + "IF NOT EXISTS " + name + " ON " + prefix
+                + table + " (" + columns + ");");
+        }
+        statement.close();
+    }
+}
@@ -61,13 +61,26 @@ public class MySQL extends Database {
         this.database = database;
         this.user = username;
         this.password = password;
+        try {
+            Class.forName("com.mysql.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            Debug.info("MySQL says: " + e.getMessage());
+        }
+    }
+
+    /**
+     * MySQL handles concurrent connections well, so login storms can be
+     * served by several connections at once
+     */
+    @Override
+    protected int getPoolSize() {
+        return 4;
     }
 
     @Override
     public Connection openConnection() {
         Connection connection = null;
         try {
-            Class.forName("com.mysql.jdbc.Driver");
             connection = DriverManager.getConnection("jdbc:mysql://" + this.hostname + ":"
                 + this.port + "/" + this.database, this.user, this.password);
         } catch (Exception e) {
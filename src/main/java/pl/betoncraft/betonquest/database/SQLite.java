@@ -22,10 +22,13 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.logging.Level;
 
 import org.bukkit.plugin.Plugin;
 
+import pl.betoncraft.betonquest.utils.Debug;
+
 /**
  * Connects to and uses a SQLite database
  * 
@@ -45,6 +48,11 @@ public class SQLite extends Database {
     public SQLite(Plugin plugin, String dbLocation) {
         super(plugin);
         this.dbLocation = dbLocation;
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            e.printStackTrace();
+        }
     }
 
     @Override
@@ -62,13 +70,22 @@ public class SQLite extends Database {
         }
         Connection connection = null;
         try {
-            Class.forName("org.sqlite.JDBC");
             connection = DriverManager.getConnection("jdbc:sqlite:"
                 + plugin.getDataFolder().toPath().toString() + "/" + dbLocation);
-        } catch (ClassNotFoundException e) {
-            e.printStackTrace();
         } catch (SQLException e) {
             e.printStackTrace();
+            return null;
+        }
+        // in WAL mode reading connections don't wait for the saver's
+        // transactions; the mode is stored in the file, so setting it again
+        // changes nothing
+        try {
+            Statement statement = connection.createStatement();
+            statement.execute("PRAGMA busy_timeout = 5000;");
+            statement.execute("PRAGMA journal_mode = WAL;");
+            statement.close();
+        } catch (SQLException e) {
+            Debug.info("Could not switch the database to WAL mode: " + e.getMessage());
         }
         return connection;
     }
@@ -0,0 +1,481 @@
+/**
+ * BetonQuest - advanced quests for Bukkit
+ * Copyright (C) 2015  Jakub "Co0sh" Sapalski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.betoncraft.betonquest.database;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import pl.betoncraft.betonquest.database.Connector.UpdateType;
+import pl.betoncraft.betonquest.utils.Debug;
+
+/**
+ * Writes players' data to the database on a separate thread. Changes are
+ * queued by {@link DatabaseHandler#saveData()}; later changes of the same
+ * thing replace earlier ones, and everything that's queued is written in
+ * batches inside a single transaction. If that fails, changes are written
+ * one by one; the ones which still fail are retried later and dropped after
+ * a few attempts.
+ * 
+ * @author Jakub Sapalski
+ */
+public class Saver extends Thread {
+
+    /**
+     * Maximum time in milliseconds between queuing a change and writing it
+     */
+    private static final long INTERVAL = 5000;
+    /**
+     * Number of failed attempts of writing a single change after which it is
+     * dropped
+     */
+    private static final int MAX_ATTEMPTS = 5;
+    /**
+     * Order in which updates are written: whole deletions first, then
+     * deletions of single rows, then insertions
+     */
+    private static final UpdateType[] ORDER = new UpdateType[] {
+        UpdateType.DELETE_OBJECTIVES, UpdateType.DELETE_TAGS, UpdateType.DELETE_POINTS,
+        UpdateType.DELETE_JOURNAL, UpdateType.DELETE_BACKPACK,
+        UpdateType.REMOVE_TAG, UpdateType.REMOVE_POINT,
+        UpdateType.ADD_OBJECTIVES, UpdateType.ADD_JOURNAL, UpdateType.ADD_BACKPACK,
+        UpdateType.UPSERT_TAG, UpdateType.UPSERT_POINT
+    };
+
+    private final Object lock = new Object();
+    /**
+     * Queued changes by their keys, in the order of queuing
+     */
+    private LinkedHashMap<String, Record> pending = new LinkedHashMap<>();
+    private boolean running = true;
+    private boolean flushRequested = false;
+    private boolean writing = false;
+    /**
+     * Changes being written right now
+     */
+    private Collection<Record> inProgress = Collections.emptyList();
+    /**
+     * Number of finished write attempts, used to wait for a flush
+     */
+    private long attempts = 0;
+
+    /**
+     * Creates and starts the saver thread.
+     */
+    public Saver() {
+        super("BetonQuest-Saver");
+        setDaemon(true);
+        start();
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            LinkedHashMap<String, Record> batch;
+            synchronized (lock) {
+                try {
+                    while (pending.isEmpty()) {
+                        if (!running) {
+                            return;
+                        }
+                        lock.wait();
+                    }
+                    // give other changes some time to come, unless flushing
+                    long deadline = System.currentTimeMillis() + INTERVAL;
+                    long left;
+                    while (running && !flushRequested
+                            && (left = deadline - System.currentTimeMillis()) > 0) {
+                        lock.wait(left);
+                    }
+                } catch (InterruptedException e) {
+                    running = false;
+                }
+                batch = pending;
+                pending = new LinkedHashMap<>();
+                flushRequested = false;
+                writing = true;
+                inProgress = batch.values();
+            }
+            List<Record> failed = new ArrayList<>();
+            if (!write(batch.values())) {
+                // find the changes which can't be written, so they don't
+                // hold back the rest
+                for (Record record : batch.values()) {
+                    if (!write(Collections.singletonList(record))) {
+                        failed.add(record);
+                    }
+                }
+            }
+            synchronized (lock) {
+                if (!failed.isEmpty()) {
+                    // put the changes back, in front of the new ones
+                    LinkedHashMap<String, Record> newer = pending;
+                    pending = new LinkedHashMap<>();
+                    for (Record record : failed) {
+                        record.attempts++;
+                        if (!running || record.attempts >= MAX_ATTEMPTS) {
+                            Debug.error("Could not save " + record.key + " to the database after "
+                                + record.attempts + " attempts, the change is lost!");
+                        } else {
+                            add(record);
+                        }
+                    }
+                    for (Record record : newer.values()) {
+                        add(record);
+                    }
+                }
+                writing = false;
+                inProgress = Collections.emptyList();
+                attempts++;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Writes changes to the database in a single transaction.
+     * 
+     * @param records
+     *            changes to write
+     * @return true if the changes were written
+     */
+    private boolean write(Collection<Record> records) {
+        EnumMap<UpdateType, List<String[]>> batches = new EnumMap<>(UpdateType.class);
+        for (Record record : records) {
+            for (int i = 0; i < record.types.size(); i++) {
+                UpdateType type = record.types.get(i);
+                List<String[]> batch = batches.get(type);
+                if (batch == null) {
+                    batch = new ArrayList<>();
+                    batches.put(type, batch);
+                }
+                batch.add(record.args.get(i));
+            }
+        }
+        Connector con = null;
+        try {
+            con = new Connector();
+            con.begin();
+            for (UpdateType type : ORDER) {
+                List<String[]> batch = batches.get(type);
+                if (batch != null) {
+                    con.updateBatch(type, batch);
+                }
+            }
+            con.commit();
+            Debug.info("Saved " + records.size() + " changes to the database");
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            Debug.error("Could not save data to the database: " + e.getMessage());
+            if (con != null) {
+                con.rollback();
+            }
+            return false;
+        } finally {
+            if (con != null) {
+                con.close();
+            }
+        }
+    }
+
+    /**
+     * Queues the change, replacing the queued change with the same key.
+     * Purging the player drops all of the player's queued changes.
+     */
+    private void add(Record record) {
+        if (record.purge) {
+            for (Iterator<Record> iterator = pending.values().iterator(); iterator.hasNext();) {
+                if (iterator.next().playerID.equals(record.playerID)) {
+                    iterator.remove();
+                }
+            }
+        } else {
+            // remove it first so it's moved to the end
+            pending.remove(record.key);
+        }
+        pending.put(record.key, record);
+    }
+
+    private void queue(Record record) {
+        synchronized (lock) {
+            add(record);
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Queues adding the tag.
+     * 
+     * @param playerID
+     *            ID of the player
+     * @param tag
+     *            the tag
+     */
+    public void addTag(String playerID, String tag) {
+        Record record = new Record(playerID, "tag " + tag, false);
+        record.add(UpdateType.UPSERT_TAG, playerID, tag);
+        queue(record);
+    }
+
+    /**
+     * Queues removing the tag.
+     * 
+     * @param playerID
+     *            ID of the player
+     * @param tag
+     *            the tag
+     */
+    public void removeTag(String playerID, String tag) {
+        Record record = new Record(playerID, "tag " + tag, false);
+        record.add(UpdateType.REMOVE_TAG, playerID, tag);
+        queue(record);
+    }
+
+    /**
+     * Queues setting the amount of points in the category.
+     * 
+     * @param playerID
+     *            ID of the player
+     * @param category
+     *            category of points
+     * @param count
+     *            new amount of points
+     */
+    public void setPoints(String playerID, String category, int count) {
+        Record record = new Record(playerID, "point " + category, false);
+        record.add(UpdateType.UPSERT_POINT, playerID, category, String.valueOf(count));
+        queue(record);
+    }
+
+    /**
+     * Queues removing the category of points.
+     * 
+     * @param playerID
+     *            ID of the player
+     * @param category
+     *            category of points
+     */
+    public void removePoints(String playerID, String category) {
+        Record record = new Record(playerID, "point " + category, false);
+        record.add(UpdateType.REMOVE_POINT, playerID, category);
+        queue(record);
+    }
+
+    /**
+     * Queues replacing all objectives of the player.
+     * 
+     * @param playerID
+     *            ID of the player
+     * @param objectives
+     *            instruction strings of objectives
+     */
+    public void setObjectives(String playerID, List<String> objectives) {
+        Record record = new Record(playerID, "objectives", false);
+        record.add(UpdateType.DELETE_OBJECTIVES, playerID);
+        for (String instruction : objectives) {
+            record.add(UpdateType.ADD_OBJECTIVES, playerID, instruction);
+        }
+        queue(record);
+    }
+
+    /**
+     * Queues replacing all journal entries of the player.
+     * 
+     * @param playerID
+     *            ID of the player
+     * @param entries
+     *            pointers and dates of entries
+     */
+    public void setJournal(String playerID, List<String[]> entries) {
+        Record record = new Record(playerID, "journal", false);
+        record.add(UpdateType.DELETE_JOURNAL, playerID);
+        for (String[] entry : entries) {
+            record.add(UpdateType.ADD_JOURNAL, playerID, entry[0], entry[1]);
+        }
+        queue(record);
+    }
+
+    /**
+     * Queues replacing all items in the player's backpack.
+     * 
+     * @param playerID
+     *            ID of the player
+     * @param items
+     *            instruction strings and amounts of items
+     */
+    public void setBackpack(String playerID, List<String[]> items) {
+        Record record = new Record(playerID, "backpack", false);
+        record.add(UpdateType.DELETE_BACKPACK, playerID);
+        for (String[] item : items) {
+            record.add(UpdateType.ADD_BACKPACK, playerID, item[0], item[1]);
+        }
+        queue(record);
+    }
+
+    /**
+     * Queues deleting all data of the player.
+     * 
+     * @param playerID
+     *            ID of the player
+     */
+    public void purge(String playerID) {
+        Record record = new Record(playerID, "purge", true);
+        record.add(UpdateType.DELETE_OBJECTIVES, playerID);
+        record.add(UpdateType.DELETE_TAGS, playerID);
+        record.add(UpdateType.DELETE_POINTS, playerID);
+        record.add(UpdateType.DELETE_JOURNAL, playerID);
+        record.add(UpdateType.DELETE_BACKPACK, playerID);
+        queue(record);
+    }
+
+    /**
+     * Makes the thread write queued changes right away, without waiting for
+     * them to be written.
+     */
+    public void requestFlush() {
+        synchronized (lock) {
+            flushRequested = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Writes queued changes right away and waits until they are written (or
+     * the writing fails).
+     */
+    public void flush() {
+        synchronized (lock) {
+            if (pending.isEmpty() && !writing) {
+                return;
+            }
+            // if something is being written now, new changes will be in the
+            // next attempt
+            long target = attempts + (writing ? 2 : 1);
+            flushRequested = true;
+            lock.notifyAll();
+            while (attempts < target && isAlive()) {
+                try {
+                    lock.wait(1000);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes queued changes right away and waits until changes of the given
+     * players are written (or the writing fails). Changes of other players
+     * don't make it wait longer.
+     * 
+     * @param playerIDs
+     *            IDs of players whose changes must be written
+     */
+    public void flush(Collection<String> playerIDs) {
+        synchronized (lock) {
+            if (!hasChanges(playerIDs)) {
+                return;
+            }
+            long target = attempts + (writing ? 2 : 1);
+            flushRequested = true;
+            lock.notifyAll();
+            while (attempts < target && isAlive() && hasChanges(playerIDs)) {
+                try {
+                    lock.wait(1000);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes queued changes right away and waits until changes of the player
+     * are written (or the writing fails).
+     * 
+     * @param playerID
+     *            ID of the player
+     */
+    public void flush(String playerID) {
+        flush(Collections.singleton(playerID));
+    }
+
+    /**
+     * @return true if any of the players has queued changes or changes
+     *         which are being written
+     */
+    private boolean hasChanges(Collection<String> playerIDs) {
+        for (Record record : pending.values()) {
+            if (playerIDs.contains(record.playerID)) {
+                return true;
+            }
+        }
+        for (Record record : inProgress) {
+            if (playerIDs.contains(record.playerID)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes all queued changes and stops the thread, waiting for it to
+     * finish.
+     */
+    public void end() {
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+        try {
+            join();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Single queued change, consisting of one or more updates.
+     */
+    private static class Record {
+
+        private final String playerID;
+        private final String key;
+        private final boolean purge;
+        private final List<UpdateType> types = new ArrayList<>();
+        private final List<String[]> args = new ArrayList<>();
+        private int attempts = 0;
+
+        private Record(String playerID, String key, boolean purge) {
+            this.playerID = playerID;
+            this.key = playerID + " " + key;
+            this.purge = purge;
+        }
+
+        private void add(UpdateType type, String... args) {
+            types.add(type);
+            this.args.add(args);
+        }
+    }
+}
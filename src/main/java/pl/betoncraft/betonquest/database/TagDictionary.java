@@ -0,0 +1,144 @@
+/**
+ * BetonQuest - advanced quests for Bukkit
+ * Copyright (C) 2015  Jakub "Co0sh" Sapalski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.betoncraft.betonquest.database;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Server-wide dictionary of tag and point category names. Every name gets
+ * a compact integer ID, so players' data can be stored as sets of numbers
+ * and names are kept in memory only once.
+ * <p>
+ * The database stores names in their own table, and tags and points refer
+ * to them by IDs from that table. These persistent IDs are assigned by the
+ * database (which can be shared by many servers), so they are remembered
+ * here separately, once they are known.
+ * 
+ * @author Jakub Sapalski
+ */
+public class TagDictionary {
+
+    private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    /**
+     * Names by their IDs; the array is replaced with a bigger one when full
+     */
+    private static volatile String[] names = new String[256];
+    /**
+     * Persistent IDs of names, by their IDs; 0 means it is not known yet
+     */
+    private static int[] persistent = new int[256];
+    private static int size = 0;
+
+    /**
+     * Returns the ID of the name, adding it to the dictionary if needed.
+     * 
+     * @param name
+     *            the name
+     * @return ID of the name
+     */
+    public static int id(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (TagDictionary.class) {
+            id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            if (size == names.length) {
+                String[] bigger = new String[size * 2];
+                System.arraycopy(names, 0, bigger, 0, size);
+                names = bigger;
+                int[] biggerPersistent = new int[size * 2];
+                System.arraycopy(persistent, 0, biggerPersistent, 0, size);
+                persistent = biggerPersistent;
+            }
+            names[size] = name;
+            ids.put(name, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Returns the ID of the name without adding it to the dictionary.
+     * 
+     * @param name
+     *            the name
+     * @return ID of the name or -1 if it's not in the dictionary
+     */
+    public static int find(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the name with this ID.
+     * 
+     * @param id
+     *            ID of the name
+     * @return the name
+     */
+    public static String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * Returns the single instance of the name kept in the dictionary.
+     * 
+     * @param name
+     *            the name
+     * @return equal name from the dictionary
+     */
+    public static String intern(String name) {
+        return names[id(name)];
+    }
+
+    /**
+     * Returns the ID of the name in the database's table of names.
+     * 
+     * @param name
+     *            the name
+     * @return persistent ID of the name or 0 if it's not known yet
+     */
+    public static synchronized int persistentID(String name) {
+        return persistent[id(name)];
+    }
+
+    /**
+     * Remembers the ID of the name in the database's table of names. Call it
+     * only when the name is surely stored there (for example after the
+     * transaction adding it was committed).
+     * 
+     * @param name
+     *            the name
+     * @param persistentID
+     *            ID of the name in the database
+     */
+    public static synchronized void setPersistentID(String name, int persistentID) {
+        persistent[id(name)] = persistentID;
+    }
+
+    /**
+     * Forgets all persistent IDs, for example when the table of names was
+     * recreated.
+     */
+    public static synchronized void clearPersistentIDs() {
+        persistent = new int[persistent.length];
+    }
+}
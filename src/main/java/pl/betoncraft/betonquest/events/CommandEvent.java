@@ -21,6 +21,7 @@ import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
 import pl.betoncraft.betonquest.api.QuestEvent;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
@@ -33,9 +34,9 @@ public class CommandEvent extends QuestEvent {
 
     private final String[] commands;
 
-    public CommandEvent(String packName, String instructions)
+    public CommandEvent(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
         staticness = true;
         persistent = true;
         try {
@@ -19,6 +19,7 @@ package pl.betoncraft.betonquest.events;
 
 import pl.betoncraft.betonquest.api.QuestEvent;
 import pl.betoncraft.betonquest.core.Conversation;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
@@ -32,9 +33,9 @@ public class ConversationEvent extends QuestEvent {
     private final String pack;
     private final String conv;
     
-    public ConversationEvent(String packName, String instructions)
+    public ConversationEvent(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
         String[] parts = instructions.split(" ");
         if (parts.length < 2) {
             throw new InstructionParseException("Conversation not defined");
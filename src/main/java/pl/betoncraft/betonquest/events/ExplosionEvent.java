@@ -17,12 +17,12 @@
  */
 package pl.betoncraft.betonquest.events;
 
-import org.bukkit.Bukkit;
 import org.bukkit.Location;
-import org.bukkit.World;
 
 import pl.betoncraft.betonquest.api.QuestEvent;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
+import pl.betoncraft.betonquest.core.Worlds;
 
 /**
  * Spawns an explosion in a given location and with given flags
@@ -34,11 +34,12 @@ public class ExplosionEvent extends QuestEvent {
     private final boolean  setsFire;
     private final boolean  breaksBlocks;
     private final float    power;
-    private final Location loc;
+    private final String   world;
+    private final double   x, y, z;
 
-    public ExplosionEvent(String packName, String instructions)
+    public ExplosionEvent(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
         staticness = true;
         String[] parts = instructions.split(" ");
         if (parts.length < 5) {
@@ -55,12 +56,11 @@ public class ExplosionEvent extends QuestEvent {
         if (partsOfLoc.length != 4) {
             throw new InstructionParseException("Wrong location format");
         }
-        World world = Bukkit.getWorld(partsOfLoc[3]);
-        if (world == null) {
+        world = partsOfLoc[3];
+        if (!Worlds.exists(world)) {
             throw new InstructionParseException("World " + partsOfLoc[3]
                     + " does not exists.");
         }
-        double x, y, z;
         try {
             x = Double.parseDouble(partsOfLoc[0]);
             y = Double.parseDouble(partsOfLoc[1]);
@@ -68,13 +68,13 @@ public class ExplosionEvent extends QuestEvent {
         } catch (NumberFormatException e) {
             throw new InstructionParseException("Could not parse coordinates");
         }
-        loc = new Location(world, x, y, z);
-
     }
 
     @Override
     public void run(String playerID) {
-        loc.getWorld().createExplosion(loc.getX(), loc.getY(), loc.getZ(),
-                power, setsFire, breaksBlocks);
+        Location loc = Worlds.location(world, x, y, z);
+        if (loc != null) {
+            loc.getWorld().createExplosion(x, y, z, power, setsFire, breaksBlocks);
+        }
     }
 }
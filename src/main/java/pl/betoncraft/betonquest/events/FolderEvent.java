@@ -24,6 +24,7 @@ import org.bukkit.scheduler.BukkitRunnable;
 
 import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.QuestEvent;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 
 /**
@@ -38,9 +39,9 @@ public class FolderEvent extends QuestEvent {
     public final int      random;
     public final String[] events;
 
-    public FolderEvent(final String packName, String instructions)
+    public FolderEvent(final String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
         staticness = true;
         persistent = true;
         // declare variables used later
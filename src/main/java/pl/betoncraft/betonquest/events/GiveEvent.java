@@ -26,6 +26,8 @@ import org.bukkit.inventory.ItemStack;
 import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.QuestEvent;
 import pl.betoncraft.betonquest.config.Config;
+import pl.betoncraft.betonquest.core.ConditionCache;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 import pl.betoncraft.betonquest.core.QuestItem;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
@@ -41,9 +43,9 @@ public class GiveEvent extends QuestEvent {
     private final Item[]  questItems;
     private final boolean notify;
 
-    public GiveEvent(String packName, String instructions)
+    public GiveEvent(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
         String[] parts = instructions.split(" ");
         if (parts.length < 2) {
             throw new InstructionParseException("Not enough arguments");
@@ -79,6 +81,7 @@ public class GiveEvent extends QuestEvent {
     @Override
     public void run(String playerID) {
         Player player = PlayerConverter.getPlayer(playerID);
+        ConditionCache.invalidate(playerID);
         for (Item theItem : questItems) {
             QuestItem questItem = theItem.getItem();
             int amount = theItem.getAmount();
@@ -22,6 +22,7 @@ import java.util.Date;
 import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.QuestEvent;
 import pl.betoncraft.betonquest.config.Config;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 import pl.betoncraft.betonquest.core.Journal;
 import pl.betoncraft.betonquest.core.Pointer;
@@ -36,9 +37,9 @@ public class JournalEvent extends QuestEvent {
     
     private final String name;
 
-    public JournalEvent(String packName, String instructions)
+    public JournalEvent(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
         String[] parts = instructions.split(" ");
         if (parts.length < 2) {
             throw new InstructionParseException("Pointer name not specified!");
@@ -20,6 +20,7 @@ package pl.betoncraft.betonquest.events;
 import org.bukkit.entity.Player;
 
 import pl.betoncraft.betonquest.api.QuestEvent;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
@@ -30,9 +31,9 @@ import pl.betoncraft.betonquest.utils.PlayerConverter;
  */
 public class KillEvent extends QuestEvent {
 
-    public KillEvent(String packName, String instructions)
+    public KillEvent(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
     }
 
     @Override
@@ -17,12 +17,12 @@
  */
 package pl.betoncraft.betonquest.events;
 
-import org.bukkit.Bukkit;
 import org.bukkit.Location;
-import org.bukkit.World;
 
 import pl.betoncraft.betonquest.api.QuestEvent;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
+import pl.betoncraft.betonquest.core.Worlds;
 
 /**
  * Strikes a lightning at specified location
@@ -31,11 +31,12 @@ import pl.betoncraft.betonquest.core.InstructionParseException;
  */
 public class LightningEvent extends QuestEvent {
     
-    private final Location loc;
+    private final String world;
+    private final double x, y, z;
 
-    public LightningEvent(String packName, String instructions)
+    public LightningEvent(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
         String[] parts = instructions.split(" ");
         if (parts.length < 2) {
             throw new InstructionParseException("Not enough arguments");
@@ -44,12 +45,11 @@ public class LightningEvent extends QuestEvent {
         if (partsOfLoc.length != 4) {
             throw new InstructionParseException("Wrong location format");
         }
-        World world = Bukkit.getWorld(partsOfLoc[3]);
-        if (world == null) {
+        world = partsOfLoc[3];
+        if (!Worlds.exists(world)) {
             throw new InstructionParseException("World " + partsOfLoc[3]
                     + " does not exists.");
         }
-        double x, y, z;
         try {
             x = Double.parseDouble(partsOfLoc[0]);
             y = Double.parseDouble(partsOfLoc[1]);
@@ -58,12 +58,14 @@ public class LightningEvent extends QuestEvent {
             throw new InstructionParseException(
                     "Could not parse location coordinates");
         }
-        loc = new Location(world, x, y, z);
     }
 
     @Override
     public void run(String playerID) {
-        loc.getWorld().strikeLightning(loc);
+        Location loc = Worlds.location(world, x, y, z);
+        if (loc != null) {
+            loc.getWorld().strikeLightning(loc);
+        }
     }
 
 }
@@ -19,8 +19,10 @@ package pl.betoncraft.betonquest.events;
 
 import java.util.ArrayList;
 
-import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.QuestEvent;
+import pl.betoncraft.betonquest.core.ConditionRef;
+import pl.betoncraft.betonquest.core.EventRef;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 import pl.betoncraft.betonquest.utils.Utils;
 
@@ -31,13 +33,13 @@ import pl.betoncraft.betonquest.utils.Utils;
  */
 public class PartyEvent extends QuestEvent {
     
-    private final String[] conditions;
-    private final String[] events;
+    private final ConditionRef[] conditions;
+    private final EventRef[]     events;
     private final double   range;
 
-    public PartyEvent(String packName, String instructions)
+    public PartyEvent(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
         String[] parts = instructions.split(" ");
         if (parts.length < 4) {
             throw new InstructionParseException("Not enough arguments");
@@ -49,14 +51,14 @@ public class PartyEvent extends QuestEvent {
                 tempConditions[i] = packName + "." + tempConditions[i];
             }
         }
-        conditions = tempConditions;
+        conditions = ConditionRef.get(tempConditions);
         String[] tempEvents = parts[3].split(",");
         for (int i = 0; i < tempEvents.length; i++) {
             if (!tempEvents[i].contains(".")) {
                 tempEvents[i] = packName + "." + tempEvents[i];
             }
         }
-        events = tempEvents;
+        events = EventRef.get(tempEvents);
         // load the range
         try {
             range = Double.parseDouble(parts[1]);
@@ -67,11 +69,10 @@ public class PartyEvent extends QuestEvent {
 
     @Override
     public void run(String playerID) {
-        ArrayList<String> members = Utils.getParty(playerID, range,
-                pack.getName(), conditions);
+        ArrayList<String> members = Utils.getParty(playerID, range, conditions);
         for (String memberID : members) {
-            for (String event : events) {
-                BetonQuest.event(memberID, event);
+            for (EventRef event : events) {
+                event.fire(memberID);
             }
         }
     }
@@ -21,6 +21,7 @@ import org.bukkit.scheduler.BukkitRunnable;
 
 import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.QuestEvent;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 import pl.betoncraft.betonquest.database.DatabaseHandler;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
@@ -35,9 +36,9 @@ public class PointEvent extends QuestEvent {
     final int    count;
     final String category; 
 
-    public PointEvent(String packName, String instructions)
+    public PointEvent(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
         persistent = true;
         String[] parts = instructions.split(" ");
         if (parts.length < 3) {
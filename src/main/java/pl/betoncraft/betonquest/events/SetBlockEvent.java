@@ -17,13 +17,14 @@
  */
 package pl.betoncraft.betonquest.events;
 
-import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
-import org.bukkit.World;
+import org.bukkit.block.Block;
 
 import pl.betoncraft.betonquest.api.QuestEvent;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
+import pl.betoncraft.betonquest.core.Worlds;
 
 /**
  * Sets the block at specified location
@@ -34,11 +35,12 @@ public class SetBlockEvent extends QuestEvent {
 
     private final Material block;
     private final byte     data;
-    private final Location loc;
+    private final String   world;
+    private final double   x, y, z;
 
-    public SetBlockEvent(String packName, String instructions)
+    public SetBlockEvent(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
         String[] parts = instructions.split(" ");
         if (parts.length < 3) {
             throw new InstructionParseException("Not enough arguments");
@@ -54,12 +56,11 @@ public class SetBlockEvent extends QuestEvent {
         if (coords.length != 4) {
             throw new InstructionParseException("Wrong locatio format");
         }
-        World world = Bukkit.getWorld(coords[3]);
-        if (world == null) {
+        world = coords[3];
+        if (!Worlds.exists(world)) {
             throw new InstructionParseException("World "
                     + coords[3] + " does not exist");
         }
-        double x, y, z;
         try {
             x = Double.parseDouble(coords[0]);
             y = Double.parseDouble(coords[1]);
@@ -67,7 +68,6 @@ public class SetBlockEvent extends QuestEvent {
         } catch (NumberFormatException e) {
             throw new InstructionParseException("Could not parse coordinates");
         }
-        loc = new Location(world, x, y, z);
         // get data value
         byte tempData = 0;
         for (String part : parts) {
@@ -86,8 +86,13 @@ public class SetBlockEvent extends QuestEvent {
     @SuppressWarnings("deprecation")
     @Override
     public void run(String playerID) {
-        loc.getBlock().setType(block);
-        loc.getBlock().setData(data);
+        Location loc = Worlds.location(world, x, y, z);
+        if (loc == null) {
+            return;
+        }
+        Block target = loc.getBlock();
+        target.setType(block);
+        target.setData(data);
     }
 
 }
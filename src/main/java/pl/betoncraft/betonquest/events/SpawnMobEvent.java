@@ -17,15 +17,15 @@
  */
 package pl.betoncraft.betonquest.events;
 
-import org.bukkit.Bukkit;
 import org.bukkit.Location;
-import org.bukkit.World;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.LivingEntity;
 
 import pl.betoncraft.betonquest.api.QuestEvent;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
+import pl.betoncraft.betonquest.core.Worlds;
 
 /**
  * Spawns mobs at given location
@@ -34,14 +34,15 @@ import pl.betoncraft.betonquest.core.InstructionParseException;
  */
 public class SpawnMobEvent extends QuestEvent {
 
-    private final Location loc;
+    private final String world;
+    private final double x, y, z;
     private final EntityType type;
     private final int amount;
     private final String name;
 
-    public SpawnMobEvent(String packName, String instructions)
+    public SpawnMobEvent(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
         staticness = true;
         String[] parts = instructions.split(" ");
         if (parts.length < 4) {
@@ -51,11 +52,10 @@ public class SpawnMobEvent extends QuestEvent {
         if (coords.length < 4) {
             throw new InstructionParseException("Wrong location format");
         }
-        World world = Bukkit.getWorld(coords[3]);
-        if (world == null) {
+        world = coords[3];
+        if (!Worlds.exists(world)) {
             throw new InstructionParseException("World does not exist");
         }
-        double x, y, z;
         try {
             x = Double.parseDouble(coords[0]);
             y = Double.parseDouble(coords[1]);
@@ -63,7 +63,6 @@ public class SpawnMobEvent extends QuestEvent {
         } catch (NumberFormatException e) {
             throw new InstructionParseException("Could not parse coordinates");
         }
-        loc = new Location(world, x, y, z);
         type = EntityType.valueOf(parts[2].toUpperCase());
         if (type == null) {
             throw new InstructionParseException("Entity type does not exist");
@@ -85,6 +84,10 @@ public class SpawnMobEvent extends QuestEvent {
 
     @Override
     public void run(String playerID) {
+        Location loc = Worlds.location(world, x, y, z);
+        if (loc == null) {
+            return;
+        }
         for (int i = 0; i < amount; i++) {
             Entity entity = loc.getWorld().spawnEntity(loc, type);
             if (name != null && entity instanceof LivingEntity) {
@@ -18,16 +18,13 @@
 package pl.betoncraft.betonquest.events;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.List;
 
 import org.bukkit.entity.Player;
-import org.bukkit.inventory.ItemStack;
 
 import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.QuestEvent;
 import pl.betoncraft.betonquest.config.Config;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 import pl.betoncraft.betonquest.core.QuestItem;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
@@ -42,9 +39,9 @@ public class TakeEvent extends QuestEvent {
     private final Item[]  questItems;
     private final boolean notify;
 
-    public TakeEvent(String packName, String instructions)
+    public TakeEvent(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
         String[] parts = instructions.split(" ");
         if (parts.length < 2) {
             throw new InstructionParseException("Not eoungh arguments");
@@ -91,51 +88,10 @@ public class TakeEvent extends QuestEvent {
                         .replaceAll("&", "§"));
             }
 
-            //Remove Quest items from player's inventory
-            player.getInventory().setContents(
-                    removeItems(player.getInventory().getContents(), questItem,
-                            amount));
-
-            //Remove Quest items from player's armor slots
-            player.getInventory().setArmorContents(
-                    removeItems(player.getInventory().getArmorContents(),
-                            questItem, amount));
-
-            //Remove Quest items from player's backpack
-            if (amount > 0) {
-                List<ItemStack> backpack =
-                        BetonQuest.getInstance().getDBHandler(playerID)
-                                .getBackpack();
-                ItemStack[] array = new ItemStack[] {};
-                array = backpack.toArray(array);
-                LinkedList<ItemStack> list =
-                        new LinkedList<>(Arrays.asList(removeItems(array,
-                                questItem, amount)));
-                while (list.remove(null))
-                    BetonQuest.getInstance().getDBHandler(playerID)
-                            .setBackpack(list);
-            }
-        }
-    }
-
-    private ItemStack[] removeItems(ItemStack[] items, QuestItem questItem,
-            int amount) {
-        for (int i = 0; i < items.length; i++) {
-            ItemStack item = items[i];
-            if (questItem.equalsI(item)) {
-                if (item.getAmount() - amount <= 0) {
-                    amount = amount - item.getAmount();
-                    items[i] = null;
-                } else {
-                    item.setAmount(item.getAmount() - amount);
-                    amount = 0;
-                }
-                if (amount <= 0) {
-                    break;
-                }
-            }
+            // remove quest items from player's inventory, armor slots and
+            // backpack, touching only slots with matching items
+            BetonQuest.getInstance().getDBHandler(playerID).getItemIndex().take(questItem, amount);
         }
-        return items;
     }
 
     private class Item {
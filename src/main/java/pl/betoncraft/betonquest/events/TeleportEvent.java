@@ -17,12 +17,12 @@
  */
 package pl.betoncraft.betonquest.events;
 
-import org.bukkit.Bukkit;
 import org.bukkit.Location;
-import org.bukkit.World;
 
 import pl.betoncraft.betonquest.api.QuestEvent;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
+import pl.betoncraft.betonquest.core.Worlds;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
 /**
@@ -32,11 +32,13 @@ import pl.betoncraft.betonquest.utils.PlayerConverter;
  */
 public class TeleportEvent extends QuestEvent {
 
-    private final Location loc;
+    private final String world;
+    private final double x, y, z;
+    private final float yaw, pitch;
     
-    public TeleportEvent(String packName, String instructions)
+    public TeleportEvent(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
         String[] parts = instructions.split(" ");
         if (parts.length < 2) {
             throw new InstructionParseException("Location not specified");
@@ -45,13 +47,10 @@ public class TeleportEvent extends QuestEvent {
         if (location.length < 4) {
             throw new InstructionParseException("Wrong location format");
         }
-        World world = Bukkit.getWorld(location[3]);
-        if (world == null) {
+        world = location[3];
+        if (!Worlds.exists(world)) {
             throw new InstructionParseException("World does not exists");
         }
-        double x, y, z;
-        float yaw   = 0,
-              pitch = 0;
         try {
             x = Double.parseDouble(location[0]);
             y = Double.parseDouble(location[1]);
@@ -59,14 +58,19 @@ public class TeleportEvent extends QuestEvent {
             if (location.length == 6) {
         	yaw = Float.parseFloat(location[4]);
         	pitch = Float.parseFloat(location[5]);
+            } else {
+                yaw = 0;
+                pitch = 0;
             }
         } catch (NumberFormatException e) {
             throw new InstructionParseException("Could not parse coordinates");
         }
-        loc = new Location(world, x, y, z, yaw, pitch);
     }
 
     public void run(String playerID) {
-	PlayerConverter.getPlayer(playerID).teleport(loc);
+        Location loc = Worlds.location(world, x, y, z, yaw, pitch);
+        if (loc != null) {
+            PlayerConverter.getPlayer(playerID).teleport(loc);
+        }
     }
 }
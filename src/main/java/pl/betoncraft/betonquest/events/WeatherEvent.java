@@ -20,6 +20,7 @@ package pl.betoncraft.betonquest.events;
 import org.bukkit.World;
 
 import pl.betoncraft.betonquest.api.QuestEvent;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.core.InstructionParseException;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
@@ -33,9 +34,9 @@ public class WeatherEvent extends QuestEvent {
     private final boolean storm;
     private final boolean thunder;
 
-    public WeatherEvent(String packName, String instructions)
+    public WeatherEvent(String packName, Instruction instruction)
             throws InstructionParseException {
-        super(packName, instructions);
+        super(packName, instruction);
         String[] parts = instructions.split(" ");
         if (parts.length < 2) {
             throw new InstructionParseException("Not enough arguments");
@@ -21,13 +21,12 @@ import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.event.EventHandler;
-import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
 import org.bukkit.event.player.PlayerInteractEvent;
 
-import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.Objective;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
 /**
@@ -43,8 +42,8 @@ public class ActionObjective extends Objective implements Listener {
     private Location loc = null;
     double range = 0;
 
-    public ActionObjective(String playerID, String instructions) {
-        super(playerID, instructions);
+    public ActionObjective(String playerID, Instruction instruction) {
+        super(playerID, instruction);
         String[] parts = instructions.split(" ");
         action = parts[1];
         if (parts[2].equalsIgnoreCase("any")) {
@@ -66,7 +65,6 @@ public class ActionObjective extends Objective implements Listener {
                 range = Double.parseDouble(coords[4]);
             }
         }
-        Bukkit.getPluginManager().registerEvents(this, BetonQuest.getInstance());
     }
 
     @SuppressWarnings("deprecation")
@@ -81,14 +79,12 @@ public class ActionObjective extends Objective implements Listener {
                     if ((event.getAction().equals(Action.RIGHT_CLICK_AIR) || event.getAction()
                             .equals(Action.RIGHT_CLICK_BLOCK)) && checkConditions()) {
                         completeObjective();
-                        HandlerList.unregisterAll(this);
                     }
                     break;
                 case "left":
                     if ((event.getAction().equals(Action.LEFT_CLICK_AIR) || event.getAction()
                             .equals(Action.LEFT_CLICK_BLOCK)) && checkConditions()) {
                         completeObjective();
-                        HandlerList.unregisterAll(this);
                     }
                     break;
                 default:
@@ -97,7 +93,6 @@ public class ActionObjective extends Objective implements Listener {
                         || event.getAction().equals(Action.RIGHT_CLICK_AIR) || event.getAction()
                             .equals(Action.RIGHT_CLICK_BLOCK)) && checkConditions()) {
                         completeObjective();
-                        HandlerList.unregisterAll(this);
                     }
                     break;
             }
@@ -123,7 +118,6 @@ public class ActionObjective extends Objective implements Listener {
                 && (loc == null || event.getClickedBlock().getLocation().distance(loc) <= range)
                 && checkConditions()) {
                 completeObjective();
-                HandlerList.unregisterAll(this);
             }
         }
     }
@@ -134,9 +128,4 @@ public class ActionObjective extends Objective implements Listener {
             + events + " label:" + tag;
     }
 
-    @Override
-    public void delete() {
-        HandlerList.unregisterAll(this);
-    }
-
 }
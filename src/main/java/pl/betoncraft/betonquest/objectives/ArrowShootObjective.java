@@ -23,13 +23,13 @@ import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.Projectile;
 import org.bukkit.event.EventHandler;
-import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.ProjectileHitEvent;
 import org.bukkit.scheduler.BukkitRunnable;
 
 import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.Objective;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.utils.Debug;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
@@ -49,8 +49,8 @@ public class ArrowShootObjective extends Objective implements Listener {
      */
     private double precision = 0;
 
-    public ArrowShootObjective(String playerID, String instructions) {
-        super(playerID, instructions);
+    public ArrowShootObjective(String playerID, Instruction instruction) {
+        super(playerID, instruction);
         // extract data from instruction
         String[] parts = instructions.split(" ");
         if (parts.length < 2) {
@@ -73,14 +73,14 @@ public class ArrowShootObjective extends Objective implements Listener {
         } catch (NumberFormatException e) {
             Debug.error("Numbers are incorrect in location definition in " + tag + " objective!");
         }
-        // if the objective was instanciated incorrectly, ignore event
-        if (location != null && precision != 0) {
-            Bukkit.getPluginManager().registerEvents(this, BetonQuest.getInstance());
-        }
     }
     
     @EventHandler
     public void onArrowHit(ProjectileHitEvent event) {
+        // if the objective was instanciated incorrectly, ignore event
+        if (location == null || precision == 0) {
+            return;
+        }
         // check if it's the arrow shot by the player
         final Projectile arrow = event.getEntity();
         if (arrow.getType() != EntityType.ARROW) {
@@ -112,9 +112,4 @@ public class ArrowShootObjective extends Objective implements Listener {
         return instructions;
     }
 
-    @Override
-    public void delete() {
-        HandlerList.unregisterAll(this);
-    }
-
 }
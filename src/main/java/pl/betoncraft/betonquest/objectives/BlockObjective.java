@@ -17,18 +17,16 @@
  */
 package pl.betoncraft.betonquest.objectives;
 
-import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
-import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
 
-import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.Objective;
 import pl.betoncraft.betonquest.config.Config;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
 /**
@@ -49,10 +47,10 @@ public class BlockObjective extends Objective implements Listener {
      * Constructor method
      * 
      * @param playerID
-     * @param instructions
+     * @param instruction
      */
-    public BlockObjective(String playerID, String instructions) {
-        super(playerID, instructions);
+    public BlockObjective(String playerID, Instruction instruction) {
+        super(playerID, instruction);
         String[] parts = instructions.split(" ");
         String blockType = parts[1];
         if (blockType.contains(":")) {
@@ -67,7 +65,6 @@ public class BlockObjective extends Objective implements Listener {
                 notify = true;
             }
         }
-        Bukkit.getPluginManager().registerEvents(this, BetonQuest.getInstance());
     }
 
     @EventHandler
@@ -77,7 +74,6 @@ public class BlockObjective extends Objective implements Listener {
             && (data < 0 || event.getBlock().getData() == data) && checkConditions()) {
             currentAmount++;
             if (currentAmount == neededAmount) {
-                HandlerList.unregisterAll(this);
                 completeObjective();
             } else if (notify) {
                 Player player = PlayerConverter.getPlayer(playerID);
@@ -101,7 +97,6 @@ public class BlockObjective extends Objective implements Listener {
             && (data < 0 || event.getBlock().getData() == data) && checkConditions()) {
             currentAmount--;
             if (currentAmount == neededAmount) {
-                HandlerList.unregisterAll(this);
                 completeObjective();
             } else if (notify) {
                 Player player = PlayerConverter.getPlayer(playerID);
@@ -125,9 +120,4 @@ public class BlockObjective extends Objective implements Listener {
             + " label:" + tag;
     }
 
-    @Override
-    public void delete() {
-        HandlerList.unregisterAll(this);
-    }
-
 }
@@ -17,19 +17,17 @@
  */
 package pl.betoncraft.betonquest.objectives;
 
-import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
-import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.ClickType;
 import org.bukkit.event.inventory.CraftItemEvent;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryType;
 
-import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.Objective;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
 /**
@@ -46,10 +44,10 @@ public class CraftingObjective extends Objective implements Listener {
      * Constructor method
      * 
      * @param playerID
-     * @param instructions
+     * @param instruction
      */
-    public CraftingObjective(String playerID, String instructions) {
-        super(playerID, instructions);
+    public CraftingObjective(String playerID, Instruction instruction) {
+        super(playerID, instruction);
         String type = instructions.split(" ")[1];
         if (type.contains(":")) {
             material = Material.matchMaterial(type.split(":")[0]);
@@ -58,7 +56,6 @@ public class CraftingObjective extends Objective implements Listener {
             material = Material.matchMaterial(type);
         }
         amount = Integer.parseInt(instructions.split(" ")[2]);
-        Bukkit.getPluginManager().registerEvents(this, BetonQuest.getInstance());
     }
 
     @SuppressWarnings("deprecation")
@@ -72,7 +69,6 @@ public class CraftingObjective extends Objective implements Listener {
                 && checkConditions()) {
                 this.amount = amount - event.getRecipe().getResult().getAmount();
                 if (amount <= 0) {
-                    HandlerList.unregisterAll(this);
                     completeObjective();
                 } else {
                 }
@@ -99,9 +95,4 @@ public class CraftingObjective extends Objective implements Listener {
             + " label:" + tag;
     }
 
-    @Override
-    public void delete() {
-        HandlerList.unregisterAll(this);
-    }
-
 }
@@ -24,14 +24,15 @@ import org.bukkit.scheduler.BukkitTask;
 
 import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.Objective;
+import pl.betoncraft.betonquest.core.Instruction;
 
 public class DelayObjective extends Objective {
 
     private long stamp = -1;
     private BukkitTask runnable;
 
-    public DelayObjective(String playerID, String instructions) {
-        super(playerID, instructions);
+    public DelayObjective(String playerID, Instruction instruction) {
+        super(playerID, instruction);
         // if you don't define stamp: or delay: then objective will be completed
         // immediately after creating, just like folder event
         for (String part : instructions.split(" ")) {
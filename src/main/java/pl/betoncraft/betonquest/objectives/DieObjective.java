@@ -21,7 +21,6 @@ import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
-import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityDamageEvent;
 import org.bukkit.event.entity.EntityDeathEvent;
@@ -30,6 +29,7 @@ import org.bukkit.scheduler.BukkitRunnable;
 
 import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.Objective;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
 /**
@@ -45,10 +45,10 @@ public class DieObjective extends Objective implements Listener {
      * Constructor method
      * 
      * @param playerID
-     * @param instructions
+     * @param instruction
      */
-    public DieObjective(String playerID, String instructions) {
-        super(playerID, instructions);
+    public DieObjective(String playerID, Instruction instruction) {
+        super(playerID, instruction);
         if (instructions.contains("cancel")) {
             cancel = true;
         }
@@ -67,7 +67,6 @@ public class DieObjective extends Objective implements Listener {
                 }
             }
         }
-        Bukkit.getPluginManager().registerEvents(this, BetonQuest.getInstance());
     }
 
     @EventHandler
@@ -78,7 +77,6 @@ public class DieObjective extends Objective implements Listener {
         if (event.getEntity() instanceof Player
             && ((Player) event.getEntity()).equals(PlayerConverter.getPlayer(playerID))
             && checkConditions()) {
-            HandlerList.unregisterAll(this);
             completeObjective();
         }
     }
@@ -103,7 +101,6 @@ public class DieObjective extends Objective implements Listener {
                 if (location != null) {
                     player.teleport(location);
                 }
-                HandlerList.unregisterAll(this);
                 new BukkitRunnable() {
 
                     @Override
@@ -122,9 +119,4 @@ public class DieObjective extends Objective implements Listener {
         return instructions;
     }
 
-    @Override
-    public void delete() {
-        HandlerList.unregisterAll(this);
-    }
-
 }
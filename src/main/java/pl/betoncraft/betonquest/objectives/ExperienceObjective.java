@@ -17,14 +17,12 @@
  */
 package pl.betoncraft.betonquest.objectives;
 
-import org.bukkit.Bukkit;
 import org.bukkit.event.EventHandler;
-import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerLevelChangeEvent;
 
-import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.Objective;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.utils.Debug;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
@@ -37,8 +35,8 @@ public class ExperienceObjective extends Objective implements Listener {
     
     private int level = 0;
 
-    public ExperienceObjective(String playerID, String instructions) {
-        super(playerID, instructions);
+    public ExperienceObjective(String playerID, Instruction instruction) {
+        super(playerID, instruction);
         String[] parts = instructions.split(" ");
         if (parts.length < 2) {
             Debug.error("Error in objective string: " + instructions);
@@ -50,7 +48,6 @@ public class ExperienceObjective extends Objective implements Listener {
             Debug.error("Error in objective string: " + instructions);
             return;
         }
-        Bukkit.getPluginManager().registerEvents(this, BetonQuest.getInstance());
     }
     
     @EventHandler
@@ -59,7 +56,6 @@ public class ExperienceObjective extends Objective implements Listener {
             return;
         }
         if (event.getNewLevel() >= level && checkConditions()) {
-            HandlerList.unregisterAll(this);
             completeObjective();
         }
     }
@@ -69,9 +65,4 @@ public class ExperienceObjective extends Objective implements Listener {
         return instructions;
     }
 
-    @Override
-    public void delete() {
-        HandlerList.unregisterAll(this);
-    }
-
 }
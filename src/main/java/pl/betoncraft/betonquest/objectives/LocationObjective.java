@@ -17,49 +17,63 @@
  */
 package pl.betoncraft.betonquest.objectives;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.event.EventHandler;
-import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerMoveEvent;
 
 import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.Objective;
+import pl.betoncraft.betonquest.core.Instruction;
+import pl.betoncraft.betonquest.utils.LocationIndex;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
 /**
  * 
  * @author Co0sh
  */
-public class LocationObjective extends Objective implements Listener {
+public class LocationObjective extends Objective {
+
+    /**
+     * Stores areas of active location objectives, separately for every
+     * player, so a move checks only the areas of the moving player
+     */
+    private static final ConcurrentHashMap<String, LocationIndex<LocationObjective>> areas = new ConcurrentHashMap<>();
 
-    private Location location;
-    private double distance;
+    private final String world;
+    private final double x;
+    private final double y;
+    private final double z;
+    private final double radius;
 
     /**
      * Constructor method
      * 
      * @param playerID
-     * @param instructions
+     * @param instruction
      */
-    public LocationObjective(String playerID, String instructions) {
-        super(playerID, instructions);
+    public LocationObjective(String playerID, Instruction instruction) {
+        super(playerID, instruction);
         String[] partsOfLoc = instructions.split(" ")[1].split(";");
-        location = new Location(Bukkit.getWorld(partsOfLoc[3]), Double.valueOf(partsOfLoc[0]),
-                Double.valueOf(partsOfLoc[1]), Double.valueOf(partsOfLoc[2]));
-        distance = Double.valueOf(partsOfLoc[4]);
-        Bukkit.getPluginManager().registerEvents(this, BetonQuest.getInstance());
+        x = Double.valueOf(partsOfLoc[0]);
+        y = Double.valueOf(partsOfLoc[1]);
+        z = Double.valueOf(partsOfLoc[2]);
+        world = partsOfLoc[3];
+        radius = Double.valueOf(partsOfLoc[4]);
     }
 
-    @EventHandler
-    public void onMove(PlayerMoveEvent event) {
-        if (event.getPlayer().equals(PlayerConverter.getPlayer(playerID))
-            && event.getPlayer().getWorld().equals(location.getWorld())) {
-            if (event.getTo().distanceSquared(location) <= distance*distance && super.checkConditions()) {
-                HandlerList.unregisterAll(this);
-                super.completeObjective();
+    @Override
+    public void start() {
+        synchronized (areas) {
+            LocationIndex<LocationObjective> index = areas.get(playerID);
+            if (index == null) {
+                index = new LocationIndex<>();
+                areas.put(playerID, index);
             }
+            index.add(world, x, y, z, radius, this);
         }
     }
 
@@ -70,7 +84,58 @@ public class LocationObjective extends Objective implements Listener {
 
     @Override
     public void delete() {
-        HandlerList.unregisterAll(this);
+        stop();
+    }
+
+    /**
+     * Removes the area of this objective from the index.
+     */
+    private void stop() {
+        synchronized (areas) {
+            LocationIndex<LocationObjective> index = areas.get(playerID);
+            if (index == null) {
+                return;
+            }
+            index.remove(this);
+            if (index.size() == 0) {
+                areas.remove(playerID);
+            }
+        }
+    }
+
+    /**
+     * Checks player movement against areas of the player's location
+     * objectives. Only objectives with areas in the player's chunk are
+     * checked, and only when the player moves to another block.
+     */
+    public static class MoveListener implements Listener {
+
+        public MoveListener() {
+            Bukkit.getPluginManager().registerEvents(this, BetonQuest.getInstance());
+        }
+
+        @EventHandler
+        public void onMove(PlayerMoveEvent event) {
+            if (areas.isEmpty()) {
+                return;
+            }
+            Location from = event.getFrom();
+            Location to = event.getTo();
+            if (from.getBlockX() == to.getBlockX() && from.getBlockY() == to.getBlockY()
+                && from.getBlockZ() == to.getBlockZ() && from.getWorld().equals(to.getWorld())) {
+                return;
+            }
+            LocationIndex<LocationObjective> index = areas.get(PlayerConverter.getID(event.getPlayer()));
+            if (index == null) {
+                return;
+            }
+            for (LocationObjective objective : index.get(to)) {
+                if (objective.checkConditions()) {
+                    objective.stop();
+                    objective.completeObjective();
+                }
+            }
+        }
     }
 
 }
@@ -17,20 +17,18 @@
  */
 package pl.betoncraft.betonquest.objectives;
 
-import org.bukkit.Bukkit;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.Projectile;
 import org.bukkit.event.EventHandler;
-import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
 import org.bukkit.event.entity.EntityDamageEvent.DamageCause;
 import org.bukkit.event.entity.EntityDeathEvent;
 
-import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.Objective;
 import pl.betoncraft.betonquest.config.Config;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
 /**
@@ -48,10 +46,10 @@ public class MobKillObjective extends Objective implements Listener {
      * Constructor method
      * 
      * @param playerID
-     * @param instructions
+     * @param instruction
      */
-    public MobKillObjective(String playerID, String instructions) {
-        super(playerID, instructions);
+    public MobKillObjective(String playerID, Instruction instruction) {
+        super(playerID, instruction);
         String[] parts = instructions.split(" ");
         mobType = EntityType.valueOf(parts[1]);
         amount = Integer.valueOf(parts[2]);
@@ -63,7 +61,6 @@ public class MobKillObjective extends Objective implements Listener {
                 notify = true;
             }
         }
-        Bukkit.getPluginManager().registerEvents(this, BetonQuest.getInstance());
     }
 
     @EventHandler
@@ -80,7 +77,6 @@ public class MobKillObjective extends Objective implements Listener {
                     .equals(mobType) && checkConditions()) {
                 amount--;
                 if (amount == 0) {
-                    HandlerList.unregisterAll(this);
                     completeObjective();
                 } else if (notify) {
                     Player player = PlayerConverter.getPlayer(playerID);
@@ -96,7 +92,6 @@ public class MobKillObjective extends Objective implements Listener {
                 && event.getEntity().getType().equals(mobType) && checkConditions()) {
                 amount--;
                 if (amount == 0) {
-                    HandlerList.unregisterAll(this);
                     completeObjective();
                 } else if (notify) {
                     Player player = PlayerConverter.getPlayer(playerID);
@@ -117,9 +112,4 @@ public class MobKillObjective extends Objective implements Listener {
             + events + " label:" + tag;
     }
 
-    @Override
-    public void delete() {
-        HandlerList.unregisterAll(this);
-    }
-
 }
@@ -17,19 +17,17 @@
  */
 package pl.betoncraft.betonquest.objectives;
 
-import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
-import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.ClickType;
 import org.bukkit.event.inventory.FurnaceExtractEvent;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryType;
 
-import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.Objective;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
 /**
@@ -49,13 +47,12 @@ public class SmeltingObjective extends Objective implements Listener {
      * Constructor method
      * 
      * @param playerID
-     * @param instructions
+     * @param instruction
      */
-    public SmeltingObjective(String playerID, String instructions) {
-        super(playerID, instructions);
+    public SmeltingObjective(String playerID, Instruction instruction) {
+        super(playerID, instruction);
         material = Material.matchMaterial(instructions.split(" ")[1]);
         amount = Integer.parseInt(instructions.split(" ")[2]);
-        Bukkit.getPluginManager().registerEvents(this, BetonQuest.getInstance());
     }
 
     @EventHandler
@@ -65,7 +62,6 @@ public class SmeltingObjective extends Objective implements Listener {
             && event.getItemType().equals(material) && checkConditions()) {
             amount = amount - event.getItemAmount();
             if (amount <= 0) {
-                HandlerList.unregisterAll(this);
                 completeObjective();
             }
         }
@@ -89,9 +85,4 @@ public class SmeltingObjective extends Objective implements Listener {
         return "smelt " + material + " " + amount + " " + conditions + " " + events + " label:" + tag;
     }
 
-    @Override
-    public void delete() {
-        HandlerList.unregisterAll(this);
-    }
-
 }
@@ -17,17 +17,15 @@
  */
 package pl.betoncraft.betonquest.objectives;
 
-import org.bukkit.Bukkit;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
-import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityTameEvent;
 
-import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.api.Objective;
+import pl.betoncraft.betonquest.core.Instruction;
 import pl.betoncraft.betonquest.utils.PlayerConverter;
 
 /**
@@ -47,13 +45,12 @@ public class TameObjective extends Objective implements Listener {
      * Constructor method
      * 
      * @param playerID
-     * @param instructions
+     * @param instruction
      */
-    public TameObjective(String playerID, String instructions) {
-        super(playerID, instructions);
+    public TameObjective(String playerID, Instruction instruction) {
+        super(playerID, instruction);
         type = TamableMobs.valueOf(instructions.split(" ")[1]);
         amount = Integer.parseInt(instructions.split(" ")[2]);
-        Bukkit.getPluginManager().registerEvents(this, BetonQuest.getInstance());
     }
 
     @EventHandler
@@ -82,7 +79,6 @@ public class TameObjective extends Objective implements Listener {
                 break;
         }
         if (amount <= 0) {
-            HandlerList.unregisterAll(this);
             completeObjective();
         }
     }
@@ -92,9 +88,4 @@ public class TameObjective extends Objective implements Listener {
         return "tame " + type + " " + amount + " " + conditions + " " + events + " label:" + tag;
     }
 
-    @Override
-    public void delete() {
-        HandlerList.unregisterAll(this);
-    }
-
 }
@@ -0,0 +1,192 @@
+/**
+ * BetonQuest - advanced quests for Bukkit
+ * Copyright (C) 2015  Jakub "Co0sh" Sapalski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.betoncraft.betonquest.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.bukkit.Location;
+
+/**
+ * Spatial index of spherical areas, stored in a chunk grid of every world.
+ * Checking which areas contain a location only tests areas overlapping the
+ * chunk of that location.
+ * 
+ * @author Co0sh
+ */
+public class LocationIndex<T> {
+
+    /**
+     * Cells are 16 blocks wide, the same as chunks
+     */
+    private static final int CELL_SHIFT = 4;
+    /**
+     * Stores cells of every world, by world name and cell key
+     */
+    private final ConcurrentHashMap<String, ConcurrentHashMap<Long, List<Area<T>>>> worlds = new ConcurrentHashMap<>();
+    /**
+     * Stores areas by their values, so they can be removed
+     */
+    private final ConcurrentHashMap<T, Area<T>> areas = new ConcurrentHashMap<>();
+
+    /**
+     * Adds the area to the index.
+     * 
+     * @param world
+     *            name of the world
+     * @param x
+     *            x coordinate of the center
+     * @param y
+     *            y coordinate of the center
+     * @param z
+     *            z coordinate of the center
+     * @param radius
+     *            radius of the area
+     * @param value
+     *            value returned when a location is inside the area
+     */
+    public synchronized void add(String world, double x, double y, double z, double radius, T value) {
+        remove(value);
+        Area<T> area = new Area<>(world, x, y, z, radius, value);
+        ConcurrentHashMap<Long, List<Area<T>>> cells = worlds.get(world);
+        if (cells == null) {
+            cells = new ConcurrentHashMap<>();
+            worlds.put(world, cells);
+        }
+        for (int cx = area.minX; cx <= area.maxX; cx++) {
+            for (int cz = area.minZ; cz <= area.maxZ; cz++) {
+                Long key = key(cx, cz);
+                List<Area<T>> cell = cells.get(key);
+                if (cell == null) {
+                    cell = new CopyOnWriteArrayList<>();
+                    cells.put(key, cell);
+                }
+                cell.add(area);
+            }
+        }
+        areas.put(value, area);
+    }
+
+    /**
+     * Removes the area with this value from the index.
+     * 
+     * @param value
+     *            value of the area
+     */
+    public synchronized void remove(T value) {
+        Area<T> area = areas.remove(value);
+        if (area == null) {
+            return;
+        }
+        ConcurrentHashMap<Long, List<Area<T>>> cells = worlds.get(area.world);
+        for (int cx = area.minX; cx <= area.maxX; cx++) {
+            for (int cz = area.minZ; cz <= area.maxZ; cz++) {
+                Long key = key(cx, cz);
+                List<Area<T>> cell = cells.get(key);
+                cell.remove(area);
+                if (cell.isEmpty()) {
+                    cells.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns values of all areas containing the location.
+     * 
+     * @param location
+     *            the location to check
+     * @return list of values, empty if the location is not in any area
+     */
+    public List<T> get(Location location) {
+        ConcurrentHashMap<Long, List<Area<T>>> cells = worlds.get(location.getWorld().getName());
+        if (cells == null) {
+            return Collections.emptyList();
+        }
+        double x = location.getX(), y = location.getY(), z = location.getZ();
+        List<Area<T>> cell = cells.get(key(location.getBlockX() >> CELL_SHIFT,
+                location.getBlockZ() >> CELL_SHIFT));
+        if (cell == null) {
+            return Collections.emptyList();
+        }
+        List<T> result = null;
+        for (Area<T> area : cell) {
+            if (area.contains(x, y, z)) {
+                if (result == null) {
+                    result = new ArrayList<>(2);
+                }
+                result.add(area.value);
+            }
+        }
+        if (result == null) {
+            return Collections.emptyList();
+        }
+        return result;
+    }
+
+    /**
+     * @return the amount of areas in the index
+     */
+    public int size() {
+        return areas.size();
+    }
+
+    /**
+     * Removes all areas from the index.
+     */
+    public synchronized void clear() {
+        worlds.clear();
+        areas.clear();
+    }
+
+    private static Long key(int cx, int cz) {
+        return ((long) cx << 32) | (cz & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Single spherical area in the index.
+     */
+    private static class Area<T> {
+
+        private final String world;
+        private final double x, y, z, radiusSquared;
+        private final int minX, maxX, minZ, maxZ;
+        private final T value;
+
+        private Area(String world, double x, double y, double z, double radius, T value) {
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.radiusSquared = radius * radius;
+            this.value = value;
+            minX = (int) Math.floor(x - radius) >> CELL_SHIFT;
+            maxX = (int) Math.floor(x + radius) >> CELL_SHIFT;
+            minZ = (int) Math.floor(z - radius) >> CELL_SHIFT;
+            maxZ = (int) Math.floor(z + radius) >> CELL_SHIFT;
+        }
+
+        private boolean contains(double px, double py, double pz) {
+            double dx = px - x, dy = py - y, dz = pz - z;
+            return dx * dx + dy * dy + dz * dz <= radiusSquared;
+        }
+    }
+}
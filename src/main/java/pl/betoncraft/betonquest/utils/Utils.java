@@ -27,6 +27,10 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -47,10 +51,13 @@ import pl.betoncraft.betonquest.BetonQuest;
 import pl.betoncraft.betonquest.config.Config;
 import pl.betoncraft.betonquest.config.ConfigAccessor;
 import pl.betoncraft.betonquest.config.Zipper;
+import pl.betoncraft.betonquest.core.ConditionRef;
+import pl.betoncraft.betonquest.core.ItemIdentifier;
 import pl.betoncraft.betonquest.database.Connector;
 import pl.betoncraft.betonquest.database.Connector.QueryType;
 import pl.betoncraft.betonquest.database.Connector.UpdateType;
 import pl.betoncraft.betonquest.database.Database;
+import pl.betoncraft.betonquest.database.TagDictionary;
 
 /**
  * Various utilities.
@@ -106,8 +113,10 @@ public class Utils {
             // prepare the database and map
             HashMap<String, ResultSet> map = new HashMap<>();
             String[] tables = new String[]{"objectives", "tags", "points", "journals"};
+            // write all queued changes first
+            instance.getSaver().flush();
             // open database connection
-            Connector database = new Connector();
+            Connector database = new Connector(true);
             // load resultsets into the map
             for (String table : tables) {
                 Debug.info("Loading " + table);
@@ -125,7 +134,9 @@ public class Utils {
                 int columnCount = rsmd.getColumnCount();
                 Debug.info("  There are " + columnCount + " columns in this ResultSet");
                 for (int i = 1; i <= rsmd.getColumnCount(); i++) {
-                    String columnName = rsmd.getColumnName(i);
+                    // labels, because names of tags and points are selected
+                    // with aliases
+                    String columnName = rsmd.getColumnLabel(i);
                     Debug.info("    Adding column " + columnName);
                     columns.add(columnName);
                 }
@@ -230,6 +241,11 @@ public class Utils {
             con.updateSQL(UpdateType.DROP_TAGS, new String[]{});
             con.updateSQL(UpdateType.DROP_POINTS, new String[]{});
             con.updateSQL(UpdateType.DROP_JOURNALS, new String[]{});
+            // new tables have the original layout, the schema must be
+            // updated again; names will be moved to a new table then
+            con.updateSQL(UpdateType.DROP_SCHEMA, new String[]{});
+            con.updateSQL(UpdateType.DROP_NAMES, new String[]{});
+            TagDictionary.clearPersistentIDs();
             // create new tables
             database.createTables(instance.isMySQLUsed());
             // load objectives
@@ -409,17 +425,33 @@ public class Utils {
      * @return true if the supplied ItemStack is a quest item, false otherwise
      */
     public static boolean isQuestItem(ItemStack item) {
-        if (item == null) {
-            return false;
-        }
-        if (item.hasItemMeta() && item.getItemMeta().hasLore() && item.getItemMeta().getLore()
-                .contains(Config.getMessage("quest_item").replaceAll("&", "§"))) {
-            return true;
-        }
-        return false;
+        return ItemIdentifier.identify(item) == ItemIdentifier.Kind.QUEST_ITEM;
     }
     
     public static ArrayList<String> getParty(String playerID, double range, String pack, String[] conditions) {
+        String[] IDs = new String[conditions.length];
+        for (int i = 0; i < conditions.length; i++) {
+            IDs[i] = conditions[i].contains(".") ? conditions[i] : pack + "." + conditions[i];
+        }
+        ConditionRef[] refs = new ConditionRef[IDs.length];
+        for (int i = 0; i < IDs.length; i++) {
+            refs[i] = ConditionRef.find(IDs[i]);
+        }
+        return getParty(playerID, range, refs);
+    }
+
+    /**
+     * Returns players in the range which meet all conditions.
+     * 
+     * @param playerID
+     *          ID of the player in the center of the party
+     * @param range
+     *          range of the party
+     * @param conditions
+     *          handles of conditions which party members must meet
+     * @return list of IDs of party members
+     */
+    public static ArrayList<String> getParty(String playerID, double range, ConditionRef[] conditions) {
         final ArrayList<String> list = new ArrayList<>();
         Player player = PlayerConverter.getPlayer(playerID);
         Location loc = player.getLocation();
@@ -428,11 +460,8 @@ public class Utils {
             if (otherPlayer.getLocation().distanceSquared(loc) <= squared) {
                 String otherPlayerID = PlayerConverter.getID(otherPlayer);
                 boolean meets = true;
-                for (String condition : conditions) {
-                    if (!condition.contains(".")) {
-                        condition = pack + "." + condition;
-                    }
-                    if (!BetonQuest.condition(otherPlayerID, condition)) {
+                for (ConditionRef condition : conditions) {
+                    if (!condition.check(otherPlayerID)) {
                         meets = false;
                         break;
                     }
@@ -444,4 +473,36 @@ public class Utils {
         }
         return list;
     }
+
+    /**
+     * Runs the tasks in parallel on a fork-join pool and waits until all of
+     * them are done. Tasks which throw an exception are reported and left
+     * out of the results.
+     * 
+     * @param tasks
+     *          tasks to run
+     * @return results of successful tasks, in the order of the tasks
+     */
+    public static <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>(tasks.size());
+        if (tasks.isEmpty()) {
+            return results;
+        }
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                    Debug.error("There was some error. Please send it to the developer: <coosheck@gmail.com>");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdown();
+        }
+        return results;
+    }
 }